@@ -0,0 +1,73 @@
+package com.example.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the balance math of BalanceService with BigDecimal amounts (the previous implementation)
+ * against the fixed-point cents now used by the reservation engines and CardRepository.
+ * <p>
+ * Each operation is one transaction lifecycle on a card: available-balance check, hold,
+ * then debit and release. Run with the gc profiler to compare allocation rates:
+ * ./gradlew jmh -Pjmh.includes=BalanceArithmeticBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceArithmeticBenchmark {
+
+    private BigDecimal balance;
+    private BigDecimal locked;
+    private BigDecimal amount;
+
+    private long balanceCents;
+    private long lockedCents;
+    private long amountCents;
+
+    @Setup
+    public void setUp() {
+        balance = new BigDecimal("5000.00");
+        locked = new BigDecimal("1234.50");
+        amount = new BigDecimal("100.00");
+
+        balanceCents = 500_000L;
+        lockedCents = 123_450L;
+        amountCents = 10_000L;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal available = balance.subtract(locked);
+        if (available.compareTo(amount) < 0) {
+            return available;
+        }
+        BigDecimal held = locked.add(amount);
+        BigDecimal released = held.subtract(amount);
+        return balance.subtract(amount).add(released);
+    }
+
+    @Benchmark
+    public long cents() {
+        long available = balanceCents - lockedCents;
+        if (available < amountCents) {
+            return available;
+        }
+        long held = lockedCents + amountCents;
+        long released = held - amountCents;
+        return balanceCents - amountCents + released;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.benchmarks;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.TransactionResult;
+import com.example.reactive.BasicReactivePaymentProcessor;
+import com.example.reactive.FixedReactiveFailFastPaymentProcessor;
+import com.example.repository.CardRepository;
+import com.example.scopedvalues.ScopedPaymentProcessor;
+import com.example.services.BalanceService;
+import com.example.services.CardValidationService;
+import com.example.services.ExpirationService;
+import com.example.services.MerchantValidationService;
+import com.example.services.PinValidationService;
+import com.example.structured.FailFastStructuredPaymentProcessor;
+import com.example.structured.StructuredPaymentProcessor;
+import com.example.utils.DemoUtil;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput, average time and allocation (with -prof gc) of one transaction through each processor.
+ * <p>
+ * delayScale scales ServiceDelays: 0 measures only the scope/fork (or future) overhead per transaction,
+ * 1 uses the realistic delays (~700ms per successful transaction).
+ * scenario "declined" uses a wrong PIN, so the fail-fast processors cancel the remaining validations.
+ * <p>
+ * Example: ./gradlew jmh -Pjmh.includes=PaymentProcessorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PaymentProcessorBenchmark {
+
+    // Dedicated card that never expires nor runs out of funds during a run
+    private static final String CARD_NUMBER = "4000-0000-0000-0001";
+    private static final String CARD_EXPIRATION = "1299";
+    private static final String CARD_PIN = "4321";
+    private static final long CARD_BALANCE_CENTS = 1_000_000_000_00L;
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"structured", "fail-fast", "scoped", "reactive-basic", "reactive-fail-fast"})
+    public String processor;
+
+    @Param({"0", "1"})
+    public double delayScale;
+
+    @Param({"success", "declined"})
+    public String scenario;
+
+    private Processor target;
+    private String pin;
+
+    /**
+     * Common view over the structured (blocking) and reactive (future) processors.
+     */
+    @FunctionalInterface
+    private interface Processor {
+        TransactionResult process(TransactionRequest request) throws Exception;
+    }
+
+    @Setup
+    public void setUp() {
+        // One log line per transaction would dominate the measurement
+        Configurator.setAllLevels(LogManager.ROOT_LOGGER_NAME, Level.WARN);
+        DemoUtil.setDelayScale(delayScale);
+
+        CardRepository cardRepository = new CardRepository();
+        cardRepository.save(new Card(CARD_NUMBER, CARD_EXPIRATION, CARD_PIN, CARD_BALANCE_CENTS, "Benchmark card"));
+
+        BalanceService balanceService = new BalanceService(cardRepository);
+        CardValidationService cardValidationService = new CardValidationService(cardRepository);
+        ExpirationService expirationService = new ExpirationService();
+        PinValidationService pinValidationService = new PinValidationService();
+        MerchantValidationService merchantValidationService = new MerchantValidationService();
+
+        target = switch (processor) {
+            case "structured" -> new StructuredPaymentProcessor(balanceService, cardValidationService,
+                    expirationService, pinValidationService, merchantValidationService)::processTransaction;
+            case "fail-fast" -> new FailFastStructuredPaymentProcessor(balanceService, cardValidationService,
+                    expirationService, pinValidationService, merchantValidationService)::processTransaction;
+            case "scoped" -> new ScopedPaymentProcessor(cardRepository)::processTransaction;
+            case "reactive-basic" -> {
+                var reactive = new BasicReactivePaymentProcessor(balanceService, cardValidationService,
+                        expirationService, pinValidationService, merchantValidationService);
+                yield request -> reactive.processTransaction(request).join();
+            }
+            case "reactive-fail-fast" -> {
+                var reactive = new FixedReactiveFailFastPaymentProcessor(balanceService, cardValidationService,
+                        expirationService, pinValidationService, merchantValidationService);
+                yield request -> reactive.processTransaction(request).join();
+            }
+            default -> throw new IllegalArgumentException("Unknown processor: " + processor);
+        };
+        pin = switch (scenario) {
+            case "success" -> CARD_PIN;
+            case "declined" -> "0000";
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        DemoUtil.setDelayScale(1);
+    }
+
+    @Benchmark
+    public TransactionResult processTransaction() throws Exception {
+        TransactionRequest request = new TransactionRequest(CARD_NUMBER, CARD_EXPIRATION, pin, AMOUNT, "Benchmark Merchant");
+        return target.process(request);
+    }
+}
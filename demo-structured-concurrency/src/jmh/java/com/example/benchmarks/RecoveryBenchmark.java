@@ -0,0 +1,101 @@
+package com.example.benchmarks;
+
+import com.example.model.Card;
+import com.example.persistence.JournalEntry;
+import com.example.persistence.JournalRecovery;
+import com.example.persistence.WriteAheadLog;
+import com.example.repository.CardRepository;
+import com.example.repository.CardStore;
+import com.example.repository.HeapCardStore;
+import com.example.repository.OffHeapCardStore;
+import com.example.services.BalanceService;
+import com.example.services.LockingReservationEngine;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Startup time with a large card base: open the journal, then rebuild CardRepository and BalanceService
+ * from a snapshot of cards cards (what the application does on start with persistence.wal.enabled).
+ * <p>
+ * store heap needs a few GB of heap for 10M cards, off-heap keeps them in a memory-mapped file.
+ * Example: ./gradlew jmh -Pjmh.includes=RecoveryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RecoveryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public long cards;
+
+    @Param({"heap", "off-heap"})
+    public String store;
+
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        // One log line per card would dominate the measurement
+        Configurator.setAllLevels(LogManager.ROOT_LOGGER_NAME, Level.WARN);
+
+        directory = Files.createTempDirectory("recovery-benchmark");
+        Iterable<JournalEntry> snapshot = () -> LongStream.range(0, cards)
+                .<JournalEntry>mapToObj(i -> new JournalEntry.CardSaved(new Card(
+                        String.format("4000-%04d-%04d-%04d", i / 100_000_000, i / 10_000 % 10_000, i % 10_000),
+                        "1299", "4321", 100_000, "Benchmark card")))
+                .iterator();
+        WriteAheadLog.writeInitialSnapshot(directory, snapshot);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int recover() throws IOException {
+        CardStore cardStore = switch (store) {
+            case "heap" -> new HeapCardStore();
+            case "off-heap" -> new OffHeapCardStore(directory.resolve("cards.dat"), cards);
+            default -> throw new IllegalArgumentException("Unknown store: " + store);
+        };
+        try (WriteAheadLog wal = new WriteAheadLog(directory)) {
+            CardRepository cardRepository = new CardRepository(wal, cardStore);
+            JournalRecovery.recover(wal, cardRepository,
+                    new BalanceService(cardRepository, new LockingReservationEngine(cardRepository), wal));
+            return cardStore.size();
+        } finally {
+            if (cardStore instanceof OffHeapCardStore offHeap) {
+                offHeap.close();
+            }
+        }
+    }
+}
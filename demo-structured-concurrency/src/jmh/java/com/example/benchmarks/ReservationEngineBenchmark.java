@@ -0,0 +1,116 @@
+package com.example.benchmarks;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.repository.CardRepository;
+import com.example.services.CasReservationEngine;
+import com.example.services.LockingReservationEngine;
+import com.example.services.ReservationEngine;
+import com.example.services.ShardedReservationEngine;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on hot cards: many threads reserving and then transferring on hotCards cards,
+ * with the lock-per-card baseline, the CAS engine and the single-writer lanes.
+ * <p>
+ * hotCards 1 puts every thread on the same card, 1000 spreads them so contention mostly disappears.
+ * Example: ./gradlew jmh -Pjmh.includes=ReservationEngineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ReservationEngineBenchmark {
+
+    private static final String CARD_EXPIRATION = "1299";
+    private static final String CARD_PIN = "4321";
+    private static final long CARD_BALANCE_CENTS = Long.MAX_VALUE / 2;
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"locking", "cas", "sharded"})
+    public String engine;
+
+    @Param({"1", "10", "1000"})
+    public int hotCards;
+
+    @Param({"8"})
+    public int lanes;
+
+    private ReservationEngine target;
+    private Card[] cards;
+
+    /**
+     * Per-thread merchant, so requests of different threads never compare equal.
+     */
+    @State(Scope.Thread)
+    public static class Caller {
+        private static int sequence;
+        final String merchant;
+
+        public Caller() {
+            synchronized (Caller.class) {
+                merchant = "Benchmark Merchant " + sequence++;
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        // One log line per debit would dominate the measurement
+        Configurator.setAllLevels(LogManager.ROOT_LOGGER_NAME, Level.WARN);
+
+        CardRepository cardRepository = new CardRepository();
+        cards = new Card[hotCards];
+        for (int i = 0; i < hotCards; i++) {
+            cards[i] = cardRepository.save(new Card(String.format("4000-0000-0001-%04d", i),
+                    CARD_EXPIRATION, CARD_PIN, CARD_BALANCE_CENTS, "Benchmark card"));
+        }
+
+        target = switch (engine) {
+            case "locking" -> new LockingReservationEngine(cardRepository);
+            case "cas" -> new CasReservationEngine(cardRepository);
+            case "sharded" -> new ShardedReservationEngine(cardRepository, lanes, 1024);
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (target instanceof ShardedReservationEngine sharded) {
+            sharded.close();
+        }
+    }
+
+    @Benchmark
+    public ValidationResult reserveAndTransfer(Caller caller) {
+        Card card = cards[ThreadLocalRandom.current().nextInt(cards.length)];
+        TransactionRequest request = new TransactionRequest(card.cardNumber(), CARD_EXPIRATION, CARD_PIN, AMOUNT, caller.merchant);
+
+        ValidationResult result = target.reserve(request, card);
+        target.transfer(request);
+        return result;
+    }
+}
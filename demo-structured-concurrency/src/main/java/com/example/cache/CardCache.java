@@ -0,0 +1,60 @@
+package com.example.cache;
+
+import com.example.model.Card;
+
+/**
+ * Cards recently looked up by CardValidationService, so a repeat card skips the remote card lookup.
+ * Entries are invalidated when the card is saved again or removed. Debits and balance updates leave them:
+ * balances are always read from the repository, not from here.
+ * A lookup racing with a change must not cache the card as it was before: it takes a {@link #stamp} before
+ * reading the card and stores it with {@link #put(Card, long)}, which drops it if the card was invalidated since.
+ * <p>
+ * Implementations:
+ * - {@link #NONE}: caches nothing
+ * - {@link TinyLfuCardCache}: size-bounded W-TinyLFU cache with a time to live
+ */
+public interface CardCache {
+
+    CardCache NONE = new CardCache() {
+        @Override
+        public Card get(String cardNumber) {
+            return null;
+        }
+
+        @Override
+        public void put(Card card) {
+        }
+
+        @Override
+        public long stamp(String cardNumber) {
+            return 0;
+        }
+
+        @Override
+        public void put(Card card, long stamp) {
+        }
+
+        @Override
+        public void invalidate(String cardNumber) {
+        }
+    };
+
+    /**
+     * @return the cached card, or null
+     */
+    Card get(String cardNumber);
+
+    void put(Card card);
+
+    /**
+     * @return the invalidation stamp of the card, to take before reading it for {@link #put(Card, long)}
+     */
+    long stamp(String cardNumber);
+
+    /**
+     * Caches the card unless it was invalidated since the stamp was taken.
+     */
+    void put(Card card, long stamp);
+
+    void invalidate(String cardNumber);
+}
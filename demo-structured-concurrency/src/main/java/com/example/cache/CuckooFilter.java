@@ -0,0 +1,250 @@
+package com.example.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate set of strings that supports removal: a cuckoo filter with buckets of 4 fingerprints.
+ * <p>
+ * mightContain never answers false for an added (and not removed) item; it answers true for an unknown
+ * item with probability about falsePositiveRate once the filter holds expectedItems. The fingerprint width
+ * follows from the false positive rate (2 * 4 / 2^bits) and the number of buckets from expectedItems,
+ * so memory is about expectedItems * 2 bytes / 0.95.
+ * <p>
+ * Only remove items that were added: removing an unknown item may remove the fingerprint of another one.
+ * An item added twice must be removed twice. If an insertion cannot find a free slot (many more items
+ * than expected) the filter gives up filtering and answers true for everything from then on.
+ */
+public class CuckooFilter {
+    private static final Logger logger = LogManager.getLogger(CuckooFilter.class);
+
+    private static final int BUCKET_SIZE = 4;
+    private static final double MAX_LOAD_FACTOR = 0.95;
+    private static final int MAX_KICKS = 500;
+    private static final int MIN_FINGERPRINT_BITS = 4;
+    private static final int MAX_FINGERPRINT_BITS = 16;
+    private static final short EMPTY = 0;
+
+    // BUCKET_SIZE fingerprints per bucket, EMPTY for a free slot
+    private final short[] slots;
+    private final int bucketMask;
+    private final int fingerprintBits;
+    private final int fingerprintMask;
+
+    // Relocations move fingerprints between buckets, readers must not see them halfway
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long count;
+    private boolean saturated;
+
+    public CuckooFilter(long expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0) {
+            throw new IllegalArgumentException("expectedItems must be positive: " + expectedItems);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        int bits = (int) Math.ceil(log2(2.0 * BUCKET_SIZE / falsePositiveRate));
+        this.fingerprintBits = Math.clamp(bits, MIN_FINGERPRINT_BITS, MAX_FINGERPRINT_BITS);
+        this.fingerprintMask = (1 << fingerprintBits) - 1;
+
+        long buckets = Long.highestOneBit(Math.max(1, (long) Math.ceil(expectedItems / (BUCKET_SIZE * MAX_LOAD_FACTOR))));
+        if (buckets * BUCKET_SIZE < expectedItems / MAX_LOAD_FACTOR) {
+            buckets <<= 1;
+        }
+        if (buckets * BUCKET_SIZE > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("expectedItems too large: " + expectedItems);
+        }
+        this.slots = new short[(int) buckets * BUCKET_SIZE];
+        this.bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * @return false if the item was definitely not added (or was removed), true if it probably was
+     */
+    public boolean mightContain(String item) {
+        long hash = hash(item);
+        int fingerprint = fingerprint(hash);
+        int first = firstBucket(hash);
+        lock.readLock().lock();
+        try {
+            return saturated
+                    || bucketContains(first, fingerprint)
+                    || bucketContains(alternateBucket(first, fingerprint), fingerprint);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(String item) {
+        long hash = hash(item);
+        int fingerprint = fingerprint(hash);
+        int bucket = firstBucket(hash);
+        lock.writeLock().lock();
+        try {
+            count++;
+            if (saturated || insertIntoBucket(bucket, fingerprint)
+                    || insertIntoBucket(alternateBucket(bucket, fingerprint), fingerprint)) {
+                return;
+            }
+            // Both buckets full: evict a random fingerprint to its other bucket, and so on
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextBoolean()) {
+                bucket = alternateBucket(bucket, fingerprint);
+            }
+            for (int kick = 0; kick < MAX_KICKS; kick++) {
+                int victim = bucket * BUCKET_SIZE + random.nextInt(BUCKET_SIZE);
+                int evicted = slots[victim] & fingerprintMask;
+                slots[victim] = (short) fingerprint;
+                fingerprint = evicted;
+                bucket = alternateBucket(bucket, fingerprint);
+                if (insertIntoBucket(bucket, fingerprint)) {
+                    return;
+                }
+            }
+            // The last evicted fingerprint has no place left: stop filtering rather than forget an item
+            saturated = true;
+            logger.warn("Cuckoo filter full after {} items, every lookup now passes the filter", count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an item that was added before.
+     *
+     * @return true if a fingerprint of the item was found and removed
+     */
+    public boolean remove(String item) {
+        long hash = hash(item);
+        int fingerprint = fingerprint(hash);
+        int first = firstBucket(hash);
+        lock.writeLock().lock();
+        try {
+            if (removeFromBucket(first, fingerprint) || removeFromBucket(alternateBucket(first, fingerprint), fingerprint)) {
+                count--;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of items added and not removed
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes used by the fingerprints
+     */
+    public long memoryBytes() {
+        return (long) slots.length * Short.BYTES;
+    }
+
+    /**
+     * @return the false positive rate at the current number of items (1 once the filter is saturated)
+     */
+    public double falsePositiveRate() {
+        lock.readLock().lock();
+        try {
+            if (saturated) {
+                return 1.0;
+            }
+            // Two buckets are probed, each occupied slot matches an unknown fingerprint with probability 1/2^bits
+            double loadFactor = (double) count / slots.length;
+            return Math.min(1.0, 2.0 * BUCKET_SIZE * loadFactor / (1 << fingerprintBits));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int fingerprintBits() {
+        return fingerprintBits;
+    }
+
+    private boolean bucketContains(int bucket, int fingerprint) {
+        int start = bucket * BUCKET_SIZE;
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            if ((slots[i] & fingerprintMask) == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean insertIntoBucket(int bucket, int fingerprint) {
+        int start = bucket * BUCKET_SIZE;
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            if (slots[i] == EMPTY) {
+                slots[i] = (short) fingerprint;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean removeFromBucket(int bucket, int fingerprint) {
+        int start = bucket * BUCKET_SIZE;
+        for (int i = start; i < start + BUCKET_SIZE; i++) {
+            if ((slots[i] & fingerprintMask) == fingerprint) {
+                slots[i] = EMPTY;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int firstBucket(long hash) {
+        return (int) hash & bucketMask;
+    }
+
+    private int fingerprint(long hash) {
+        int fingerprint = (int) (hash >>> 32) & fingerprintMask;
+        // EMPTY marks a free slot
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    /**
+     * The other bucket of a fingerprint, computed from the fingerprint alone so an evicted fingerprint can move
+     * without knowing its item; alternateBucket(alternateBucket(b, f), f) == b.
+     */
+    private int alternateBucket(int bucket, int fingerprint) {
+        return (bucket ^ (int) mix(fingerprint)) & bucketMask;
+    }
+
+    private static long hash(String item) {
+        // FNV-1a over the chars, then mixed so the low bits (bucket) and high bits (fingerprint) are independent
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            hash ^= item.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
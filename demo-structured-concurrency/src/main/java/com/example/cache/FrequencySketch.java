@@ -0,0 +1,70 @@
+package com.example.cache;
+
+/**
+ * Approximate access frequency of keys (count-min sketch of 4-bit counters), the admission filter of
+ * {@link TinyLfuCache}. Counters are halved every sampleSize increments so old popularity fades.
+ * Not thread-safe, callers lock.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0xd6e8feb86659fd93L};
+
+    // DEPTH rows of width counters each
+    private final byte[] counters;
+    private final int width;
+    private final int widthMask;
+    private final long sampleSize;
+    private long additions;
+
+    FrequencySketch(long maximumSize) {
+        long target = Math.max(16, Math.min(maximumSize, 1 << 26));
+        this.width = (int) Long.highestOneBit(target * 2 - 1);
+        this.widthMask = width - 1;
+        this.counters = new byte[DEPTH * width];
+        this.sampleSize = 10 * Math.max(1, maximumSize);
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean incremented = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                incremented = true;
+            }
+        }
+        if (incremented && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>= 1;
+        }
+        additions /= 2;
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return row * width + ((int) (h >>> 32) & widthMask);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        return hash;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Loading cache whose entries are reloaded in the background before they expire.
+ * <p>
+ * The time to live depends on the loaded value (e.g. shorter for negative results). A value read after
+ * refreshAhead of its time to live is still returned, and a reload is started on a virtual thread with the
+ * loader of that read, so the next callers get a fresh value without waiting. Only an absent or expired entry
+ * makes the caller wait for its loader; concurrent waiters for one key share the load ({@link SingleFlight}).
+ * Entries are kept in a {@link TinyLfuCache} of maximumSize entries.
+ * <p>
+ * At most maxConcurrentRefreshes reloads run at a time: when many entries near expiry together, the extra
+ * refreshes are skipped (the entries are reloaded by a caller once expired) instead of competing with live
+ * traffic for the backend. Once bound to a registry ({@link #bindTo}), activity is published as
+ * payment.validation.cache.* metrics tagged with the name.
+ * <p>
+ * A load or refresh in flight when its key is invalidated does not store its value: it may have read the
+ * state from before the change. Each invalidation bumps the generation of the key's stripe, and a load only
+ * stores its value if the generation is still the one it started with.
+ */
+public class RefreshAheadCache<K, V> implements MeterBinder {
+    private static final Logger logger = LogManager.getLogger(RefreshAheadCache.class);
+
+    private record Entry<V>(V value, long loadedNanos, long ttlNanos) {}
+
+    // Invalidation generations of the key stripes (a stripe shared by two keys only costs a skipped store)
+    private static final int STRIPES = 64;
+
+    private final String name;
+    private final Function<V, Duration> timeToLive;
+    private final double refreshAhead;
+    private final LongSupplier nanoTime;
+
+    private final TinyLfuCache<K, Entry<V>> entries;
+    private final SingleFlight<K, Entry<V>> loads;
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private final Semaphore refreshPermits;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder skippedRefreshes = new LongAdder();
+
+    /**
+     * @param name Name of the cache (threads and metrics tag)
+     * @param maximumSize Maximum number of entries
+     * @param timeToLive Time to live of a loaded value, zero to not cache it
+     * @param refreshAhead Fraction of the time to live after which a read starts a reload (1 to never refresh ahead)
+     * @param maxConcurrentRefreshes Maximum number of background reloads running at the same time
+     */
+    public RefreshAheadCache(String name, long maximumSize, Function<V, Duration> timeToLive, double refreshAhead,
+                             int maxConcurrentRefreshes) {
+        this(name, maximumSize, timeToLive, refreshAhead, maxConcurrentRefreshes, System::nanoTime);
+    }
+
+    RefreshAheadCache(String name, long maximumSize, Function<V, Duration> timeToLive, double refreshAhead,
+                      int maxConcurrentRefreshes, LongSupplier nanoTime) {
+        if (refreshAhead <= 0 || refreshAhead > 1) {
+            throw new IllegalArgumentException("refreshAhead must be in (0, 1]: " + refreshAhead);
+        }
+        this.name = name;
+        this.timeToLive = timeToLive;
+        this.refreshAhead = refreshAhead;
+        this.refreshPermits = new Semaphore(maxConcurrentRefreshes);
+        this.nanoTime = nanoTime;
+        // Expiry is per entry, checked here
+        this.entries = new TinyLfuCache<>(maximumSize, Duration.ZERO, nanoTime);
+        this.loads = new SingleFlight<>(name + "-load");
+
+    }
+
+    /**
+     * Publishes the metrics of this cache in the registry.
+     *
+     * @throws IllegalStateException if the registry already has a cache of that name: its gauge would
+     * silently keep reporting the other one
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (registry.find("payment.validation.cache.size").tag("cache", name).gauge() != null) {
+            throw new IllegalStateException("Validation cache already registered: " + name);
+        }
+        FunctionCounter.builder("payment.validation.cache.hits", this, RefreshAheadCache::hitCount)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("payment.validation.cache.misses", this, RefreshAheadCache::missCount)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("payment.validation.cache.refreshes", this, RefreshAheadCache::refreshCount)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("payment.validation.cache.refreshes.skipped", this, RefreshAheadCache::skippedRefreshCount)
+                .tag("cache", name).register(registry);
+        Gauge.builder("payment.validation.cache.size", this, RefreshAheadCache::size)
+                .tag("cache", name).register(registry);
+    }
+
+    /**
+     * @param loader Loads the value of the key, may block; also used to refresh the entry if it is close to expiry
+     * @return the cached value, or the loaded one if it is absent or expired
+     * @throws InterruptedException if interrupted while waiting for the load (the load carries on)
+     */
+    public V get(K key, Supplier<V> loader) throws InterruptedException {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            long age = nanoTime.getAsLong() - entry.loadedNanos();
+            if (age < entry.ttlNanos()) {
+                hits.increment();
+                if (age >= entry.ttlNanos() * refreshAhead) {
+                    refresh(key, loader);
+                }
+                return entry.value();
+            }
+        }
+        misses.increment();
+        return loads.load(key, () -> load(key, loader)).value();
+    }
+
+    /**
+     * Drops the entry, the next read loads it again. A load already in flight for the key does not store its value.
+     */
+    public void invalidate(K key) {
+        // Before dropping the entry: a load that stores it after this sees the new generation and drops it again
+        generations.incrementAndGet(stripe(key));
+        entries.invalidate(key);
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long refreshCount() {
+        return refreshes.sum();
+    }
+
+    public long skippedRefreshCount() {
+        return skippedRefreshes.sum();
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    private Entry<V> load(K key, Supplier<V> loader) {
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        V value = loader.get();
+        Entry<V> entry = new Entry<>(value, nanoTime.getAsLong(), timeToLive.apply(value).toNanos());
+        if (entry.ttlNanos() > 0 && generations.get(stripe) == generation) {
+            entries.put(key, entry);
+            if (generations.get(stripe) != generation) {
+                // Invalidated while storing
+                entries.invalidate(key);
+            }
+        }
+        return entry;
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private void refresh(K key, Supplier<V> loader) {
+        // One refresh per key at a time, later reads keep the current value meanwhile
+        if (!refreshing.add(key)) {
+            return;
+        }
+        if (!refreshPermits.tryAcquire()) {
+            refreshing.remove(key);
+            skippedRefreshes.increment();
+            return;
+        }
+        refreshes.increment();
+        Thread.ofVirtual().name(name + "-refresh").start(() -> {
+            try {
+                loads.load(key, () -> load(key, loader));
+            } catch (RuntimeException e) {
+                // The current value stays until it expires, then a caller loads it again
+                logger.warn("Refresh of {} in {} failed: {}", key, name, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                refreshPermits.release();
+                refreshing.remove(key);
+            }
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller starts the load, callers arriving while it
+ * runs wait for the same result, and all of them are released when it completes.
+ * <p>
+ * The load runs on its own virtual thread rather than on the first caller's, so interrupting a caller
+ * (e.g. its StructuredTaskScope is cancelled) only stops that caller waiting; the load carries on for the
+ * others. The load thread inherits no ScopedValue bindings, so the loader must get everything it needs
+ * from its arguments.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param name Name of the load threads
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the result of the load in flight for the key, starting it with loader if there is none.
+     * An exception of the loader is thrown to every caller of that load.
+     *
+     * @throws InterruptedException if this caller is interrupted while waiting (the load is not cancelled)
+     */
+    public V load(K key, Supplier<V> loader) throws InterruptedException {
+        CompletableFuture<V> started = new CompletableFuture<>();
+        CompletableFuture<V> flight = inFlight.putIfAbsent(key, started);
+        if (flight == null) {
+            flight = started;
+            Thread.ofVirtual().name(name).start(() -> {
+                // Removed before completing, so a caller woken by a failure and retrying starts a new load
+                try {
+                    V value = loader.get();
+                    inFlight.remove(key, started);
+                    started.complete(value);
+                } catch (Throwable e) {
+                    inFlight.remove(key, started);
+                    started.completeExceptionally(e);
+                }
+            });
+        } else {
+            coalesced.increment();
+        }
+
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case RuntimeException cause -> throw cause;
+                case Error cause -> throw cause;
+                default -> throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * @return number of calls that joined a load already in flight
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of loads in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
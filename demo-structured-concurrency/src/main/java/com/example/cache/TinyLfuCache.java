@@ -0,0 +1,261 @@
+package com.example.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded cache with W-TinyLFU eviction and expiry after write.
+ * <p>
+ * New entries go to a small LRU window (1% of the size). An entry leaving the window is only admitted to the
+ * main segmented LRU (probation, then protected once read again) if it was requested more often than the
+ * entry the main region would evict, according to a {@link FrequencySketch} of recent requests. A burst of
+ * one-off keys therefore cannot flush the frequently used ones.
+ * <p>
+ * An entry older than the time to live is never returned; it is dropped when it is next read or evicted
+ * like any other. Every operation takes one lock, which is cheap next to the remote lookups cached here.
+ */
+public class TinyLfuCache<K, V> {
+
+    private enum Region { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node<V> {
+        V value;
+        long writeNanos;
+        Region region;
+
+        Node(V value, long writeNanos) {
+            this.value = value;
+            this.writeNanos = writeNanos;
+            this.region = Region.WINDOW;
+        }
+    }
+
+    private final long maximumSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    private final int windowMaximum;
+    private final long protectedMaximum;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, Node<V>> nodes = new HashMap<>();
+    // Access ordered, eldest first
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> protectedRegion = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maximumSize Maximum number of entries
+     * @param ttl Time to live of an entry after it is written, zero for no expiry
+     */
+    public TinyLfuCache(long maximumSize, Duration ttl) {
+        this(maximumSize, ttl, System::nanoTime);
+    }
+
+    TinyLfuCache(long maximumSize, Duration ttl, LongSupplier nanoTime) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.isZero() ? Long.MAX_VALUE : ttl.toNanos();
+        this.nanoTime = nanoTime;
+        this.windowMaximum = (int) Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (maximumSize - windowMaximum) * 80 / 100;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @return the cached value, or null if absent or expired
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Node<V> node = nodes.get(key);
+            if (node == null) {
+                misses++;
+                return null;
+            }
+            if (expired(node)) {
+                remove(key, node);
+                misses++;
+                return null;
+            }
+            onAccess(key, node);
+            hits++;
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            Node<V> node = nodes.get(key);
+            if (node != null) {
+                node.value = value;
+                node.writeNanos = nanoTime.getAsLong();
+                onAccess(key, node);
+                return;
+            }
+            sketch.increment(key);
+            node = new Node<>(value, nanoTime.getAsLong());
+            nodes.put(key, node);
+            window.put(key, node);
+            if (window.size() > windowMaximum) {
+                evictFromWindow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            Node<V> node = nodes.get(key);
+            if (node != null) {
+                remove(key, node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            nodes.clear();
+            window.clear();
+            probation.clear();
+            protectedRegion.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of entries, including expired ones not dropped yet
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long missCount() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long evictionCount() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean expired(Node<V> node) {
+        return nanoTime.getAsLong() - node.writeNanos >= ttlNanos;
+    }
+
+    private void onAccess(K key, Node<V> node) {
+        switch (node.region) {
+            case WINDOW -> window.get(key);
+            case PROTECTED -> protectedRegion.get(key);
+            case PROBATION -> {
+                // Read again while on probation: promote, demoting the eldest protected entry if needed
+                probation.remove(key);
+                node.region = Region.PROTECTED;
+                protectedRegion.put(key, node);
+                if (protectedRegion.size() > protectedMaximum) {
+                    Map.Entry<K, Node<V>> eldest = pollEldest(protectedRegion);
+                    eldest.getValue().region = Region.PROBATION;
+                    probation.put(eldest.getKey(), eldest.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the eldest window entry to the main region if there is room, otherwise it competes with the
+     * main region's eviction victim and the less frequent of the two is evicted.
+     */
+    private void evictFromWindow() {
+        Map.Entry<K, Node<V>> candidate = pollEldest(window);
+        K candidateKey = candidate.getKey();
+        Node<V> candidateNode = candidate.getValue();
+        candidateNode.region = Region.PROBATION;
+
+        if (probation.size() + protectedRegion.size() < maximumSize - windowMaximum) {
+            probation.put(candidateKey, candidateNode);
+            return;
+        }
+        if (probation.isEmpty() && protectedRegion.isEmpty()) {
+            // No main region (maximumSize 1)
+            nodes.remove(candidateKey);
+            evictions++;
+            return;
+        }
+
+        LinkedHashMap<K, Node<V>> victimRegion = probation.isEmpty() ? protectedRegion : probation;
+        // Peek through the iterator, get() would count as an access and reorder the region
+        Map.Entry<K, Node<V>> victim = victimRegion.entrySet().iterator().next();
+        K victimKey = victim.getKey();
+        Node<V> victimNode = victim.getValue();
+        if (expired(victimNode) || sketch.frequency(candidateKey) > sketch.frequency(victimKey)) {
+            remove(victimKey, victimNode);
+            probation.put(candidateKey, candidateNode);
+        } else {
+            nodes.remove(candidateKey);
+        }
+        evictions++;
+    }
+
+    private void remove(K key, Node<V> node) {
+        nodes.remove(key);
+        switch (node.region) {
+            case WINDOW -> window.remove(key);
+            case PROBATION -> probation.remove(key);
+            case PROTECTED -> protectedRegion.remove(key);
+        }
+    }
+
+    private static <K, V> Map.Entry<K, V> pollEldest(LinkedHashMap<K, V> map) {
+        Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+        Map.Entry<K, V> eldest = iterator.next();
+        K key = eldest.getKey();
+        V value = eldest.getValue();
+        iterator.remove();
+        return Map.entry(key, value);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.cache;
+
+import com.example.model.Card;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link CardCache} on a {@link TinyLfuCache}.
+ * Once bound to a registry ({@link #bindTo}), publishes payment.card.cache.* metrics.
+ */
+public class TinyLfuCardCache implements CardCache, MeterBinder {
+
+    // Invalidation generations of the card stripes (a stripe shared by two cards only costs a skipped store)
+    private static final int STRIPES = 64;
+
+    private final TinyLfuCache<String, Card> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    public TinyLfuCardCache(long maximumSize, Duration ttl) {
+        this.cache = new TinyLfuCache<>(maximumSize, ttl);
+    }
+
+    /**
+     * Publishes the metrics of this cache in the registry.
+     *
+     * @throws IllegalStateException if the registry already has a card cache: its gauge would
+     * silently keep reporting the other one
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (registry.find("payment.card.cache.size").gauge() != null) {
+            throw new IllegalStateException("Card cache already registered");
+        }
+        FunctionCounter.builder("payment.card.cache.hits", cache, TinyLfuCache::hitCount)
+                .register(registry);
+        FunctionCounter.builder("payment.card.cache.misses", cache, TinyLfuCache::missCount)
+                .register(registry);
+        FunctionCounter.builder("payment.card.cache.evictions", cache, TinyLfuCache::evictionCount)
+                .register(registry);
+        Gauge.builder("payment.card.cache.size", cache, TinyLfuCache::size)
+                .register(registry);
+    }
+
+    @Override
+    public Card get(String cardNumber) {
+        return cache.get(cardNumber);
+    }
+
+    @Override
+    public void put(Card card) {
+        cache.put(card.cardNumber(), card);
+    }
+
+    @Override
+    public long stamp(String cardNumber) {
+        return generations.get(stripe(cardNumber));
+    }
+
+    @Override
+    public void put(Card card, long stamp) {
+        int stripe = stripe(card.cardNumber());
+        if (generations.get(stripe) == stamp) {
+            cache.put(card.cardNumber(), card);
+            if (generations.get(stripe) != stamp) {
+                // Invalidated while storing
+                cache.invalidate(card.cardNumber());
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(String cardNumber) {
+        // Before dropping the entry: a lookup that stores it after this sees the new generation and drops it again
+        generations.incrementAndGet(stripe(cardNumber));
+        cache.invalidate(cardNumber);
+    }
+
+    private static int stripe(String cardNumber) {
+        int hash = cardNumber.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.config;
+
+import com.example.resilience.Bulkhead;
+import com.example.resilience.SemaphoreBulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+/**
+ * Bulkheads of the validation services, one per service: bulkhead.&lt;service&gt;.max-concurrent calls at most
+ * (0, the default, for no limit), further calls wait up to bulkhead.max-wait in arrival order and are then
+ * rejected, which fails the transaction with a REJECTED result and cancels its other validations.
+ * The bulkheads' metrics are published in the application's MeterRegistry.
+ */
+@Singleton
+public class BulkheadProducer {
+
+    @Produces
+    @Singleton
+    @Named("card")
+    Bulkhead cardBulkhead(@ConfigProperty(name = "bulkhead.card.max-concurrent", defaultValue = "0") int maxConcurrent,
+                          @ConfigProperty(name = "bulkhead.max-wait", defaultValue = "100ms") Duration maxWait,
+                          MeterRegistry registry) {
+        return bulkhead("card", maxConcurrent, maxWait, registry);
+    }
+
+    @Produces
+    @Singleton
+    @Named("merchant")
+    Bulkhead merchantBulkhead(@ConfigProperty(name = "bulkhead.merchant.max-concurrent", defaultValue = "0") int maxConcurrent,
+                              @ConfigProperty(name = "bulkhead.max-wait", defaultValue = "100ms") Duration maxWait,
+                              MeterRegistry registry) {
+        return bulkhead("merchant", maxConcurrent, maxWait, registry);
+    }
+
+    @Produces
+    @Singleton
+    @Named("expiration")
+    Bulkhead expirationBulkhead(@ConfigProperty(name = "bulkhead.expiration.max-concurrent", defaultValue = "0") int maxConcurrent,
+                                @ConfigProperty(name = "bulkhead.max-wait", defaultValue = "100ms") Duration maxWait,
+                                MeterRegistry registry) {
+        return bulkhead("expiration", maxConcurrent, maxWait, registry);
+    }
+
+    @Produces
+    @Singleton
+    @Named("pin")
+    Bulkhead pinBulkhead(@ConfigProperty(name = "bulkhead.pin.max-concurrent", defaultValue = "0") int maxConcurrent,
+                         @ConfigProperty(name = "bulkhead.max-wait", defaultValue = "100ms") Duration maxWait,
+                         MeterRegistry registry) {
+        return bulkhead("pin", maxConcurrent, maxWait, registry);
+    }
+
+    @Produces
+    @Singleton
+    @Named("balance")
+    Bulkhead balanceBulkhead(@ConfigProperty(name = "bulkhead.balance.max-concurrent", defaultValue = "0") int maxConcurrent,
+                             @ConfigProperty(name = "bulkhead.max-wait", defaultValue = "100ms") Duration maxWait,
+                             MeterRegistry registry) {
+        return bulkhead("balance", maxConcurrent, maxWait, registry);
+    }
+
+    private static Bulkhead bulkhead(String service, int maxConcurrent, Duration maxWait, MeterRegistry registry) {
+        if (maxConcurrent <= 0) {
+            return Bulkhead.NONE;
+        }
+        SemaphoreBulkhead bulkhead = new SemaphoreBulkhead(service, maxConcurrent, maxWait);
+        bulkhead.bindTo(registry);
+        return bulkhead;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.config;
+
+import com.example.cache.CardCache;
+import com.example.cache.TinyLfuCardCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+/**
+ * Card cache of CardValidationService.
+ * Configured with card-cache:
+ * - none (default): every validation looks the card up
+ * - tiny-lfu: up to card-cache.maximum-size cards, W-TinyLFU eviction, each kept at most card-cache.ttl
+ * The cache's metrics are published in the application's MeterRegistry.
+ */
+@Singleton
+public class CardCacheProducer {
+
+    @Produces
+    @Singleton
+    CardCache cardCache(@ConfigProperty(name = "card-cache", defaultValue = "none") String type,
+                        @ConfigProperty(name = "card-cache.maximum-size", defaultValue = "10000") long maximumSize,
+                        @ConfigProperty(name = "card-cache.ttl", defaultValue = "5m") Duration ttl,
+                        MeterRegistry registry) {
+        return switch (type) {
+            case "none" -> CardCache.NONE;
+            case "tiny-lfu" -> {
+                TinyLfuCardCache cache = new TinyLfuCardCache(maximumSize, ttl);
+                cache.bindTo(registry);
+                yield cache;
+            }
+            default -> throw new IllegalArgumentException("Unknown card-cache: " + type);
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.config;
+
+import com.example.repository.CardStore;
+import com.example.repository.HeapCardStore;
+import com.example.repository.OffHeapCardStore;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Storage of CardRepository.
+ * Configured with card-store:
+ * - heap (default): Card records in a ConcurrentHashMap
+ * - off-heap: fixed-width records in the memory-mapped file card-store.path, for up to card-store.capacity cards
+ */
+@Singleton
+public class CardStoreProducer {
+
+    @Produces
+    @Singleton
+    CardStore cardStore(@ConfigProperty(name = "card-store", defaultValue = "heap") String type,
+                        @ConfigProperty(name = "card-store.path", defaultValue = "data/cards.dat") Path path,
+                        @ConfigProperty(name = "card-store.capacity", defaultValue = "1000000") long capacity) {
+        return switch (type) {
+            case "heap" -> new HeapCardStore();
+            case "off-heap" -> {
+                try {
+                    yield new OffHeapCardStore(path, capacity);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot open off-heap card store " + path, e);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown card-store: " + type);
+        };
+    }
+
+    void close(@Disposes CardStore store) {
+        if (store instanceof OffHeapCardStore offHeap) {
+            offHeap.close();
+        }
+    }
+}
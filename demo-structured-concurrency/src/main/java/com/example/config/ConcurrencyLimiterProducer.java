@@ -0,0 +1,51 @@
+package com.example.config;
+
+import com.example.resilience.AdaptiveConcurrencyLimiter;
+import com.example.resilience.AimdLimit;
+import com.example.resilience.ConcurrencyLimiter;
+import com.example.resilience.GradientLimit;
+import com.example.resilience.LimitAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limit of the single-transaction payment endpoints.
+ * Configured with concurrency-limit:
+ * - none (default): every transaction is accepted
+ * - aimd: grows while calls are faster than concurrency-limit.aimd.latency-threshold, backs off otherwise
+ * - gradient: shrinks as soon as calls get slower than their long-term average
+ * Both stay within concurrency-limit.min and concurrency-limit.max, starting at concurrency-limit.initial.
+ * The limiter's metrics are published in the application's MeterRegistry.
+ */
+@Singleton
+public class ConcurrencyLimiterProducer {
+
+    @Produces
+    @Singleton
+    ConcurrencyLimiter concurrencyLimiter(@ConfigProperty(name = "concurrency-limit", defaultValue = "none") String algorithm,
+                                          @ConfigProperty(name = "concurrency-limit.initial", defaultValue = "100") int initialLimit,
+                                          @ConfigProperty(name = "concurrency-limit.min", defaultValue = "10") int minLimit,
+                                          @ConfigProperty(name = "concurrency-limit.max", defaultValue = "1000") int maxLimit,
+                                          @ConfigProperty(name = "concurrency-limit.aimd.latency-threshold", defaultValue = "2s") Duration latencyThreshold,
+                                          @ConfigProperty(name = "concurrency-limit.aimd.backoff-ratio", defaultValue = "0.9") double backoffRatio,
+                                          @ConfigProperty(name = "concurrency-limit.gradient.tolerance", defaultValue = "1.5") double tolerance,
+                                          @ConfigProperty(name = "concurrency-limit.gradient.smoothing", defaultValue = "0.2") double smoothing,
+                                          MeterRegistry registry) {
+        if (algorithm.equals("none")) {
+            return ConcurrencyLimiter.NONE;
+        }
+        LimitAlgorithm limitAlgorithm = switch (algorithm) {
+            case "aimd" -> new AimdLimit(latencyThreshold, backoffRatio);
+            case "gradient" -> new GradientLimit(tolerance, smoothing);
+            default -> throw new IllegalArgumentException("Unknown concurrency-limit: " + algorithm);
+        };
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("payments", limitAlgorithm,
+                initialLimit, minLimit, maxLimit);
+        limiter.bindTo(registry);
+        return limiter;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.config;
+
+import com.example.resilience.Hedging;
+import com.example.resilience.PercentileHedging;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+/**
+ * Hedging of the merchant check and the balance reservation, opt-in with hedging.merchant.enabled and
+ * hedging.balance.enabled (Hedging.NONE otherwise). Both share the hedging.* settings:
+ * - percentile: latency percentile after which a duplicate is sent (initial-delay until it is known, at least minimum-delay)
+ * - budget: hedges per call at most, with up to budget-burst saved
+ * The hedging metrics are published in the application's MeterRegistry.
+ */
+@Singleton
+public class HedgingProducer {
+
+    @Produces
+    @Singleton
+    @Named("merchant")
+    Hedging merchantHedging(@ConfigProperty(name = "hedging.merchant.enabled", defaultValue = "false") boolean enabled,
+                            @ConfigProperty(name = "hedging.percentile", defaultValue = "0.95") double percentile,
+                            @ConfigProperty(name = "hedging.initial-delay", defaultValue = "1s") Duration initialDelay,
+                            @ConfigProperty(name = "hedging.minimum-delay", defaultValue = "20ms") Duration minimumDelay,
+                            @ConfigProperty(name = "hedging.budget", defaultValue = "0.05") double budget,
+                            @ConfigProperty(name = "hedging.budget-burst", defaultValue = "10") int budgetBurst,
+                            MeterRegistry registry) {
+        return enabled ? hedging("merchant", percentile, initialDelay, minimumDelay, budget, budgetBurst, registry) : Hedging.NONE;
+    }
+
+    @Produces
+    @Singleton
+    @Named("balance")
+    Hedging balanceHedging(@ConfigProperty(name = "hedging.balance.enabled", defaultValue = "false") boolean enabled,
+                           @ConfigProperty(name = "hedging.percentile", defaultValue = "0.95") double percentile,
+                           @ConfigProperty(name = "hedging.initial-delay", defaultValue = "1s") Duration initialDelay,
+                           @ConfigProperty(name = "hedging.minimum-delay", defaultValue = "20ms") Duration minimumDelay,
+                           @ConfigProperty(name = "hedging.budget", defaultValue = "0.05") double budget,
+                           @ConfigProperty(name = "hedging.budget-burst", defaultValue = "10") int budgetBurst,
+                           MeterRegistry registry) {
+        return enabled ? hedging("balance", percentile, initialDelay, minimumDelay, budget, budgetBurst, registry) : Hedging.NONE;
+    }
+
+    private static Hedging hedging(String service, double percentile, Duration initialDelay, Duration minimumDelay,
+                                   double budget, int budgetBurst, MeterRegistry registry) {
+        PercentileHedging hedging = new PercentileHedging(service, percentile, initialDelay, minimumDelay, budget, budgetBurst);
+        hedging.bindTo(registry);
+        return hedging;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.config;
+
+import com.example.persistence.Journal;
+import com.example.persistence.JournalRecovery;
+import com.example.persistence.WriteAheadLog;
+import com.example.repository.CardRepository;
+import com.example.services.BalanceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.enterprise.inject.spi.ObserverMethod;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Journal of CardRepository and BalanceService.
+ * Configured with persistence.wal.enabled: false (default) keeps everything in memory,
+ * true records every change in the write-ahead log in persistence.dir and recovers from it on startup:
+ * segments of persistence.wal.segment-size, folded into a snapshot every persistence.snapshot.interval.
+ * The log's metrics are published in the application's MeterRegistry.
+ * <p>
+ * Recovery is owned here: on startup the journal is replayed once into CardRepository and BalanceService,
+ * then checkpoints start (a checkpoint deletes the files recovery reads).
+ */
+@Singleton
+public class JournalProducer {
+
+    @Produces
+    @Singleton
+    Journal journal(@ConfigProperty(name = "persistence.wal.enabled", defaultValue = "false") boolean enabled,
+                    @ConfigProperty(name = "persistence.dir", defaultValue = "data") Path directory,
+                    @ConfigProperty(name = "persistence.wal.segment-size", defaultValue = "64M") MemorySize segmentSize,
+                    MeterRegistry registry) {
+        if (!enabled) {
+            return Journal.NONE;
+        }
+        try {
+            WriteAheadLog wal = new WriteAheadLog(directory, segmentSize.asLongValue());
+            wal.bindTo(registry);
+            return wal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+        }
+    }
+
+    // Before the other startup observers, so whatever reads the cards on startup finds them recovered
+    void recover(@Observes @Priority(ObserverMethod.DEFAULT_PRIORITY - 1) StartupEvent event, Journal journal,
+                 CardRepository cardRepository, BalanceService balanceService,
+                 @ConfigProperty(name = "persistence.snapshot.interval", defaultValue = "5m") Duration snapshotInterval) {
+        JournalRecovery.recover(journal, cardRepository, balanceService);
+        if (journal instanceof WriteAheadLog wal && snapshotInterval.isPositive()) {
+            wal.startCheckpoints(snapshotInterval);
+        }
+    }
+
+    void close(@Disposes Journal journal) throws IOException {
+        if (journal instanceof WriteAheadLog wal) {
+            wal.close();
+        }
+    }
+}
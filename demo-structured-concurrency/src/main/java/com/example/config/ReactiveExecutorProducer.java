@@ -0,0 +1,43 @@
+package com.example.config;
+
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor for the async stages of the reactive processors.
+ * Configured with reactive.executor:
+ * - virtual (default): one virtual thread per task
+ * - platform: bounded pool of reactive.executor.pool-size platform threads
+ * The processors compose their stages instead of joining them inside a task, so a bounded pool cannot
+ * deadlock with every thread waiting for a stage queued behind it.
+ */
+@Singleton
+public class ReactiveExecutorProducer {
+    private static final Logger logger = LogManager.getLogger(ReactiveExecutorProducer.class);
+
+    @Produces
+    @Singleton
+    @Named("reactive-executor")
+    ExecutorService reactiveExecutor(@ConfigProperty(name = "reactive.executor", defaultValue = "virtual") String type,
+                                     @ConfigProperty(name = "reactive.executor.pool-size", defaultValue = "64") int poolSize) {
+        ExecutorService executor = switch (type) {
+            case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+            case "platform" -> Executors.newFixedThreadPool(poolSize, Thread.ofPlatform().name("reactive-", 0).factory());
+            default -> throw new IllegalArgumentException("Unknown reactive.executor: " + type);
+        };
+        logger.info("Reactive processors running on {} executor", type);
+        return executor;
+    }
+
+    void close(@Disposes @Named("reactive-executor") ExecutorService executor) {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.config;
+
+import com.example.repository.CardRepository;
+import com.example.services.CasReservationEngine;
+import com.example.services.LockingReservationEngine;
+import com.example.services.ReservationEngine;
+import com.example.services.ShardedReservationEngine;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Selects the reservation engine used by BalanceService.
+ * Configured with balance.engine:
+ * - locking (default): one ReentrantLock per card
+ * - cas: lock-free compare-and-set
+ * - sharded: balance.engine.lanes single-writer lanes, each with a queue of balance.engine.lane-queue-capacity
+ */
+@Singleton
+public class ReservationEngineProducer {
+
+    @Produces
+    @Singleton
+    ReservationEngine reservationEngine(CardRepository cardRepository,
+                                        @ConfigProperty(name = "balance.engine", defaultValue = "locking") String engine,
+                                        @ConfigProperty(name = "balance.engine.lanes", defaultValue = "8") int lanes,
+                                        @ConfigProperty(name = "balance.engine.lane-queue-capacity", defaultValue = "1024") int laneQueueCapacity) {
+        return switch (engine) {
+            case "locking" -> new LockingReservationEngine(cardRepository);
+            case "cas" -> new CasReservationEngine(cardRepository);
+            case "sharded" -> new ShardedReservationEngine(cardRepository, lanes, laneQueueCapacity);
+            default -> throw new IllegalArgumentException("Unknown balance.engine: " + engine);
+        };
+    }
+
+    void close(@Disposes ReservationEngine engine) {
+        if (engine instanceof ShardedReservationEngine sharded) {
+            sharded.close();
+        }
+    }
+}
@@ -13,7 +13,7 @@ public final class DemoCards {
 
     // Card 1: Valid card with high balance for success scenarios
     public static final String VALID_CARD_NUMBER = "4532-1234-5678-9012";
-    public static final String VALID_CARD_EXPIRATION = "1225"; // Dec 2025
+    public static final String VALID_CARD_EXPIRATION = "1230"; // Dec 2030
     public static final String VALID_CARD_PIN = "1234";
     public static final BigDecimal VALID_CARD_BALANCE = new BigDecimal("5000.00");
 
@@ -27,7 +27,7 @@ public final class DemoCards {
 
     // Card 2: Card with low balance for insufficient balance scenarios
     public static final String LOW_BALANCE_CARD_NUMBER = "9876-5432-1098-7654";
-    public static final String LOW_BALANCE_CARD_EXPIRATION = "1225"; // Dec 2025
+    public static final String LOW_BALANCE_CARD_EXPIRATION = "1230"; // Dec 2030
     public static final String LOW_BALANCE_CARD_PIN = "5678";
     public static final BigDecimal LOW_BALANCE_CARD_BALANCE = new BigDecimal("500.00");
 
@@ -55,7 +55,7 @@ public final class DemoCards {
 
     // Card 4: Card for ScopedValues demo
     public static final String SCOPED_CARD_NUMBER = "4111-1111-1111-1111";
-    public static final String SCOPED_CARD_EXPIRATION = "1225"; // Dec 2025
+    public static final String SCOPED_CARD_EXPIRATION = "1230"; // Dec 2030
     public static final String SCOPED_CARD_PIN = "5555";
     public static final BigDecimal SCOPED_CARD_BALANCE = new BigDecimal("2000.00");
 
@@ -69,7 +69,7 @@ public final class DemoCards {
 
     // Card 5: High balance card for balance locking demos
     public static final String LOCKING_CARD_NUMBER = "1234-5678-9012-3456";
-    public static final String LOCKING_CARD_EXPIRATION = "1225"; // Dec 2025
+    public static final String LOCKING_CARD_EXPIRATION = "1230"; // Dec 2030
     public static final String LOCKING_CARD_PIN = "1234";
     public static final BigDecimal LOCKING_CARD_BALANCE = new BigDecimal("5000.00");
 
@@ -1,12 +1,17 @@
 package com.example.model;
 
+import com.example.utils.MoneyUtil;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.math.BigDecimal;
 
 public record Card(
     String cardNumber,
     String expirationDate, // MMYY format
     String pin,
-    BigDecimal balance,
+    @JsonIgnore long balanceCents, // minor units, exposed as "balance" in JSON
     String description
 ) {
     // Compact constructor for validation
@@ -17,4 +22,27 @@ public record Card(
             throw new IllegalArgumentException("Card number cannot be blank");
         }
     }
+
+    @JsonCreator
+    public Card(
+        @JsonProperty("cardNumber") String cardNumber,
+        @JsonProperty("expirationDate") String expirationDate,
+        @JsonProperty("pin") String pin,
+        @JsonProperty("balance") BigDecimal balance,
+        @JsonProperty("description") String description
+    ) {
+        this(cardNumber, expirationDate, pin, MoneyUtil.toCents(balance), description);
+    }
+
+    @JsonProperty("balance")
+    public BigDecimal balance() {
+        return MoneyUtil.toDecimal(balanceCents);
+    }
+
+    /**
+     * Returns a copy of this card with a different balance (copy-on-write).
+     */
+    public Card withBalanceCents(long newBalanceCents) {
+        return new Card(cardNumber, expirationDate, pin, newBalanceCents, description);
+    }
 }
@@ -1,18 +1,54 @@
 package com.example.model;
 
+import com.example.utils.MoneyUtil;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 public record TransactionRequest(
     String cardNumber,
     String expirationDate, // MMYY format (e.g., "1225" for December 2025)
     String pin,
-    BigDecimal amount,
+    @JsonIgnore long amountCents, // minor units, exposed as "amount" in JSON
     String merchant,
-    LocalDateTime timestamp
+    LocalDateTime timestamp,
+    // Identifies this transaction, even among identical purchases (funds are held per transaction id).
+    // Generated for every new request, never read from JSON: a client cannot make two purchases share a hold
+    @JsonIgnore String transactionId
 ) {
+    public TransactionRequest {
+        if (transactionId == null) {
+            transactionId = UUID.randomUUID().toString();
+        }
+    }
+
+    public TransactionRequest(String cardNumber, String expirationDate, String pin, long amountCents, String merchant,
+                              LocalDateTime timestamp) {
+        this(cardNumber, expirationDate, pin, amountCents, merchant, timestamp, null);
+    }
+
+    @JsonCreator
+    public TransactionRequest(
+        @JsonProperty("cardNumber") String cardNumber,
+        @JsonProperty("expirationDate") String expirationDate,
+        @JsonProperty("pin") String pin,
+        @JsonProperty("amount") BigDecimal amount,
+        @JsonProperty("merchant") String merchant,
+        @JsonProperty("timestamp") LocalDateTime timestamp
+    ) {
+        this(cardNumber, expirationDate, pin, MoneyUtil.toCents(amount), merchant, timestamp);
+    }
+
     public TransactionRequest(String cardNumber, String expirationDate, String pin, BigDecimal amount, String merchant) {
         this(cardNumber, expirationDate, pin, amount, merchant, LocalDateTime.now());
     }
 
+    @JsonProperty("amount")
+    public BigDecimal amount() {
+        return MoneyUtil.toDecimal(amountCents);
+    }
 }
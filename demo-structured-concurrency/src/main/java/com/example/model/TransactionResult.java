@@ -1,6 +1,7 @@
 package com.example.model;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 public record TransactionResult(
@@ -9,8 +10,18 @@ public record TransactionResult(
     BigDecimal amount,
     String message,
     LocalDateTime processedAt,
-    long processingTimeMs
+    long processingTimeMs,
+    FailureType failureType // null on success
 ) {
+    /**
+     * Why a transaction did not succeed.
+     */
+    public enum FailureType {
+        DECLINED, // a validation failed
+        TIMEOUT,  // the transaction deadline expired before the validations completed
+        REJECTED  // not processed, or stopped, because the service or one of its backends was at capacity
+    }
+
     public static TransactionResult success(String transactionId, BigDecimal amount, long processingTimeMs) {
         return new TransactionResult(
             true,
@@ -18,7 +29,8 @@ public record TransactionResult(
             amount,
             "Transaction processed successfully",
             LocalDateTime.now(),
-            processingTimeMs
+            processingTimeMs,
+            null
         );
     }
 
@@ -29,7 +41,32 @@ public record TransactionResult(
             null,
             message,
             LocalDateTime.now(),
-            processingTimeMs
+            processingTimeMs,
+            FailureType.DECLINED
+        );
+    }
+
+    public static TransactionResult timeout(Duration deadline, long processingTimeMs) {
+        return new TransactionResult(
+            false,
+            null,
+            null,
+            "Transaction timed out (deadline: " + deadline.toMillis() + "ms)",
+            LocalDateTime.now(),
+            processingTimeMs,
+            FailureType.TIMEOUT
+        );
+    }
+
+    public static TransactionResult rejected(String message, long processingTimeMs) {
+        return new TransactionResult(
+            false,
+            null,
+            null,
+            message,
+            LocalDateTime.now(),
+            processingTimeMs,
+            FailureType.REJECTED
         );
     }
 }
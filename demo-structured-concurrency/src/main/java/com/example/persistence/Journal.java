@@ -0,0 +1,60 @@
+package com.example.persistence;
+
+import java.util.function.Consumer;
+
+/**
+ * Durable record of the state changes of CardRepository and BalanceService.
+ * <p>
+ * Each component appends the changes it makes. On startup the journal is replayed once for all of them
+ * ({@link JournalRecovery}): CardRepository rebuilds the cards and balances, BalanceService releases the funds
+ * still held by transactions the restart interrupted.
+ */
+@FunctionalInterface
+public interface Journal {
+
+    /**
+     * No persistence: nothing is recorded and there is nothing to replay.
+     */
+    Journal NONE = _ -> {};
+
+    /**
+     * Records the change. Returns once it is durable.
+     *
+     * @throws java.io.UncheckedIOException if the change could not be written
+     */
+    void append(JournalEntry entry);
+
+    /**
+     * Records the change after every change queued before it, without waiting for it to be durable.
+     * A caller that must journal its changes in the order it applies them queues them under its own lock,
+     * then waits outside of it, so concurrent changes still share a group commit.
+     * Once a change fails, every change queued after it fails too: what is durable is always a prefix of
+     * what was queued.
+     *
+     * @return the wait for the change to be durable
+     */
+    default Durable enqueue(JournalEntry entry) {
+        append(entry);
+        return () -> {};
+    }
+
+    /**
+     * Passes every recorded change, in order, to the consumer.
+     */
+    default void replay(Consumer<JournalEntry> consumer) {
+    }
+
+    /**
+     * A queued change, see {@link #enqueue(JournalEntry)}.
+     */
+    @FunctionalInterface
+    interface Durable {
+
+        /**
+         * Returns once the change is durable.
+         *
+         * @throws java.io.UncheckedIOException if the change could not be written
+         */
+        void await();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.persistence;
+
+import com.example.model.Card;
+import com.example.persistence.JournalEntry.BalanceSet;
+import com.example.persistence.JournalEntry.CardDebited;
+import com.example.persistence.JournalEntry.CardDeleted;
+import com.example.persistence.JournalEntry.CardSaved;
+import com.example.persistence.JournalEntry.Held;
+import com.example.persistence.JournalEntry.Released;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of a {@link JournalEntry}: one type byte followed by the fields.
+ * Strings are a short byte length (-1 for null) followed by UTF-8 bytes, amounts are longs (cents).
+ * Card PINs are left out: a 4-digit PIN is guessed from any digest of it, so the journal holds none.
+ */
+final class JournalCodec {
+    private JournalCodec() {} // Utility class
+
+    private static final byte CARD_SAVED = 1;
+    private static final byte CARD_DELETED = 2;
+    private static final byte CARD_DEBITED = 3;
+    private static final byte BALANCE_SET = 4;
+    private static final byte HELD = 5;
+    private static final byte RELEASED = 6;
+
+    static byte[] encode(JournalEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            switch (entry) {
+                case CardSaved(Card card) -> {
+                    out.writeByte(CARD_SAVED);
+                    writeCard(out, card);
+                }
+                case CardDeleted(String cardNumber) -> {
+                    out.writeByte(CARD_DELETED);
+                    writeString(out, cardNumber);
+                }
+                case CardDebited(String cardNumber, long amountCents) -> {
+                    out.writeByte(CARD_DEBITED);
+                    writeString(out, cardNumber);
+                    out.writeLong(amountCents);
+                }
+                case BalanceSet(String cardNumber, long balanceCents) -> {
+                    out.writeByte(BALANCE_SET);
+                    writeString(out, cardNumber);
+                    out.writeLong(balanceCents);
+                }
+                case Held(String cardNumber, long amountCents, String transactionId) -> {
+                    out.writeByte(HELD);
+                    writeHold(out, cardNumber, amountCents, transactionId);
+                }
+                case Released(String cardNumber, long amountCents, String transactionId) -> {
+                    out.writeByte(RELEASED);
+                    writeHold(out, cardNumber, amountCents, transactionId);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never happens in memory
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the entry at the buffer position, leaving the position after it.
+     *
+     * @throws IllegalArgumentException if the type is unknown
+     */
+    static JournalEntry decode(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case CARD_SAVED -> new CardSaved(readCard(in));
+            case CARD_DELETED -> new CardDeleted(readString(in));
+            case CARD_DEBITED -> new CardDebited(readString(in), in.getLong());
+            case BALANCE_SET -> new BalanceSet(readString(in), in.getLong());
+            case HELD -> new Held(readString(in), in.getLong(), readString(in));
+            case RELEASED -> new Released(readString(in), in.getLong(), readString(in));
+            default -> throw new IllegalArgumentException("Unknown journal entry type: " + type);
+        };
+    }
+
+    private static void writeCard(DataOutputStream out, Card card) throws IOException {
+        writeString(out, card.cardNumber());
+        writeString(out, card.expirationDate());
+        writeString(out, null); // PIN, never journaled
+        out.writeLong(card.balanceCents());
+        writeString(out, card.description());
+    }
+
+    private static Card readCard(ByteBuffer in) {
+        return new Card(readString(in), readString(in), readString(in), in.getLong(), readString(in));
+    }
+
+    private static void writeHold(DataOutputStream out, String cardNumber, long amountCents, String transactionId)
+            throws IOException {
+        writeString(out, cardNumber);
+        out.writeLong(amountCents);
+        writeString(out, transactionId);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long for the journal (" + utf8.length + " bytes)");
+        }
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
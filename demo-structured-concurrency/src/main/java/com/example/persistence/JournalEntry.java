@@ -0,0 +1,36 @@
+package com.example.persistence;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+
+/**
+ * A state change of the card store or of the funds held by in-flight transactions, as recorded in the {@link Journal}.
+ * Amounts are in cents. Holds only record what identifies them, and cards are recorded without their PIN:
+ * a card recovered from the journal has none until it is saved with one again.
+ */
+public sealed interface JournalEntry {
+
+    // CardRepository: cards and balances
+
+    record CardSaved(Card card) implements JournalEntry {}
+
+    record CardDeleted(String cardNumber) implements JournalEntry {}
+
+    record CardDebited(String cardNumber, long amountCents) implements JournalEntry {}
+
+    record BalanceSet(String cardNumber, long balanceCents) implements JournalEntry {}
+
+    // BalanceService: funds held by in-flight transactions
+
+    record Held(String cardNumber, long amountCents, String transactionId) implements JournalEntry {
+        public Held(TransactionRequest request) {
+            this(request.cardNumber(), request.amountCents(), request.transactionId());
+        }
+    }
+
+    record Released(String cardNumber, long amountCents, String transactionId) implements JournalEntry {
+        public Released(TransactionRequest request) {
+            this(request.cardNumber(), request.amountCents(), request.transactionId());
+        }
+    }
+}
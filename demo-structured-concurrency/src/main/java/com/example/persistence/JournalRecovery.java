@@ -0,0 +1,17 @@
+package com.example.persistence;
+
+import java.util.List;
+
+/**
+ * Rebuilds the journaled components: the journal is replayed once, each entry passed to every component in turn,
+ * then each component is told recovery is over (in the order given).
+ */
+public final class JournalRecovery {
+    private JournalRecovery() {} // Utility class
+
+    public static void recover(Journal journal, Recoverable... components) {
+        List<Recoverable> recoverables = List.of(components);
+        journal.replay(entry -> recoverables.forEach(component -> component.recover(entry)));
+        recoverables.forEach(Recoverable::recovered);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.persistence;
+
+/**
+ * A component whose state is rebuilt from the {@link Journal} on startup, see {@link JournalRecovery}.
+ */
+public interface Recoverable {
+
+    /**
+     * Re-applies a recorded change, in journal order.
+     */
+    void recover(JournalEntry entry);
+
+    /**
+     * Called once every recorded change was passed to {@link #recover}.
+     */
+    default void recovered() {
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.persistence;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot of the journaled state, written and read through memory-mapped windows of the file.
+ * <p>
+ * Layout: magic (int), version (int), entry count (long), then per entry its length (int) and
+ * {@link JournalCodec} payload, then the CRC32C of all payloads (int).
+ * Each window is mapped in its own Arena and unmapped as soon as it is done, so a large snapshot never
+ * stays mapped as a whole. A snapshot is written to a temporary file and renamed once it is durable.
+ */
+public final class SnapshotFile {
+    private SnapshotFile() {} // Utility class
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+    private static final boolean WINDOWS = System.getProperty("os.name").startsWith("Windows");
+
+    /**
+     * Writes the entries as the snapshot file, replacing it atomically.
+     */
+    public static void write(Path file, Iterable<? extends JournalEntry> entries) throws IOException {
+        try (Writer writer = new Writer(file)) {
+            for (JournalEntry entry : entries) {
+                writer.append(entry);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Writes a snapshot one entry at a time, so the entries never have to be in memory together.
+     * The file is only replaced by {@link #commit()}; closing the writer before discards what was written.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final CRC32C crc = new CRC32C();
+        private Window out;
+        private long count;
+        private boolean committed;
+
+        public Writer(Path file) throws IOException {
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                this.out = new Window(channel, MapMode.READ_WRITE, 0, WINDOW_BYTES);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            out.buffer.putInt(MAGIC).putInt(VERSION).putLong(0); // count is filled in at the end
+        }
+
+        public void append(JournalEntry entry) throws IOException {
+            byte[] payload = JournalCodec.encode(entry);
+            out = out.ensure(Integer.BYTES + payload.length, WINDOW_BYTES);
+            out.buffer.putInt(payload.length).put(payload);
+            crc.update(payload);
+            count++;
+        }
+
+        /**
+         * Makes the snapshot durable and replaces the file with it.
+         */
+        public void commit() throws IOException {
+            out = out.ensure(Integer.BYTES, WINDOW_BYTES);
+            out.buffer.putInt((int) crc.getValue());
+            long size = out.position();
+            out.close();
+
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(count).flip(), Integer.BYTES * 2);
+            channel.truncate(size);
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            // The rename is only durable once the directory is
+            syncDirectory(file.toAbsolutePath().getParent());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (committed) {
+                return;
+            }
+            out.close();
+            channel.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Makes the files created, renamed or deleted in the directory durable (fsync of the directory).
+     * A no-op on Windows, which cannot open a directory and does not need it.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Passes every entry of the snapshot, in order, to the consumer.
+     *
+     * @throws IOException if the file is not a snapshot or its checksum does not match
+     */
+    public static void read(Path file, Consumer<JournalEntry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Window in = new Window(channel, MapMode.READ_ONLY, 0, Math.min(WINDOW_BYTES, size));
+            try {
+                in = in.ensure(HEADER_BYTES, size);
+                if (in.buffer.getInt() != MAGIC || in.buffer.getInt() != VERSION) {
+                    throw new IOException("Not a snapshot: " + file);
+                }
+                long count = in.buffer.getLong();
+
+                CRC32C crc = new CRC32C();
+                for (long i = 0; i < count; i++) {
+                    in = in.ensure(Integer.BYTES, size);
+                    int length = in.buffer.getInt();
+                    in = in.ensure(length, size);
+                    ByteBuffer payload = in.buffer.slice(in.buffer.position(), length);
+                    crc.update(payload.duplicate());
+                    consumer.accept(JournalCodec.decode(payload));
+                    in.buffer.position(in.buffer.position() + length);
+                }
+                in = in.ensure(Integer.BYTES, size);
+                if (in.buffer.getInt() != (int) crc.getValue()) {
+                    throw new IOException("Corrupt snapshot (checksum mismatch): " + file);
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * A mapped region of the file, unmapped when closed.
+     */
+    private static final class Window implements AutoCloseable {
+        private final FileChannel channel;
+        private final MapMode mode;
+        private final long base;
+        private final Arena arena;
+        private final MemorySegment segment;
+        final ByteBuffer buffer;
+
+        Window(FileChannel channel, MapMode mode, long base, long size) throws IOException {
+            this.channel = channel;
+            this.mode = mode;
+            this.base = base;
+            this.arena = Arena.ofConfined();
+            this.segment = channel.map(mode, base, size, arena);
+            this.buffer = segment.asByteBuffer();
+        }
+
+        long position() {
+            return base + buffer.position();
+        }
+
+        /**
+         * Returns a window with at least n bytes left: this one, or a new one starting at the current position.
+         * When reading, the new window stops at the end of the file (limit).
+         */
+        Window ensure(int n, long limit) throws IOException {
+            if (buffer.remaining() >= n) {
+                return this;
+            }
+            long position = position();
+            long size = mode == MapMode.READ_ONLY ? Math.min(limit, position + WINDOW_BYTES) - position : Math.max(limit, n);
+            if (size < n) {
+                throw new IOException("Truncated snapshot");
+            }
+            close();
+            return new Window(channel, mode, position, size);
+        }
+
+        @Override
+        public void close() {
+            if (!arena.scope().isAlive()) {
+                return;
+            }
+            if (mode == MapMode.READ_WRITE) {
+                segment.force();
+            }
+            arena.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.persistence;
+
+import com.example.model.Card;
+import com.example.persistence.JournalEntry.BalanceSet;
+import com.example.persistence.JournalEntry.CardDebited;
+import com.example.persistence.JournalEntry.CardDeleted;
+import com.example.persistence.JournalEntry.CardSaved;
+import com.example.persistence.JournalEntry.Held;
+import com.example.persistence.JournalEntry.Released;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Changes folded from journal entries, written over the previous snapshot as the shortest journal that rebuilds
+ * the state: one save per card, one hold per held transaction.
+ * Mirrors how CardRepository and BalanceService recover, without their locks and engines.
+ * <p>
+ * Only the changes are kept on heap (one delta per card they touch, the holds still open). The previous
+ * snapshot is streamed through {@link #rebase}, each of its cards written as soon as it is read, so a
+ * checkpoint of a large card base does not hold the whole base in memory.
+ */
+final class SnapshotState {
+
+    /**
+     * What the changes did to one card, relative to its card in the previous snapshot.
+     */
+    private static final class CardDelta {
+        // Saved or deleted: the card of the previous snapshot no longer matters
+        private boolean replaced;
+        // When replaced: the card, null if deleted
+        private Card card;
+        // Otherwise: the balance set (then debits are subtracted from it), or the total debited
+        private boolean balanceSet;
+        private long balanceCents;
+        private long debitedCents;
+
+        void apply(JournalEntry entry) {
+            switch (entry) {
+                case CardSaved(Card saved) -> {
+                    replaced = true;
+                    card = saved;
+                }
+                case CardDeleted _ -> {
+                    replaced = true;
+                    card = null;
+                }
+                case CardDebited(String _, long amountCents) -> {
+                    if (replaced) {
+                        card = card == null ? null : card.withBalanceCents(card.balanceCents() - amountCents);
+                    } else if (balanceSet) {
+                        balanceCents -= amountCents;
+                    } else {
+                        debitedCents += amountCents;
+                    }
+                }
+                case BalanceSet(String _, long newBalanceCents) -> {
+                    if (replaced) {
+                        card = card == null ? null : card.withBalanceCents(newBalanceCents);
+                    } else {
+                        balanceSet = true;
+                        balanceCents = newBalanceCents;
+                    }
+                }
+                default -> throw new IllegalArgumentException("Not a card change: " + entry);
+            }
+        }
+
+        /**
+         * @param base The card in the previous snapshot, or null
+         * @return the card after the changes, or null if there is none
+         */
+        Card applyTo(Card base) {
+            if (replaced) {
+                return card;
+            }
+            // Changes of a card that is not stored change nothing, as on recovery
+            if (base == null) {
+                return null;
+            }
+            return base.withBalanceCents(balanceSet ? balanceCents : base.balanceCents() - debitedCents);
+        }
+    }
+
+    private final Map<String, CardDelta> cards = new LinkedHashMap<>();
+    // Holds opened by the changes and still open, by transaction id
+    private final Map<String, Held> holds = new LinkedHashMap<>();
+    // Holds of the previous snapshot released by the changes
+    private final Set<String> releasedFromSnapshot = new HashSet<>();
+
+    /**
+     * Folds a change made after the previous snapshot, in journal order.
+     */
+    void apply(JournalEntry entry) {
+        switch (entry) {
+            case CardSaved(Card card) -> delta(card.cardNumber()).apply(entry);
+            case CardDeleted(String cardNumber) -> delta(cardNumber).apply(entry);
+            case CardDebited(String cardNumber, long _) -> delta(cardNumber).apply(entry);
+            case BalanceSet(String cardNumber, long _) -> delta(cardNumber).apply(entry);
+            case Held held -> holds.put(held.transactionId(), held);
+            case Released released -> {
+                if (holds.remove(released.transactionId()) == null) {
+                    releasedFromSnapshot.add(released.transactionId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes an entry of the previous snapshot with the changes applied. Call it for every entry, in order,
+     * once every change is folded.
+     */
+    void rebase(JournalEntry entry, Consumer<JournalEntry> out) {
+        switch (entry) {
+            case CardSaved(Card card) -> {
+                CardDelta delta = cards.remove(card.cardNumber());
+                Card current = delta == null ? card : delta.applyTo(card);
+                if (current != null) {
+                    out.accept(new CardSaved(current));
+                }
+            }
+            case Held held -> {
+                if (!releasedFromSnapshot.remove(held.transactionId())) {
+                    out.accept(held);
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a snapshot entry: " + entry);
+        }
+    }
+
+    /**
+     * Writes what is not in the previous snapshot: the cards saved by the changes, and the holds still open.
+     */
+    void finish(Consumer<JournalEntry> out) {
+        for (CardDelta delta : cards.values()) {
+            Card card = delta.applyTo(null);
+            if (card != null) {
+                out.accept(new CardSaved(card));
+            }
+        }
+        holds.values().forEach(out);
+    }
+
+    private CardDelta delta(String cardNumber) {
+        return cards.computeIfAbsent(cardNumber, _ -> new CardDelta());
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.persistence;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal with group commit and snapshots, kept in a directory of segment files.
+ * <p>
+ * Each record is framed as: payload length (int), CRC32C of the payload (int), payload ({@link JournalCodec}).
+ * On open, a torn or corrupt tail of the last segment (crash in the middle of a write) is cut off.
+ * Earlier segments were sealed whole, so a bad record in one of them fails replay and checkpoints instead.
+ * <p>
+ * Group commit: appending threads queue their record and wait. A single flusher thread writes every
+ * record queued so far in one gathering write and makes them durable with one fsync, so concurrent
+ * transactions share the fsync instead of paying one each.
+ * A failed write fails the journal: every record queued after it fails too, and so do later appends.
+ * After a failed fsync nothing says what reached the disk, and a record made durable after a lost one
+ * would replay on a state that never existed.
+ * <p>
+ * Snapshots: a segment is sealed when it reaches the segment size or when a checkpoint runs. A checkpoint
+ * folds the previous snapshot and the sealed segments into a new {@link SnapshotFile} and deletes them.
+ * It only reads files nobody writes anymore, so transactions keep appending to the active segment meanwhile.
+ * Recovery reads the latest snapshot, then the segments written after it. A checkpoint deletes those files,
+ * so recovery replays before the first checkpoint: periodic checkpoints only start with
+ * {@link #startCheckpoints}, once recovery is over.
+ * <p>
+ * Files: wal-N.log segments and snapshot-N.snap, the state of every segment before N.
+ * <p>
+ * Once bound to a registry ({@link #bindTo}), the records per fsync are published as payment.wal.group.size.
+ */
+public class WriteAheadLog implements Journal, MeterBinder, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WriteAheadLog.class);
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    // Records written per fsync at most
+    private static final int MAX_GROUP = 1024;
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.snap");
+
+    private final Path directory;
+    private final long segmentBytes;
+
+    // What replay reads: the snapshot and segments found on open, and the valid size of the last segment
+    private final long recoveredSnapshot;
+    private final long recoveredActiveBytes;
+    private final List<Long> recoveredSegments;
+
+    // Active segment, guarded by segmentLock (written by the flusher, sealed by the flusher or a checkpoint)
+    private final Lock segmentLock = new ReentrantLock();
+    private long activeSegment;
+    private FileChannel channel;
+
+    // Latest snapshot, guarded by checkpointLock (0: none)
+    private final Object checkpointLock = new Object();
+    private long snapshot;
+    // Cleared by the first checkpoint, which deletes what replay reads
+    private volatile boolean replayable = true;
+
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    // Set by close under the write lock, so no record is queued after SHUTDOWN (appends share the read lock)
+    private final ReadWriteLock openLock = new ReentrantReadWriteLock();
+    private boolean closed;
+    // Set by the first failed group commit, fails every later record
+    private volatile IOException failure;
+    private final Fsync fsync;
+    // Records per group commit, null until bound to a registry
+    private volatile DistributionSummary groupSize;
+    // Periodic checkpoints, once started (guarded by checkpointLock)
+    private volatile ScheduledExecutorService snapshotter;
+
+    private record PendingRecord(ByteBuffer frame, CompletableFuture<Void> durable) {}
+
+    /**
+     * Makes what was written to the active segment durable (replaced in tests, to fail it).
+     */
+    @FunctionalInterface
+    interface Fsync {
+        void force(FileChannel channel) throws IOException;
+    }
+
+    // Stops the flusher once everything queued before it is durable
+    private static final PendingRecord SHUTDOWN = new PendingRecord(null, null);
+
+    /**
+     * Opens the journal with the default segment size.
+     */
+    public WriteAheadLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public WriteAheadLog(Path directory, long segmentBytes) throws IOException {
+        this(directory, segmentBytes, channel -> channel.force(false));
+    }
+
+    WriteAheadLog(Path directory, long segmentBytes, Fsync fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+
+        List<Long> snapshots = list(SNAPSHOT);
+        this.snapshot = snapshots.isEmpty() ? 0 : snapshots.getLast();
+        this.recoveredSnapshot = snapshot;
+        for (long older : snapshots.subList(0, Math.max(snapshots.size() - 1, 0))) {
+            // Replaced by the latest one, left over by a checkpoint interrupted before its cleanup
+            Files.delete(snapshotPath(older));
+        }
+        List<Long> segments = new ArrayList<>();
+        for (long segment : list(SEGMENT)) {
+            if (segment < snapshot) {
+                // Already in the snapshot, left over by a checkpoint interrupted before its cleanup
+                Files.delete(segmentPath(segment));
+            } else {
+                segments.add(segment);
+            }
+        }
+        this.recoveredSegments = List.copyOf(segments);
+        this.activeSegment = segments.isEmpty() ? Math.max(snapshot, 1) : segments.getLast();
+
+        this.channel = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recoveredActiveBytes = scan(segmentPath(activeSegment), channel.size(), true, _ -> {});
+        if (recoveredActiveBytes < channel.size()) {
+            logger.warn("Write-ahead log {}: dropping {} bytes of torn or corrupt tail", directory, channel.size() - recoveredActiveBytes);
+            channel.truncate(recoveredActiveBytes);
+        }
+        channel.position(recoveredActiveBytes);
+        SnapshotFile.syncDirectory(directory);
+
+        this.flusher = Thread.ofPlatform().daemon().name("wal-flusher").start(this::flushLoop);
+        logger.info("Write-ahead log {} opened (snapshot {}, {} segments)", directory, snapshot, segments.size());
+    }
+
+    /**
+     * Writes a snapshot as the initial state of an empty journal directory (bulk load of a card base).
+     *
+     * @throws IllegalStateException if the directory already holds a journal
+     */
+    public static void writeInitialSnapshot(Path directory, Iterable<? extends JournalEntry> entries) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            if (files.anyMatch(file -> SEGMENT.matcher(file.getFileName().toString()).matches()
+                    || SNAPSHOT.matcher(file.getFileName().toString()).matches())) {
+                throw new IllegalStateException("Journal directory is not empty: " + directory);
+            }
+        }
+        SnapshotFile.write(directory.resolve(snapshotName(1)), entries);
+    }
+
+    @Override
+    public void append(JournalEntry entry) {
+        enqueue(entry).await();
+    }
+
+    /**
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException if an earlier write failed
+     */
+    @Override
+    public Durable enqueue(JournalEntry entry) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        PendingRecord record = new PendingRecord(frame(JournalCodec.encode(entry)), durable);
+        openLock.readLock().lock();
+        try {
+            if (closed) {
+                // Nobody would ever write it
+                throw new IllegalStateException("Write-ahead log " + directory + " is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log " + directory + " failed", failure);
+            }
+            queue.add(record);
+        } finally {
+            openLock.readLock().unlock();
+        }
+        return () -> {
+            try {
+                durable.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw new UncheckedIOException("Write-ahead log append failed", io);
+                }
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Replays the snapshot and the records that were in the journal when it was opened.
+     *
+     * @throws IllegalStateException if a checkpoint already ran: the files replay reads are gone
+     */
+    @Override
+    public void replay(Consumer<JournalEntry> consumer) {
+        if (!replayable) {
+            throw new IllegalStateException("Write-ahead log " + directory + ": replay after a checkpoint");
+        }
+        try {
+            if (recoveredSnapshot > 0) {
+                SnapshotFile.read(snapshotPath(recoveredSnapshot), consumer);
+            }
+            for (long segment : recoveredSegments) {
+                Path file = segmentPath(segment);
+                boolean active = segment == recoveredSegments.getLast();
+                scan(file, active ? recoveredActiveBytes : Files.size(file), false, consumer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write-ahead log replay failed: " + directory, e);
+        }
+    }
+
+    /**
+     * Publishes the metrics of this journal in the registry.
+     *
+     * @throws IllegalStateException if the registry already has a write-ahead log: its summary would
+     * silently record both
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (registry.find("payment.wal.group.size").summary() != null) {
+            throw new IllegalStateException("Write-ahead log already registered: " + directory);
+        }
+        groupSize = DistributionSummary.builder("payment.wal.group.size").register(registry);
+    }
+
+    /**
+     * Runs a checkpoint every interval, from now on. Call it once every consumer has replayed the journal.
+     */
+    public void startCheckpoints(Duration interval) {
+        synchronized (checkpointLock) {
+            if (snapshotter != null) {
+                throw new IllegalStateException("Write-ahead log " + directory + ": checkpoints already started");
+            }
+            snapshotter = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("wal-snapshotter").factory());
+            snapshotter.scheduleWithFixedDelay(this::scheduledCheckpoint,
+                    interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Seals the active segment and folds the sealed segments into a new snapshot.
+     * Appends go on meanwhile: only the sealing briefly waits for the group being written.
+     * The journal can no longer be replayed afterwards.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            replayable = false;
+            long sealedBelow;
+            segmentLock.lock();
+            try {
+                if (channel.size() > 0) {
+                    rotate();
+                }
+                sealedBelow = activeSegment;
+            } finally {
+                segmentLock.unlock();
+            }
+            if (sealedBelow <= Math.max(snapshot, 1)) {
+                return; // nothing new since the last snapshot
+            }
+
+            long startTime = System.currentTimeMillis();
+            // The changes since the last snapshot are folded first, then the snapshot is streamed through them
+            SnapshotState state = new SnapshotState();
+            for (long segment = Math.max(snapshot, 1); segment < sealedBelow; segment++) {
+                Path file = segmentPath(segment);
+                if (Files.exists(file)) {
+                    scan(file, Files.size(file), false, state::apply);
+                }
+            }
+            try (SnapshotFile.Writer out = new SnapshotFile.Writer(snapshotPath(sealedBelow))) {
+                Consumer<JournalEntry> append = entry -> {
+                    try {
+                        out.append(entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                if (snapshot > 0) {
+                    SnapshotFile.read(snapshotPath(snapshot), entry -> state.rebase(entry, append));
+                }
+                state.finish(append);
+                out.commit();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            // The new snapshot is durable: what it replaces can go
+            if (snapshot > 0) {
+                Files.deleteIfExists(snapshotPath(snapshot));
+            }
+            for (long segment = Math.max(snapshot, 1); segment < sealedBelow; segment++) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+            snapshot = sealedBelow;
+            logger.info("Write-ahead log {}: snapshot {} written in {}ms", directory, snapshot, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void scheduledCheckpoint() {
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Write-ahead log {}: checkpoint failed", directory, e);
+        }
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+    }
+
+    /**
+     * Reads the valid records in the first limit bytes of the segment.
+     *
+     * @param tornTail Whether the segment may end with a torn or corrupt record (the active segment on open):
+     * the valid prefix ends there. Otherwise the segment was sealed whole and a bad record is corruption.
+     * @return the size of the valid prefix
+     * @throws IOException if a bad record is found and tornTail is false
+     */
+    private static long scan(Path file, long limit, boolean tornTail, Consumer<JournalEntry> consumer) throws IOException {
+        long valid = 0;
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            CRC32C crc = new CRC32C();
+            while (valid + HEADER_BYTES <= limit) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || valid + HEADER_BYTES + length > limit) {
+                    return badRecord(file, valid, tornTail, "bad length " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return badRecord(file, valid, tornTail, "checksum mismatch");
+                }
+                consumer.accept(JournalCodec.decode(ByteBuffer.wrap(payload)));
+                valid += HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            return badRecord(file, valid, tornTail, "end of file");
+        }
+        if (valid < limit) {
+            // Fewer bytes left than a header
+            return badRecord(file, valid, tornTail, "truncated header");
+        }
+        return valid;
+    }
+
+    /**
+     * @return the size of the valid prefix, when the segment may end with a torn record
+     */
+    private static long badRecord(Path file, long offset, boolean tornTail, String reason) throws IOException {
+        if (tornTail) {
+            return offset;
+        }
+        throw new IOException("Corrupt write-ahead log segment " + file + " at offset " + offset + ": " + reason);
+    }
+
+    private void flushLoop() {
+        List<PendingRecord> group = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(group, MAX_GROUP - 1);
+            running = !group.remove(SHUTDOWN);
+            if (!group.isEmpty()) {
+                commit(group);
+            }
+            group.clear();
+        }
+    }
+
+    private void commit(List<PendingRecord> group) {
+        if (failure != null) {
+            // Queued before the journal failed: never written
+            group.forEach(record -> record.durable().completeExceptionally(failure));
+            return;
+        }
+        ByteBuffer[] frames = group.stream().map(PendingRecord::frame).toArray(ByteBuffer[]::new);
+        segmentLock.lock();
+        long start = -1;
+        try {
+            start = channel.position();
+            ByteBuffer last = frames[frames.length - 1];
+            while (last.hasRemaining()) {
+                channel.write(frames);
+            }
+            fsync.force(channel);
+            DistributionSummary summary = groupSize;
+            if (summary != null) {
+                summary.record(group.size());
+            }
+            group.forEach(record -> record.durable().complete(null));
+
+            if (channel.size() >= segmentBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            logger.error("Write-ahead log {}: commit of {} records failed, later appends fail too", directory, group.size(), e);
+            failure = e;
+            group.forEach(record -> record.durable().completeExceptionally(e));
+            discardPartialWrite(start);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    /**
+     * Seals the active segment and starts the next one. Caller holds segmentLock.
+     */
+    private void rotate() throws IOException {
+        FileChannel next = FileChannel.open(segmentPath(activeSegment + 1),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Records fsynced into the new segment are only durable once its directory entry is
+        SnapshotFile.syncDirectory(directory);
+        channel.close();
+        channel = next;
+        activeSegment++;
+    }
+
+    /**
+     * Cuts off whatever part of a failed group reached the file, so the next group starts on a record boundary.
+     */
+    private void discardPartialWrite(long start) {
+        if (start < 0) {
+            return;
+        }
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            logger.error("Write-ahead log {}: could not discard partial write", directory, e);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve("wal-%016d.log".formatted(segment));
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(snapshotName(segment));
+    }
+
+    private static String snapshotName(long segment) {
+        return "snapshot-%016d.snap".formatted(segment);
+    }
+
+    private List<Long> list(Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Makes every record appended so far durable, then closes the journal. Later appends fail.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService snapshotter = this.snapshotter;
+        if (snapshotter != null) {
+            // Let a running checkpoint finish
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        openLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(SHUTDOWN);
+        } finally {
+            openLock.writeLock().unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segmentLock.lock();
+        try {
+            channel.close();
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+}
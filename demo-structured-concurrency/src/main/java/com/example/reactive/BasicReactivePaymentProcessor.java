@@ -12,11 +12,12 @@ import com.example.services.MerchantValidationService;
 import com.example.services.PinValidationService;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -29,19 +30,32 @@ public class BasicReactivePaymentProcessor implements ReactivePaymentProcessor {
     private final ExpirationService expirationService;
     private final PinValidationService pinValidationService;
     private final MerchantValidationService merchantValidationService;
+    private final Executor executor;
 
-    @Inject
     public BasicReactivePaymentProcessor(
             BalanceService balanceService,
             CardValidationService cardValidationService,
             ExpirationService expirationService,
             PinValidationService pinValidationService,
             MerchantValidationService merchantValidationService) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, VIRTUAL_THREAD_PER_TASK);
+    }
+
+    @Inject
+    public BasicReactivePaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            @Named("reactive-executor") Executor executor) {
         this.balanceService = balanceService;
         this.cardValidationService = cardValidationService;
         this.expirationService = expirationService;
         this.pinValidationService = pinValidationService;
         this.merchantValidationService = merchantValidationService;
+        this.executor = executor;
     }
 
     @Override
@@ -52,39 +66,34 @@ public class BasicReactivePaymentProcessor implements ReactivePaymentProcessor {
 
         // PATH A: Merchant validation (runs independently)
         CompletableFuture<ValidationResult> merchantValidation =
-            CompletableFuture.supplyAsync(() -> merchantValidationService.validate(request));
+            CompletableFuture.supplyAsync(() -> merchantValidationService.validate(request), executor);
 
         // PATH B: Consumer validation (card → nested parallel validations)
+        // Composed rather than joined, so no executor thread blocks waiting for tasks queued on the same executor
         CompletableFuture<CardValidationResult> consumerValidation =
-            CompletableFuture.supplyAsync(() -> {
+            CompletableFuture.supplyAsync(() -> cardValidationService.validate(request), executor)
                 // B1: Validate card first (sequential within consumer path)
-                CardValidationResult cardResult = cardValidationService.validate(request);
-
-                // Pattern match on the result
-                return switch (cardResult) {
+                .thenCompose(cardResult -> switch (cardResult) {
                     case CardValidationResult.Success(Card card) -> {
                         // B2: Nested parallel validations (with Card passed to each)
                         List<CompletableFuture<ValidationResult>> validationFutures = List.of(
-                            CompletableFuture.supplyAsync(() -> expirationService.validate(request, card)),
-                            CompletableFuture.supplyAsync(() -> pinValidationService.validate(request, card)),
-                            CompletableFuture.supplyAsync(() -> balanceService.validate(request, card))
+                            CompletableFuture.supplyAsync(() -> expirationService.validate(request, card), executor),
+                            CompletableFuture.supplyAsync(() -> pinValidationService.validate(request, card), executor),
+                            CompletableFuture.supplyAsync(() -> balanceService.validate(request, card), executor)
                         );
 
-                        // Wait for all nested validations
-                        CompletableFuture.allOf(validationFutures.toArray(new CompletableFuture[0])).join();
-
-                        // Check nested validation results
-                        yield validationFutures.stream()
-                            .map(CompletableFuture::join)
-                            .filter(ValidationResult.Failure.class::isInstance)
-                            .map(ValidationResult.Failure.class::cast)
-                            .findFirst()
-                            .map(r -> CardValidationResult.failure(r.message()))
-                            .orElse(CardValidationResult.success(card));
+                        // Wait for all nested validations, then check their results
+                        yield CompletableFuture.allOf(validationFutures.toArray(new CompletableFuture[0]))
+                            .thenApply(_ -> validationFutures.stream()
+                                .map(CompletableFuture::join)
+                                .filter(ValidationResult.Failure.class::isInstance)
+                                .map(ValidationResult.Failure.class::cast)
+                                .findFirst()
+                                .map(r -> CardValidationResult.failure(r.message()))
+                                .orElse(CardValidationResult.success(card)));
                     }
-                    case CardValidationResult.Failure failure -> failure;
-                };
-            });
+                    case CardValidationResult.Failure failure -> CompletableFuture.completedFuture(failure);
+                });
 
         // Wait for BOTH parallel paths (merchant + complete consumer flow)
         return CompletableFuture.allOf(merchantValidation, consumerValidation)
@@ -108,13 +117,12 @@ public class BasicReactivePaymentProcessor implements ReactivePaymentProcessor {
                     return CompletableFuture.completedFuture(TransactionResult.failure(msg, processingTime));
                 }
 
-                // Both validations passed - extract card and transfer
-                Card card = ((CardValidationResult.Success) cardResult).card();
+                // Both validations passed - transfer
                 return CompletableFuture
-                        .runAsync(() -> balanceService.transfer(request, card))
+                        .runAsync(() -> balanceService.transfer(request), executor)
                         .thenApply(_ -> {
                             long processingTime = System.currentTimeMillis() - startTime;
-                            String transactionId = UUID.randomUUID().toString();
+                            String transactionId = request.transactionId();
                             logger.info("✅ REACTIVE transaction completed: {} (in {}ms)",
                                     transactionId, processingTime);
                             return TransactionResult.success(transactionId, request.amount(), processingTime);
@@ -13,11 +13,11 @@ import com.example.services.MerchantValidationService;
 import com.example.services.PinValidationService;
 import com.example.services.ValidationException;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -39,19 +39,32 @@ public class FixedReactiveFailFastPaymentProcessor implements ReactivePaymentPro
     private final ExpirationService expirationService;
     private final PinValidationService pinValidationService;
     private final MerchantValidationService merchantValidationService;
+    private final Executor executor;
 
-    @Inject
     public FixedReactiveFailFastPaymentProcessor(
             BalanceService balanceService,
             CardValidationService cardValidationService,
             ExpirationService expirationService,
             PinValidationService pinValidationService,
             MerchantValidationService merchantValidationService) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, VIRTUAL_THREAD_PER_TASK);
+    }
+
+    @Inject
+    public FixedReactiveFailFastPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            @Named("reactive-executor") Executor executor) {
         this.balanceService = balanceService;
         this.cardValidationService = cardValidationService;
         this.expirationService = expirationService;
         this.pinValidationService = pinValidationService;
         this.merchantValidationService = merchantValidationService;
+        this.executor = executor;
     }
 
     @Override
@@ -63,21 +76,23 @@ public class FixedReactiveFailFastPaymentProcessor implements ReactivePaymentPro
             .supplyAsync(() -> switch (merchantValidationService.validate(request)) {
                 case ValidationResult.Success s -> s;
                 case ValidationResult.Failure(String m) -> throw new ValidationException(m);
-            });
+            }, executor);
 
         // PATH B: Consumer validation (card → nested parallel validations with fail-fast)
+        // Composed rather than joined, so no executor thread blocks waiting for tasks queued on the same executor
         CompletableFuture<Card> consumerValidation = CompletableFuture
             .supplyAsync(() -> {
                 // B1: Validate card first
                 CardValidationResult cardResult = cardValidationService.validate(request);
 
                 // Pattern match - throw exception on failure
-                Card card = switch (cardResult) {
+                return switch (cardResult) {
                     case CardValidationResult.Success(Card c) -> c;
                     case CardValidationResult.Failure(String msg) ->
                         throw new ValidationException(msg);
                 };
-
+            }, executor)
+            .thenCompose(card -> {
                 // B2: Nested parallel validations with TRUE fail-fast coordination (with Card)
                 CompletableFuture<Card> failFast = new CompletableFuture<>();
 
@@ -105,31 +120,25 @@ public class FixedReactiveFailFastPaymentProcessor implements ReactivePaymentPro
                     });
 
                 // Return the failFast future - completes on first failure OR all successes
-                try {
-                    return failFast.join();
-                } catch (CompletionException e) {
-                    Throwable cause = e.getCause();
-                    if (cause instanceof ValidationException ve) {
+                return failFast.exceptionally(throwable -> {
+                    if (throwable.getCause() instanceof ValidationException ve) {
                         throw ve;
                     }
                     throw new RuntimeException("Consumer validation failed");
-                }
+                });
             });
 
         // Wait for BOTH parallel paths (merchant AND consumer)
         return CompletableFuture.allOf(merchantValidation, consumerValidation)
             .thenCompose(_ -> {
                 // If we get here, all validations passed (exceptions would have been thrown otherwise)
-                // Extract the card for transfer
-                Card card = consumerValidation.join();
-
                 // Step 3: Transfer amount if all validations passed
                 logger.debug("✅ All validations passed, proceeding with transfer...");
-                return CompletableFuture.runAsync(() -> balanceService.transfer(request, card));
+                return CompletableFuture.runAsync(() -> balanceService.transfer(request), executor);
             })
             .thenApply(_ -> {
                 long processingTime = System.currentTimeMillis() - startTime;
-                String transactionId = UUID.randomUUID().toString();
+                String transactionId = request.transactionId();
 
                 logger.info("✅ FIXED REACTIVE FAIL-FAST transaction completed: {} (in {}ms)",
                            transactionId, processingTime);
@@ -155,7 +164,7 @@ public class FixedReactiveFailFastPaymentProcessor implements ReactivePaymentPro
         return CompletableFuture.supplyAsync(() -> switch(service.validate(request, card)){
             case ValidationResult.Success success -> success;
             case ValidationResult.Failure(String msg) -> throw new ValidationException(msg);
-        });
+        }, executor);
     }
 
 }
@@ -4,6 +4,7 @@ import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Common interface for all reactive payment processors.
@@ -12,6 +13,13 @@ import java.util.concurrent.CompletableFuture;
  */
 public interface ReactivePaymentProcessor {
 
+    /**
+     * Default executor for the async stages: one new virtual thread per task.
+     * The simulated network delays block, so running them on the common ForkJoinPool
+     * (cores - 1 threads) would cap the number of concurrent transactions.
+     */
+    Executor VIRTUAL_THREAD_PER_TASK = Thread::startVirtualThread;
+
     /**
      * Processes a transaction request asynchronously using reactive programming patterns.
      *
@@ -14,11 +14,12 @@ import com.example.services.PinValidationService;
 import com.example.services.ValidationException;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -41,19 +42,32 @@ public class ReactiveWithExceptionsPaymentProcessor implements ReactivePaymentPr
     private final ExpirationService expirationService;
     private final PinValidationService pinValidationService;
     private final MerchantValidationService merchantValidationService;
+    private final Executor executor;
 
-    @Inject
     public ReactiveWithExceptionsPaymentProcessor(
             BalanceService balanceService,
             CardValidationService cardValidationService,
             ExpirationService expirationService,
             PinValidationService pinValidationService,
             MerchantValidationService merchantValidationService) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, VIRTUAL_THREAD_PER_TASK);
+    }
+
+    @Inject
+    public ReactiveWithExceptionsPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            @Named("reactive-executor") Executor executor) {
         this.balanceService = balanceService;
         this.cardValidationService = cardValidationService;
         this.expirationService = expirationService;
         this.pinValidationService = pinValidationService;
         this.merchantValidationService = merchantValidationService;
+        this.executor = executor;
     }
 
     @Override
@@ -65,21 +79,23 @@ public class ReactiveWithExceptionsPaymentProcessor implements ReactivePaymentPr
             CompletableFuture.supplyAsync(() -> switch (merchantValidationService.validate(request)) {
                 case ValidationResult.Failure(String m) -> throw new ValidationException(m);
                 case ValidationResult.Success success -> success; 
-            });
+            }, executor);
 
         // PATH B: Consumer validation (card → nested parallel validations)
+        // Composed rather than joined, so no executor thread blocks waiting for tasks queued on the same executor
         CompletableFuture<Card> consumerValidation =
             CompletableFuture.supplyAsync(() -> {
                 // B1: Validate card first
                 CardValidationResult cardResult = cardValidationService.validate(request);
 
                 // Pattern match - throw exception on failure
-                Card card = switch (cardResult) {
+                return switch (cardResult) {
                     case CardValidationResult.Success(Card c) -> c;
                     case CardValidationResult.Failure(String msg) ->
                         throw new ValidationException(msg);
                 };
-
+            }, executor)
+            .thenCompose(card -> {
                 // B2: Nested parallel validations using SAME exception-based approach as structured concurrency (with Card)
                 List<CompletableFuture<ValidationResult>> validationFutures = List.of(
                         validationTask(expirationService, request, card),
@@ -89,26 +105,22 @@ public class ReactiveWithExceptionsPaymentProcessor implements ReactivePaymentPr
 
                 // CompletableFuture.allOf() waits for ALL tasks to complete (or fail)
                 // This is the KEY difference from StructuredTaskScope which cancels immediately
-                CompletableFuture.allOf(validationFutures.toArray(new CompletableFuture[0])).join();
-
-                // If we get here, all validations passed - return the Card
-                return card;
+                // If it completes normally, all validations passed - return the Card
+                return CompletableFuture.allOf(validationFutures.toArray(new CompletableFuture[0]))
+                        .thenApply(_ -> card);
             });
 
         // Wait for BOTH parallel paths (merchant AND consumer)
         return CompletableFuture.allOf(merchantValidation, consumerValidation)
             .thenCompose(_ -> {
                 // If we get here, all validations passed (exceptions would have been thrown otherwise)
-                // Extract the card for transfer
-                Card card = consumerValidation.join();
-
                 // Step 3: Transfer amount if all validations passed
                 logger.debug("✅ All validations passed, proceeding with transfer...");
-                return CompletableFuture.runAsync(() -> balanceService.transfer(request, card));
+                return CompletableFuture.runAsync(() -> balanceService.transfer(request), executor);
             })
             .thenApply(_ -> {
                 long processingTime = System.currentTimeMillis() - startTime;
-                String transactionId = UUID.randomUUID().toString();
+                String transactionId = request.transactionId();
 
                 logger.info("✅ REACTIVE WITH EXCEPTIONS transaction completed: {} (in {}ms)",
                            transactionId, processingTime);
@@ -133,6 +145,6 @@ public class ReactiveWithExceptionsPaymentProcessor implements ReactivePaymentPr
         return CompletableFuture.supplyAsync(() -> switch(service.validate(request, card)){
             case ValidationResult.Success success -> success;
             case ValidationResult.Failure(String msg) -> throw new ValidationException(msg);
-        });
+        }, executor);
     }
 }
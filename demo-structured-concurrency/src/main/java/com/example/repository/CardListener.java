@@ -0,0 +1,24 @@
+package com.example.repository;
+
+/**
+ * Notified by {@link CardRepository} when a card is added, changed or removed, after the change is stored.
+ * Called on the thread that made the change, so implementations must be thread-safe and cheap.
+ */
+public interface CardListener {
+
+    void cardAdded(String cardNumber);
+
+    /**
+     * An existing card was saved again.
+     */
+    default void cardUpdated(String cardNumber) {
+    }
+
+    /**
+     * The card was debited or had its balance set; nothing else of it changed.
+     */
+    default void balanceChanged(String cardNumber) {
+    }
+
+    void cardRemoved(String cardNumber);
+}
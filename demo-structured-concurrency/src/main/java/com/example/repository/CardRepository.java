@@ -2,50 +2,311 @@ package com.example.repository;
 
 import com.example.fixtures.DemoCards;
 import com.example.model.Card;
+import com.example.persistence.Journal;
+import com.example.persistence.JournalEntry;
+import com.example.persistence.JournalEntry.BalanceSet;
+import com.example.persistence.JournalEntry.CardDebited;
+import com.example.persistence.JournalEntry.CardDeleted;
+import com.example.persistence.JournalEntry.CardSaved;
+import com.example.persistence.Recoverable;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+// Rebuilt from the journal on startup, see JournalProducer
 @ApplicationScoped
-public class CardRepository {
+public class CardRepository implements Recoverable {
     private static final Logger logger = LogManager.getLogger(CardRepository.class);
-    private final ConcurrentHashMap<String, Card> cards = new ConcurrentHashMap<>();
 
+    // Where the cards live, see card-store
+    private final CardStore cards;
+
+    // Records every change, see persistence.wal.enabled
+    private final Journal journal;
+
+    // Locks striped by card number: a change and its journal record are made under the same lock,
+    // so the journal holds the changes of a card in the order they were applied.
+    // A fixed array, so touching millions of cards allocates no lock per card (two cards sharing a stripe
+    // only wait for each other while applying a change, never for its fsync)
+    private static final int LOCK_STRIPES = 256;
+    private final Lock[] cardLocks = new Lock[LOCK_STRIPES];
+    // Order of the changes made under each stripe lock (guarded by it)
+    private final long[] changeSequences = new long[LOCK_STRIPES];
+
+    // Cards whose change failed to be journaled, with the sequence of the earliest such change: the card is back
+    // to its state before it. The journal fails every change queued after a failed one, so that state is on disk
+    private final Map<String, Long> undoneFrom = new ConcurrentHashMap<>();
+
+    private final List<CardListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Durable of a change with no journal record
+    private static final Journal.Durable NOTHING_QUEUED = () -> {};
+
+    // Journal entries recovered so far
+    private long recoveredEntries;
+
+    /**
+     * A repository of the demo cards, recording nothing.
+     */
     public CardRepository() {
+        this(Journal.NONE);
         initializeDemoCards();
     }
 
+    /**
+     * An empty repository: its cards are recovered from the journal, see {@link #recovered()}.
+     */
+    public CardRepository(Journal journal) {
+        this(journal, new HeapCardStore());
+    }
+
+    @Inject
+    public CardRepository(Journal journal, CardStore cards) {
+        this.journal = journal;
+        this.cards = cards;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            cardLocks[i] = new ReentrantLock();
+        }
+    }
+
     private void initializeDemoCards() {
         // Initialize with demo cards from DemoCards fixture
         for (Card card : DemoCards.getAllCards()) {
-            cards.put(card.cardNumber(), card);
+            journal.append(new CardSaved(card));
+            cards.put(card);
         }
         logger.info("CardRepository initialized with {} demo cards", cards.size());
     }
 
+    /**
+     * Re-applies a recorded change (held funds are recovered by BalanceService).
+     */
+    @Override
+    public void recover(JournalEntry entry) {
+        recoveredEntries++;
+        switch (entry) {
+            case CardSaved(Card card) -> cards.put(card);
+            case CardDeleted(String cardNumber) -> cards.remove(cardNumber);
+            case CardDebited(String cardNumber, long amountCents) ->
+                    cards.update(cardNumber, card -> card.withBalanceCents(card.balanceCents() - amountCents));
+            case BalanceSet(String cardNumber, long balanceCents) ->
+                    cards.update(cardNumber, card -> card.withBalanceCents(balanceCents));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Seeds the demo cards if the journal held nothing.
+     */
+    @Override
+    public void recovered() {
+        if (recoveredEntries > 0) {
+            logger.info("CardRepository recovered {} cards from {} journal entries", cards.size(), recoveredEntries);
+        } else {
+            initializeDemoCards();
+        }
+    }
+
+    /**
+     * Registers a listener for cards added, updated and removed from now on (cards already stored are not replayed,
+     * see {@link #forEachCardNumber}).
+     */
+    public void addListener(CardListener listener) {
+        listeners.add(listener);
+    }
+
     public Optional<Card> findByCardNumber(String cardNumber) {
         return Optional.ofNullable(cards.get(cardNumber));
     }
 
     public List<Card> findAll() {
-        return cards.values().stream().toList();
+        return cards.values();
+    }
+
+    /**
+     * Passes the number of every stored card to the action, without loading the cards onto the heap together.
+     */
+    public void forEachCardNumber(Consumer<String> action) {
+        cards.forEachCardNumber(action);
+    }
+
+    /**
+     * A change applied to the store whose journal record may not be durable yet.
+     *
+     * @param result What the change returned
+     * @param durable The wait for its record to be durable
+     */
+    public record Queued<T>(T result, Journal.Durable durable) {
+
+        /**
+         * Returns the result once the change is durable.
+         *
+         * @throws java.io.UncheckedIOException if the change could not be written; it is undone then
+         */
+        public T await() {
+            durable.await();
+            return result;
+        }
     }
 
     public Card save(Card card) {
-        cards.put(card.cardNumber(), card);
+        boolean added = journaled(card.cardNumber(), () -> cards.put(card), _ -> new CardSaved(card)).await();
+        if (added) {
+            listeners.forEach(listener -> listener.cardAdded(card.cardNumber()));
+        } else {
+            listeners.forEach(listener -> listener.cardUpdated(card.cardNumber()));
+        }
         logger.info("Card saved: {}", card.cardNumber());
         return card;
     }
 
+    /**
+     * Atomically debits the card (amount in cents) against its current stored balance (read-modify-write
+     * inside the store, so concurrent debits on the same card never overwrite each other).
+     * Returns the updated card once the debit is durable, or empty if the card does not exist.
+     */
+    public Optional<Card> debit(String cardNumber, long amountCents) {
+        return debitQueued(cardNumber, amountCents).await();
+    }
+
+    /**
+     * Like {@link #debit(String, long)}, returning as soon as the debit is applied: a caller serializing its
+     * debits (e.g. under its own per-card lock) waits for durability once it let the next one in, so debits
+     * of the same card share a group commit.
+     */
+    public Queued<Optional<Card>> debitQueued(String cardNumber, long amountCents) {
+        Queued<Card> updated = journaled(cardNumber,
+                () -> cards.update(cardNumber, card -> card.withBalanceCents(card.balanceCents() - amountCents)),
+                card -> card == null ? null : new CardDebited(cardNumber, amountCents));
+        if (updated.result() != null) {
+            listeners.forEach(listener -> listener.balanceChanged(cardNumber));
+            logger.info("Card debited: {}", cardNumber);
+        }
+        return new Queued<>(Optional.ofNullable(updated.result()), updated.durable());
+    }
+
+    /**
+     * Atomically replaces the balance (in cents) of the card, keeping the rest of the current stored record.
+     * Returns the updated card once the change is durable, or empty if the card does not exist.
+     */
+    public Optional<Card> updateBalance(String cardNumber, long newBalanceCents) {
+        return updateBalanceQueued(cardNumber, newBalanceCents).await();
+    }
+
+    /**
+     * Like {@link #updateBalance(String, long)}, returning as soon as the balance is replaced
+     * (see {@link #debitQueued(String, long)}).
+     */
+    public Queued<Optional<Card>> updateBalanceQueued(String cardNumber, long newBalanceCents) {
+        Queued<Card> updated = journaled(cardNumber,
+                () -> cards.update(cardNumber, card -> card.withBalanceCents(newBalanceCents)),
+                card -> card == null ? null : new BalanceSet(cardNumber, newBalanceCents));
+        if (updated.result() != null) {
+            listeners.forEach(listener -> listener.balanceChanged(cardNumber));
+            logger.info("Card balance updated: {}", cardNumber);
+        }
+        return new Queued<>(Optional.ofNullable(updated.result()), updated.durable());
+    }
+
     public void delete(String cardNumber) {
-        cards.remove(cardNumber);
+        boolean removed = journaled(cardNumber, () -> cards.remove(cardNumber), _ -> new CardDeleted(cardNumber)).await();
+        if (removed) {
+            listeners.forEach(listener -> listener.cardRemoved(cardNumber));
+        }
         logger.info("Card deleted: {}", cardNumber);
     }
 
+    /**
+     * Applies the change to the store and queues its journal record under the card lock. The caller waits for
+     * the record to be durable outside of it, so concurrent changes share the group commit.
+     * A change whose record cannot be queued or fails to be written is undone, so the store never keeps what
+     * the journal lost.
+     *
+     * @param record The record of the change given its result, null if nothing changed
+     */
+    private <T> Queued<T> journaled(String cardNumber, Supplier<T> change, Function<T, JournalEntry> record) {
+        int stripe = stripe(cardNumber);
+        Lock lock = cardLocks[stripe];
+        Card before;
+        long sequence;
+        RuntimeException notQueued;
+        lock.lock();
+        try {
+            before = cards.get(cardNumber);
+            sequence = ++changeSequences[stripe];
+            T result = change.get();
+            JournalEntry entry = record.apply(result);
+            if (entry == null) {
+                return new Queued<>(result, NOTHING_QUEUED);
+            }
+            try {
+                Journal.Durable durable = journal.enqueue(entry);
+                return new Queued<>(result, () -> {
+                    try {
+                        durable.await();
+                    } catch (RuntimeException e) {
+                        undo(cardNumber, before, sequence);
+                        throw e;
+                    }
+                });
+            } catch (RuntimeException e) {
+                notQueued = e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Journal closed or failed
+        undo(cardNumber, before, sequence);
+        throw notQueued;
+    }
+
+    /**
+     * Puts the card back as it was before a change that was not journaled. Failed changes of a card may be
+     * undone in any order: the card ends up as before the earliest one, the last state the journal holds.
+     * Reported as an update, whatever the change was: save and delete only notify once durable, so
+     * listeners only have to drop what they read from the store meanwhile.
+     *
+     * @param before The card before the change, null if there was none
+     */
+    private void undo(String cardNumber, Card before, long sequence) {
+        Lock lock = cardLocks[stripe(cardNumber)];
+        lock.lock();
+        try {
+            Long undone = undoneFrom.get(cardNumber);
+            if (undone != null && undone < sequence) {
+                return; // an earlier change was undone, restoring an older state
+            }
+            undoneFrom.put(cardNumber, sequence);
+            if (before == null) {
+                cards.remove(cardNumber);
+            } else {
+                cards.put(before);
+            }
+        } finally {
+            lock.unlock();
+        }
+        logger.warn("Card change undone, it could not be journaled: {}", cardNumber);
+        listeners.forEach(listener -> listener.cardUpdated(cardNumber));
+    }
+
+    private static int stripe(String cardNumber) {
+        int hash = cardNumber.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
     public Card clone(String cardNumber, String newCardNumber) {
         Optional<Card> original = findByCardNumber(cardNumber);
         if (original.isEmpty()) {
@@ -57,7 +318,7 @@ public class CardRepository {
             newCardNumber,
             originalCard.expirationDate(),
             originalCard.pin(),
-            originalCard.balance(),
+            originalCard.balanceCents(),
             originalCard.description()
         );
 
@@ -67,7 +328,7 @@ public class CardRepository {
     }
 
     public boolean exists(String cardNumber) {
-        return cards.containsKey(cardNumber);
+        return cards.contains(cardNumber);
     }
 
 }
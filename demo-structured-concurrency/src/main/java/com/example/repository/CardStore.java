@@ -0,0 +1,53 @@
+package com.example.repository;
+
+import com.example.model.Card;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage of the cards behind {@link CardRepository}, by card number.
+ * <p>
+ * Implementations:
+ * - {@link HeapCardStore}: ConcurrentHashMap of Card records
+ * - {@link OffHeapCardStore}: fixed-width records in a memory-mapped file, indexed off-heap
+ */
+public interface CardStore {
+
+    /**
+     * @return the card, or null if it is not stored
+     */
+    Card get(String cardNumber);
+
+    /**
+     * Stores the card, replacing the one with the same card number.
+     *
+     * @return true if the card was not stored before
+     */
+    boolean put(Card card);
+
+    /**
+     * Atomically replaces the stored card with change(card). The change must keep the card number.
+     *
+     * @return the updated card, or null if it is not stored
+     */
+    Card update(String cardNumber, UnaryOperator<Card> change);
+
+    /**
+     * @return true if the card was stored
+     */
+    boolean remove(String cardNumber);
+
+    boolean contains(String cardNumber);
+
+    List<Card> values();
+
+    /**
+     * Passes the number of every stored card to the action, one at a time, without building the cards
+     * (e.g. to index a large store at startup).
+     */
+    void forEachCardNumber(Consumer<String> action);
+
+    int size();
+}
@@ -0,0 +1,56 @@
+package com.example.repository;
+
+import com.example.model.Card;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * On-heap card store: one Card record per card in a ConcurrentHashMap.
+ */
+public class HeapCardStore implements CardStore {
+
+    private final ConcurrentHashMap<String, Card> cards = new ConcurrentHashMap<>();
+
+    @Override
+    public Card get(String cardNumber) {
+        return cards.get(cardNumber);
+    }
+
+    @Override
+    public boolean put(Card card) {
+        return cards.put(card.cardNumber(), card) == null;
+    }
+
+    @Override
+    public Card update(String cardNumber, UnaryOperator<Card> change) {
+        return cards.computeIfPresent(cardNumber, (_, card) -> change.apply(card));
+    }
+
+    @Override
+    public boolean remove(String cardNumber) {
+        return cards.remove(cardNumber) != null;
+    }
+
+    @Override
+    public boolean contains(String cardNumber) {
+        return cards.containsKey(cardNumber);
+    }
+
+    @Override
+    public List<Card> values() {
+        return cards.values().stream().toList();
+    }
+
+    @Override
+    public void forEachCardNumber(Consumer<String> action) {
+        cards.keySet().forEach(action);
+    }
+
+    @Override
+    public int size() {
+        return cards.size();
+    }
+}
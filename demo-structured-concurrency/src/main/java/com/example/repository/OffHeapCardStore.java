@@ -0,0 +1,387 @@
+package com.example.repository;
+
+import com.example.model.Card;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Off-heap card store: cards are fixed-width records in a memory-mapped file, found through an
+ * open-addressing (linear probing) index from card number to record slot, itself allocated off-heap.
+ * <p>
+ * The heap only holds the Card records being read or updated; the OS pages the records in and out,
+ * so tens of millions of cards cost no GC time. The file is scratch space, recreated on open:
+ * durability comes from the journal, which CardRepository replays into the store.
+ * <p>
+ * Record layout (160 bytes): state, card number (31 bytes), expiration date (15), PIN (15),
+ * balance in cents (long), description (79). Strings are a length byte (255 for null) and UTF-8 bytes.
+ * <p>
+ * Locking: index changes (new or removed cards) take the index write lock; reads and balance updates take the
+ * index read lock and the lock of the record stripe, so updates of different cards do not contend.
+ */
+public class OffHeapCardStore implements CardStore, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(OffHeapCardStore.class);
+
+    private static final long RECORD_BYTES = 160;
+    private static final long STATE = 0;
+    private static final long CARD_NUMBER = 1;
+    private static final int CARD_NUMBER_BYTES = 32;
+    private static final long EXPIRATION_DATE = 33;
+    private static final int EXPIRATION_DATE_BYTES = 16;
+    private static final long PIN = 49;
+    private static final int PIN_BYTES = 16;
+    private static final long BALANCE = 72;
+    private static final long DESCRIPTION = 80;
+    private static final int DESCRIPTION_BYTES = 80;
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final int NULL_LENGTH = 0xFF;
+
+    // Index buckets: record slot + 1, EMPTY or TOMBSTONE (removed, probing goes on)
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+
+    private static final int STRIPES = 64;
+
+    private final long capacity;
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment records;
+    private final MemorySegment index;
+    private final long indexMask;
+
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final Lock[] stripes = new Lock[STRIPES];
+
+    // Guarded by the index write lock
+    private long nextSlot;
+    private final Deque<Long> freeSlots = new ArrayDeque<>();
+    private int size;
+
+    /**
+     * @param file Record file, recreated
+     * @param capacity Maximum number of cards
+     */
+    public OffHeapCardStore(Path file, long capacity) throws IOException {
+        this.capacity = capacity;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed, until the arena is
+            this.records = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity * RECORD_BYTES, arena);
+        }
+        // Load factor at most 0.5, so probe sequences stay short
+        long buckets = Long.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1;
+        this.index = arena.allocate(buckets * Long.BYTES, Long.BYTES);
+        this.indexMask = buckets - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        logger.info("Off-heap card store {} opened for {} cards", file, capacity);
+    }
+
+    @Override
+    public Card get(String cardNumber) {
+        indexLock.readLock().lock();
+        try {
+            long bucket = find(key(cardNumber), cardNumber.hashCode());
+            if (bucket < 0) {
+                return null;
+            }
+            long slot = slotAt(bucket);
+            Lock stripe = stripe(slot);
+            stripe.lock();
+            try {
+                return read(slot);
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean put(Card card) {
+        checkFits(card);
+        byte[] key = key(card.cardNumber());
+        indexLock.writeLock().lock();
+        try {
+            long bucket = find(key, card.cardNumber().hashCode());
+            long slot = bucket >= 0 ? slotAt(bucket) : insert(key, card.cardNumber().hashCode());
+            Lock stripe = stripe(slot);
+            stripe.lock();
+            try {
+                write(slot, card);
+            } finally {
+                stripe.unlock();
+            }
+            return bucket < 0;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Card update(String cardNumber, UnaryOperator<Card> change) {
+        indexLock.readLock().lock();
+        try {
+            long bucket = find(key(cardNumber), cardNumber.hashCode());
+            if (bucket < 0) {
+                return null;
+            }
+            long slot = slotAt(bucket);
+            Lock stripe = stripe(slot);
+            stripe.lock();
+            try {
+                Card updated = change.apply(read(slot));
+                checkFits(updated);
+                write(slot, updated);
+                return updated;
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String cardNumber) {
+        indexLock.writeLock().lock();
+        try {
+            long bucket = find(key(cardNumber), cardNumber.hashCode());
+            if (bucket < 0) {
+                return false;
+            }
+            long slot = slotAt(bucket);
+            index.setAtIndex(ValueLayout.JAVA_LONG, bucket, TOMBSTONE);
+            records.set(ValueLayout.JAVA_BYTE, slot * RECORD_BYTES + STATE, FREE);
+            freeSlots.push(slot);
+            size--;
+            return true;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String cardNumber) {
+        indexLock.readLock().lock();
+        try {
+            return find(key(cardNumber), cardNumber.hashCode()) >= 0;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Card> values() {
+        indexLock.readLock().lock();
+        try {
+            List<Card> cards = new ArrayList<>(size);
+            for (long slot = 0; slot < nextSlot; slot++) {
+                Lock stripe = stripe(slot);
+                stripe.lock();
+                try {
+                    if (records.get(ValueLayout.JAVA_BYTE, slot * RECORD_BYTES + STATE) == USED) {
+                        cards.add(read(slot));
+                    }
+                } finally {
+                    stripe.unlock();
+                }
+            }
+            return cards;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachCardNumber(Consumer<String> action) {
+        indexLock.readLock().lock();
+        try {
+            for (long slot = 0; slot < nextSlot; slot++) {
+                String cardNumber = null;
+                Lock stripe = stripe(slot);
+                stripe.lock();
+                try {
+                    if (records.get(ValueLayout.JAVA_BYTE, slot * RECORD_BYTES + STATE) == USED) {
+                        cardNumber = readString(slot * RECORD_BYTES + CARD_NUMBER);
+                    }
+                } finally {
+                    stripe.unlock();
+                }
+                // Outside of the stripe: the action may take its time
+                if (cardNumber != null) {
+                    action.accept(cardNumber);
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        indexLock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the bucket holding the card number, or -1
+     */
+    private long find(byte[] key, int hash) {
+        long bucket = spread(hash) & indexMask;
+        for (long probes = 0; probes <= indexMask; probes++, bucket = (bucket + 1) & indexMask) {
+            long value = index.getAtIndex(ValueLayout.JAVA_LONG, bucket);
+            if (value == EMPTY) {
+                return -1;
+            }
+            if (value != TOMBSTONE && keyEquals(value - 1, key)) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Allocates a slot for a new card and indexes it (first tombstone or empty bucket of the probe sequence).
+     * Caller holds the index write lock and has checked the card number is not indexed.
+     */
+    private long insert(byte[] key, int hash) {
+        if (size == capacity) {
+            throw new IllegalStateException("Off-heap card store is full (" + capacity + " cards)");
+        }
+        long slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+        long bucket = spread(hash) & indexMask;
+        while (index.getAtIndex(ValueLayout.JAVA_LONG, bucket) > EMPTY) {
+            bucket = (bucket + 1) & indexMask;
+        }
+        index.setAtIndex(ValueLayout.JAVA_LONG, bucket, slot + 1);
+        size++;
+        return slot;
+    }
+
+    private long slotAt(long bucket) {
+        return index.getAtIndex(ValueLayout.JAVA_LONG, bucket) - 1;
+    }
+
+    private Lock stripe(long slot) {
+        return stripes[(int) (slot % STRIPES)];
+    }
+
+    private boolean keyEquals(long slot, byte[] key) {
+        long offset = slot * RECORD_BYTES + CARD_NUMBER;
+        if (Byte.toUnsignedInt(records.get(ValueLayout.JAVA_BYTE, offset)) != key.length) {
+            return false;
+        }
+        return MemorySegment.mismatch(records, offset + 1, offset + 1 + key.length,
+                MemorySegment.ofArray(key), 0, key.length) == -1;
+    }
+
+    private Card read(long slot) {
+        long base = slot * RECORD_BYTES;
+        return new Card(
+                readString(base + CARD_NUMBER),
+                readString(base + EXPIRATION_DATE),
+                readString(base + PIN),
+                records.get(ValueLayout.JAVA_LONG, base + BALANCE),
+                readString(base + DESCRIPTION));
+    }
+
+    private void write(long slot, Card card) {
+        long base = slot * RECORD_BYTES;
+        writeString(base + CARD_NUMBER, CARD_NUMBER_BYTES, card.cardNumber());
+        writeString(base + EXPIRATION_DATE, EXPIRATION_DATE_BYTES, card.expirationDate());
+        writeString(base + PIN, PIN_BYTES, card.pin());
+        records.set(ValueLayout.JAVA_LONG, base + BALANCE, card.balanceCents());
+        writeString(base + DESCRIPTION, DESCRIPTION_BYTES, card.description());
+        records.set(ValueLayout.JAVA_BYTE, base + STATE, USED);
+    }
+
+    private String readString(long offset) {
+        int length = Byte.toUnsignedInt(records.get(ValueLayout.JAVA_BYTE, offset));
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        MemorySegment.copy(records, ValueLayout.JAVA_BYTE, offset + 1, utf8, 0, length);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private void writeString(long offset, int fieldBytes, String value) {
+        if (value == null) {
+            records.set(ValueLayout.JAVA_BYTE, offset, (byte) NULL_LENGTH);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        records.set(ValueLayout.JAVA_BYTE, offset, (byte) utf8.length);
+        MemorySegment.copy(utf8, 0, records, ValueLayout.JAVA_BYTE, offset + 1, utf8.length);
+    }
+
+    private static byte[] key(String cardNumber) {
+        return cardNumber.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks the card fits in a record, before anything is written.
+     *
+     * @throws IllegalArgumentException if a field is too long
+     */
+    private static void checkFits(Card card) {
+        checkFits("Card number", card.cardNumber(), CARD_NUMBER_BYTES);
+        checkFits("Expiration date", card.expirationDate(), EXPIRATION_DATE_BYTES);
+        checkFits("PIN", card.pin(), PIN_BYTES);
+        checkFits("Description", card.description(), DESCRIPTION_BYTES);
+    }
+
+    private static void checkFits(String field, String value, int fieldBytes) {
+        // One byte of the field holds the length
+        if (value != null && value.getBytes(StandardCharsets.UTF_8).length >= fieldBytes) {
+            throw new IllegalArgumentException(field + " too long for the off-heap card store (max " + (fieldBytes - 1) + " bytes)");
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Unmaps the records and frees the index.
+     */
+    @Override
+    public void close() {
+        indexLock.writeLock().lock();
+        try {
+            arena.close();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+}
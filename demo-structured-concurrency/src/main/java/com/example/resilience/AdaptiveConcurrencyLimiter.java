@@ -0,0 +1,144 @@
+package com.example.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that follows the capacity of the backends: each completed call feeds its latency to the
+ * {@link LimitAlgorithm}, which raises the limit while latency stays level and lowers it when calls slow down
+ * (they queue somewhere). Calls beyond the limit are rejected immediately, so the accepted ones keep a
+ * bounded latency under overload.
+ * <p>
+ * Once bound to a registry ({@link #bindTo}), published as payment.concurrency.limit,
+ * payment.concurrency.in.flight and payment.concurrency.rejected, tagged with the name.
+ */
+public class AdaptiveConcurrencyLimiter implements ConcurrencyLimiter, MeterBinder {
+
+    private final String name;
+    private final LimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier nanoTime;
+    private final LongAdder rejected = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double limit;
+    private int inFlight;
+
+    /**
+     * @param name Name of the limiter (metrics tag)
+     * @param initialLimit Limit until calls have been measured
+     * @param minLimit Lowest limit, so some calls always get through and measure recovery
+     * @param maxLimit Highest limit
+     */
+    public AdaptiveConcurrencyLimiter(String name, LimitAlgorithm algorithm, int initialLimit, int minLimit, int maxLimit) {
+        this(name, algorithm, initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name, LimitAlgorithm algorithm, int initialLimit, int minLimit, int maxLimit,
+                               LongSupplier nanoTime) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max: "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.name = name;
+        this.algorithm = algorithm;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.nanoTime = nanoTime;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Publishes the metrics of this limiter in the registry.
+     *
+     * @throws IllegalStateException if the registry already has a limiter of that name: its gauges would
+     * silently keep reporting the other one
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (registry.find("payment.concurrency.limit").tag("limiter", name).gauge() != null) {
+            throw new IllegalStateException("Concurrency limiter already registered: " + name);
+        }
+        Gauge.builder("payment.concurrency.limit", this, AdaptiveConcurrencyLimiter::limit)
+                .tag("limiter", name).register(registry);
+        Gauge.builder("payment.concurrency.in.flight", this, AdaptiveConcurrencyLimiter::inFlight)
+                .tag("limiter", name).register(registry);
+        FunctionCounter.builder("payment.concurrency.rejected", rejected, LongAdder::sum)
+                .tag("limiter", name).register(registry);
+    }
+
+    @Override
+    public Permit tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                rejected.increment();
+                return null;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+
+        long startNanos = nanoTime.getAsLong();
+        AtomicBoolean released = new AtomicBoolean();
+        return new Permit() {
+            @Override
+            public void release() {
+                if (released.compareAndSet(false, true)) {
+                    onComplete(nanoTime.getAsLong() - startNanos, false);
+                }
+            }
+
+            @Override
+            public void dropped() {
+                if (released.compareAndSet(false, true)) {
+                    onComplete(nanoTime.getAsLong() - startNanos, true);
+                }
+            }
+        };
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of calls rejected so far
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onComplete(long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            limit = Math.clamp(algorithm.update(limit, rttNanos, inFlight, dropped), minLimit, maxLimit);
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
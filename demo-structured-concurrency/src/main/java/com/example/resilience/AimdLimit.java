@@ -0,0 +1,38 @@
+package com.example.resilience;
+
+import java.time.Duration;
+
+/**
+ * Additive increase, multiplicative decrease: the limit grows by one per call while the limiter is well used
+ * and calls are fast, and is multiplied by backoffRatio for a call slower than latencyThreshold or dropped.
+ * Simple and robust, but needs a threshold above the normal latency.
+ */
+public class AimdLimit implements LimitAlgorithm {
+
+    private final long thresholdNanos;
+    private final double backoffRatio;
+
+    /**
+     * @param latencyThreshold Latency above which a call counts as a sign of overload
+     * @param backoffRatio Factor applied to the limit on overload, in [0.5, 1)
+     */
+    public AimdLimit(Duration latencyThreshold, double backoffRatio) {
+        if (backoffRatio < 0.5 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio must be in [0.5, 1): " + backoffRatio);
+        }
+        this.thresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped || rttNanos > thresholdNanos) {
+            return limit * backoffRatio;
+        }
+        // Below half the limit the load does not tell whether more would be fine
+        if (inFlight * 2 >= limit) {
+            return limit + 1;
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.resilience;
+
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of concurrent calls to one service, so a slow service cannot pile up waiting threads
+ * (and the cards and reservations they hold) without limit.
+ * <p>
+ * Implementations:
+ * - {@link #NONE}: runs every call
+ * - {@link SemaphoreBulkhead}: at most maxConcurrent calls, others wait up to maxWait in arrival order
+ */
+public interface Bulkhead {
+
+    Bulkhead NONE = new Bulkhead() {
+        @Override
+        public <T> T call(Supplier<T> call) {
+            return call.get();
+        }
+    };
+
+    /**
+     * @return the result of the call
+     * @throws BulkheadFullException if the call could not start in time
+     */
+    <T> T call(Supplier<T> call) throws InterruptedException;
+}
@@ -0,0 +1,12 @@
+package com.example.resilience;
+
+/**
+ * A call was rejected by a {@link Bulkhead}: the service already had as many calls as it can take.
+ * Thrown from a subtask, it fails the subtask and cancels its scope.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.resilience;
+
+/**
+ * Bounds the number of transactions processed at the same time; the excess is rejected right away
+ * instead of queueing until every transaction times out.
+ * <p>
+ * Implementations:
+ * - {@link #NONE}: accepts everything
+ * - {@link AdaptiveConcurrencyLimiter}: limit adjusted from the observed latency ({@link AimdLimit}, {@link GradientLimit})
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Slot of an accepted call, to release once when the call completes.
+     */
+    interface Permit {
+        /**
+         * The call completed, its latency is a sample for the limit.
+         */
+        void release();
+
+        /**
+         * The call timed out or was dropped: a sign of overload whatever its latency.
+         */
+        void dropped();
+    }
+
+    Permit NO_OP_PERMIT = new Permit() {
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public void dropped() {
+        }
+    };
+
+    ConcurrencyLimiter NONE = () -> NO_OP_PERMIT;
+
+    /**
+     * @return a permit, or null if the limit is reached and the call must be rejected
+     */
+    Permit tryAcquire();
+}
@@ -0,0 +1,53 @@
+package com.example.resilience;
+
+/**
+ * Gradient of the latency: compares each call's latency to a long-term average and shrinks the limit as soon
+ * as calls get slower than usual (queueing in the backends), without a fixed threshold.
+ * <p>
+ * new limit = limit * gradient + sqrt(limit), where gradient = tolerance * long-term latency / latency, kept in
+ * [0.5, 1]; sqrt(limit) lets the limit grow while latencies stay level. The result is smoothed. A dropped call
+ * counts as the steepest gradient.
+ */
+public class GradientLimit implements LimitAlgorithm {
+    private static final int LONG_WINDOW = 600;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final double tolerance;
+    private final double smoothing;
+
+    // Exponential moving average of the latencies over about LONG_WINDOW calls, 0 before the first one
+    private double longRttNanos;
+
+    /**
+     * @param tolerance Ratio of the long-term latency tolerated before the limit shrinks, at least 1
+     * @param smoothing Weight of a new limit against the current one, in (0, 1]
+     */
+    public GradientLimit(double tolerance, double smoothing) {
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("tolerance must be at least 1: " + tolerance);
+        }
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1]: " + smoothing);
+        }
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inFlight, boolean dropped) {
+        long rtt = Math.max(1, rttNanos);
+        longRttNanos = longRttNanos == 0 ? rtt : longRttNanos + (rtt - longRttNanos) * 2 / (LONG_WINDOW + 1);
+        // After a load spike the average lags far behind: let it catch up with the faster calls
+        if (longRttNanos / rtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = dropped ? MIN_GRADIENT : Math.clamp(tolerance * longRttNanos / rtt, MIN_GRADIENT, 1.0);
+        // Below half the limit the load does not tell whether more would be fine
+        if (gradient == 1.0 && inFlight * 2 < limit) {
+            return limit;
+        }
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - smoothing) + newLimit * smoothing;
+    }
+}
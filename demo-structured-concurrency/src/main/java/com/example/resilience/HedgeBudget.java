@@ -0,0 +1,45 @@
+package com.example.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds hedged calls to a fraction of all calls: every call earns ratio of a hedge (up to burst hedges
+ * saved), every hedge spends one. With ratio 0.05, hedging adds at most ~5% load on the backend,
+ * even when it is slow for everyone.
+ */
+public class HedgeBudget {
+    // Amounts in millionths of a hedge
+    private static final long UNIT = 1_000_000;
+
+    private final long earnedPerCall;
+    private final long maximum;
+    private final AtomicLong balance;
+
+    public HedgeBudget(double ratio, int burst) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("ratio must be between 0 and 1: " + ratio);
+        }
+        this.earnedPerCall = Math.round(ratio * UNIT);
+        this.maximum = burst * UNIT;
+        this.balance = new AtomicLong(maximum);
+    }
+
+    public void onCall() {
+        balance.getAndUpdate(current -> Math.min(maximum, current + earnedPerCall));
+    }
+
+    /**
+     * @return true if a hedge may be sent (and was paid for)
+     */
+    public boolean tryHedge() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.resilience;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs a call, possibly with a duplicate (hedge) if it is slow; the call must be safe to run twice.
+ * <p>
+ * Implementations:
+ * - {@link #NONE}: runs the call once
+ * - {@link PercentileHedging}: hedges calls slower than a latency percentile, within a budget
+ */
+public interface Hedging {
+
+    Hedging NONE = new Hedging() {
+        @Override
+        public <T> T call(Supplier<T> attempt) {
+            return attempt.get();
+        }
+    };
+
+    /**
+     * @return the result of the first attempt to complete successfully
+     * @throws RuntimeException the exception of the first attempt if all of them failed
+     */
+    <T> T call(Supplier<T> attempt) throws InterruptedException;
+}
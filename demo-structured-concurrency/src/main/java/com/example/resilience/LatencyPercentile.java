@@ -0,0 +1,58 @@
+package com.example.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Percentile of the latencies of the last window calls.
+ * Latencies go into a ring buffer; the percentile is recomputed (sort of a copy) every window / 10 calls,
+ * so reading it is free and recording it costs a sort only once in a while.
+ */
+public class LatencyPercentile {
+
+    private final double percentile;
+    private final AtomicLongArray samples;
+    private final int recomputeEvery;
+    private final AtomicLong recorded = new AtomicLong();
+
+    // -1 until enough calls were recorded
+    private volatile long percentileNanos = -1;
+
+    /**
+     * @param percentile Percentile in (0, 1), e.g. 0.95
+     * @param window Number of most recent calls it is computed over
+     */
+    public LatencyPercentile(double percentile, int window) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1: " + percentile);
+        }
+        this.percentile = percentile;
+        this.samples = new AtomicLongArray(window);
+        this.recomputeEvery = Math.max(1, window / 10);
+    }
+
+    public void record(long nanos) {
+        long count = recorded.incrementAndGet();
+        samples.set((int) ((count - 1) % samples.length()), nanos);
+        if (count % recomputeEvery == 0) {
+            recompute(Math.min(count, samples.length()));
+        }
+    }
+
+    /**
+     * @return the percentile in nanoseconds, or -1 if fewer than window / 10 calls were recorded
+     */
+    public long nanos() {
+        return percentileNanos;
+    }
+
+    private void recompute(long count) {
+        long[] sorted = new long[(int) count];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        percentileNanos = sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))];
+    }
+}
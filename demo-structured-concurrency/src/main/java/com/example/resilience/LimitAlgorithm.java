@@ -0,0 +1,17 @@
+package com.example.resilience;
+
+/**
+ * Computes the next concurrency limit of an {@link AdaptiveConcurrencyLimiter} from each completed call.
+ * Called under the limiter's lock, implementations need no synchronization of their own.
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * @param limit Current limit
+     * @param rttNanos Latency of the call
+     * @param inFlight Calls in flight when it completed, itself included
+     * @param dropped Whether the call timed out or was dropped
+     * @return the new limit, before clamping to the limiter's bounds
+     */
+    double update(double limit, long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,133 @@
+package com.example.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedges calls that take longer than a percentile of the recent call latencies.
+ * <p>
+ * Each call opens a StructuredTaskScope with anySuccessfulResultOrThrow and forks the attempt. If it has not
+ * completed after the hedge delay, a duplicate is forked into the same scope; the first one to succeed is
+ * returned and the scope cancels the other. The scope is nested in the caller's, so cancelling the caller
+ * (fail-fast, deadline) cancels both attempts.
+ * <p>
+ * The hedge delay is the latency percentile of the calls, initialDelay until enough calls were seen, and
+ * never less than minimumDelay. A call's latency is its time to result, whichever attempt produced it: the
+ * slow attempts a hedge beats are cancelled, sampling only completed attempts would miss exactly those.
+ * Hedges are bounded by a {@link HedgeBudget}; a call without budget just waits for its attempt.
+ * Once bound to a registry ({@link #bindTo}), published as payment.hedge.* metrics tagged with the service name.
+ */
+public class PercentileHedging implements Hedging, MeterBinder {
+
+    // Thrown by the hedge subtask when no duplicate is sent, never reported: the attempt's own outcome is
+    private static final RuntimeException NOT_HEDGED = new RuntimeException("Not hedged", null, false, false) {};
+
+    private final String service;
+    private final LatencyPercentile latency;
+    private final HedgeBudget budget;
+    private final long initialDelayNanos;
+    private final long minimumDelayNanos;
+
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    public PercentileHedging(String service, double percentile, Duration initialDelay, Duration minimumDelay,
+                             double budgetRatio, int budgetBurst) {
+        this.service = service;
+        this.latency = new LatencyPercentile(percentile, 1000);
+        this.budget = new HedgeBudget(budgetRatio, budgetBurst);
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.minimumDelayNanos = minimumDelay.toNanos();
+    }
+
+    /**
+     * Publishes the metrics of this hedging in the registry.
+     *
+     * @throws IllegalStateException if the registry already has a hedging of that service: its gauge would
+     * silently keep reporting the other one
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (registry.find("payment.hedge.delay").tag("service", service).gauge() != null) {
+            throw new IllegalStateException("Hedging already registered: " + service);
+        }
+        FunctionCounter.builder("payment.hedge.sent", hedges, LongAdder::sum)
+                .tag("service", service).register(registry);
+        FunctionCounter.builder("payment.hedge.wins", hedgeWins, LongAdder::sum)
+                .tag("service", service).register(registry);
+        FunctionCounter.builder("payment.hedge.budget.exhausted", budgetExhausted, LongAdder::sum)
+                .tag("service", service).register(registry);
+        Gauge.builder("payment.hedge.delay", this, hedging -> hedging.hedgeDelayNanos() / 1e6)
+                .tag("service", service)
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * @return the current hedge delay in nanoseconds
+     */
+    public long hedgeDelayNanos() {
+        long percentileNanos = latency.nanos();
+        return Math.max(minimumDelayNanos, percentileNanos < 0 ? initialDelayNanos : percentileNanos);
+    }
+
+    @Override
+    public <T> T call(Supplier<T> attempt) throws InterruptedException {
+        budget.onCall();
+        long delayNanos = hedgeDelayNanos();
+        long startTime = System.nanoTime();
+        CountDownLatch firstDone = new CountDownLatch(1);
+
+        try (var scope = StructuredTaskScope.open(Joiner.<T>anySuccessfulResultOrThrow())) {
+            Subtask<T> first = scope.fork(() -> {
+                try {
+                    return attempt.get();
+                } finally {
+                    firstDone.countDown();
+                }
+            });
+            Subtask<T> hedge = scope.fork(() -> {
+                // Completed (a success cancels this wait) or failed in time: no duplicate
+                if (firstDone.await(delayNanos, TimeUnit.NANOSECONDS)) {
+                    throw NOT_HEDGED;
+                }
+                if (!budget.tryHedge()) {
+                    // The scope keeps waiting for the first attempt
+                    budgetExhausted.increment();
+                    throw NOT_HEDGED;
+                }
+                hedges.increment();
+                return attempt.get();
+            });
+            T result;
+            try {
+                result = scope.join();
+            } catch (StructuredTaskScope.FailedException e) {
+                latency.record(System.nanoTime() - startTime);
+                // Report the first attempt's failure, not the hedge that was never sent
+                Throwable cause = e.getCause() == NOT_HEDGED ? first.exception() : e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+            latency.record(System.nanoTime() - startTime);
+            if (hedge.state() == Subtask.State.SUCCESS) {
+                hedgeWins.increment();
+            }
+            return result;
+        }
+    }
+}
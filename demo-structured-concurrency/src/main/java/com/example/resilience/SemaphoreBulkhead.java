@@ -0,0 +1,83 @@
+package com.example.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead on a fair semaphore: at most maxConcurrent calls run, the next ones wait in arrival order for up to
+ * maxWait, then fail with {@link BulkheadFullException}.
+ * <p>
+ * Once bound to a registry ({@link #bindTo}), published as payment.bulkhead.occupancy (calls running),
+ * payment.bulkhead.waiting and payment.bulkhead.rejected, tagged with the service name.
+ */
+public class SemaphoreBulkhead implements Bulkhead, MeterBinder {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param name Name of the service (metrics tag)
+     * @param maxConcurrent Maximum number of calls running at the same time
+     * @param maxWait Longest time a call waits for a slot, zero to reject at once when full
+     */
+    public SemaphoreBulkhead(String name, int maxConcurrent, Duration maxWait) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive: " + maxConcurrent);
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Publishes the metrics of this bulkhead in the registry.
+     *
+     * @throws IllegalStateException if the registry already has a bulkhead of that name: its gauges would
+     * silently keep reporting the other one
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (registry.find("payment.bulkhead.occupancy").tag("service", name).gauge() != null) {
+            throw new IllegalStateException("Bulkhead already registered: " + name);
+        }
+        Gauge.builder("payment.bulkhead.occupancy", this, SemaphoreBulkhead::occupancy)
+                .tag("service", name).register(registry);
+        Gauge.builder("payment.bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .tag("service", name).register(registry);
+        FunctionCounter.builder("payment.bulkhead.rejected", rejected, LongAdder::sum)
+                .tag("service", name).register(registry);
+    }
+
+    @Override
+    public <T> T call(Supplier<T> call) throws InterruptedException {
+        // A fair semaphore queues even an immediate tryAcquire() behind waiters, the timed variant respects that
+        if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+            rejected.increment();
+            throw new BulkheadFullException(name + " is at capacity (" + maxConcurrent + " calls)");
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return number of calls running
+     */
+    public int occupancy() {
+        return maxConcurrent - permits.availablePermits();
+    }
+}
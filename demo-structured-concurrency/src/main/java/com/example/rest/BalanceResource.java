@@ -1,12 +1,14 @@
 package com.example.rest;
 
 import com.example.services.BalanceService;
+import com.example.utils.MoneyUtil;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 
 import java.math.BigDecimal;
 import java.util.Map;
+import java.util.HashMap;
 
 @Path("/api/balance")
 @Produces(MediaType.APPLICATION_JSON)
@@ -22,7 +24,10 @@ public class BalanceResource {
      */
     @GET
     public Map<String, BigDecimal> getAllBalances() {
-        return balanceService.getAllBalances();
+        Map<String, BigDecimal> balances = new HashMap<>();
+        balanceService.getAllBalancesCents()
+                .forEach((cardNumber, cents) -> balances.put(cardNumber, MoneyUtil.toDecimal(cents)));
+        return balances;
     }
 
     /**
@@ -32,7 +37,7 @@ public class BalanceResource {
     @GET
     @Path("/{cardNumber}")
     public BigDecimal getBalance(@PathParam("cardNumber") String cardNumber) {
-        return balanceService.getBalance(cardNumber);
+        return MoneyUtil.toDecimal(balanceService.getBalanceCents(cardNumber));
     }
 
     /**
@@ -42,6 +47,6 @@ public class BalanceResource {
     @PUT
     @Path("/{cardNumber}")
     public void updateBalance(@PathParam("cardNumber") String cardNumber, BigDecimal newBalance) {
-        balanceService.setBalance(cardNumber, newBalance);
+        balanceService.setBalanceCents(cardNumber, MoneyUtil.toCents(newBalance));
     }
 }
@@ -64,7 +64,7 @@ public class CardResource {
                 cardNumber,
                 updatedCard.expirationDate(),
                 updatedCard.pin(),
-                updatedCard.balance(),
+                updatedCard.balanceCents(),
                 updatedCard.description()
         );
 
@@ -4,14 +4,13 @@ import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 import com.example.reactive.BasicReactivePaymentProcessor;
 import com.example.structured.StructuredPaymentProcessor;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.concurrent.ExecutionException;
-
 @Path("/api/compare")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
@@ -32,13 +31,15 @@ public class ComparisonResource {
         long performanceDifference
     ) {}
 
+    // Runs both processors one after the other, waiting on a virtual thread instead of a worker thread
     @POST
-    public ComparisonResult compare(TransactionRequest request) throws ExecutionException, InterruptedException {
+    @RunOnVirtualThread
+    public ComparisonResult compare(TransactionRequest request) throws InterruptedException {
         logger.info("⚖️  Running PERFORMANCE COMPARISON");
 
         // Run reactive
         long reactiveStart = System.currentTimeMillis();
-        TransactionResult reactiveResult = reactiveProcessor.processTransaction(request).get();
+        TransactionResult reactiveResult = reactiveProcessor.processTransaction(request).join();
         long reactiveTime = System.currentTimeMillis() - reactiveStart;
 
         // Run structured
@@ -0,0 +1,52 @@
+package com.example.rest;
+
+import com.example.model.TransactionResult;
+import com.example.resilience.ConcurrencyLimiter;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Admits {@link ConcurrencyLimited} requests within the concurrency limit, rejects the others with 503 and a
+ * REJECTED TransactionResult. The permit is released when the response is ready (for reactive endpoints, when
+ * the transaction completed), a timed out transaction counting as a sign of overload.
+ */
+@Provider
+@ConcurrencyLimited
+public class ConcurrencyLimitFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final String PERMIT = ConcurrencyLimiter.Permit.class.getName();
+
+    @Inject
+    ConcurrencyLimiter limiter;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            request.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .entity(TransactionResult.rejected("Service overloaded, try again later", 0))
+                    .build());
+            return;
+        }
+        request.setProperty(PERMIT, permit);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (!(request.getProperty(PERMIT) instanceof ConcurrencyLimiter.Permit permit)) {
+            return;
+        }
+        if (response.getEntity() instanceof TransactionResult result
+                && result.failureType() == TransactionResult.FailureType.TIMEOUT) {
+            permit.dropped();
+        } else {
+            permit.release();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.rest;
+
+import com.example.services.MerchantValidationService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/api/merchants")
+@Produces(MediaType.APPLICATION_JSON)
+public class MerchantResource {
+
+    @Inject
+    MerchantValidationService merchantValidationService;
+
+    /**
+     * DELETE /api/merchants/{merchant}/cache
+     * Forgets the cached status of the merchant, the next transaction validates it again
+     */
+    @DELETE
+    @Path("/{merchant}/cache")
+    public Response invalidateMerchant(@PathParam("merchant") String merchant) {
+        if (!merchantValidationService.invalidate(merchant)) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("Merchant cache is disabled")
+                    .build();
+        }
+        return Response.noContent().build();
+    }
+}
@@ -9,9 +9,12 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionStage;
 
+/**
+ * Reactive endpoints return the CompletionStage of the processor, so no request thread
+ * is blocked while the validations run on the reactive executor.
+ */
 @Path("/api/reactive")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
@@ -28,22 +31,22 @@ public class ReactivePaymentResource {
 
     @POST
     @Path("/basic")
-    public TransactionResult processBasic(TransactionRequest request) throws ExecutionException, InterruptedException {
-        CompletableFuture<TransactionResult> result = basicProcessor.processTransaction(request);
-        return result.get();
+    @ConcurrencyLimited
+    public CompletionStage<TransactionResult> processBasic(TransactionRequest request) {
+        return basicProcessor.processTransaction(request);
     }
 
     @POST
     @Path("/with-exceptions")
-    public TransactionResult processWithExceptions(TransactionRequest request) throws ExecutionException, InterruptedException {
-        CompletableFuture<TransactionResult> result = withExceptionsProcessor.processTransaction(request);
-        return result.get();
+    @ConcurrencyLimited
+    public CompletionStage<TransactionResult> processWithExceptions(TransactionRequest request) {
+        return withExceptionsProcessor.processTransaction(request);
     }
 
     @POST
     @Path("/fail-fast")
-    public TransactionResult processFailFast(TransactionRequest request) throws ExecutionException, InterruptedException {
-        CompletableFuture<TransactionResult> result = failFastProcessor.processTransaction(request);
-        return result.get();
+    @ConcurrencyLimited
+    public CompletionStage<TransactionResult> processFailFast(TransactionRequest request) {
+        return failFastProcessor.processTransaction(request);
     }
 }
@@ -3,11 +3,13 @@ package com.example.rest;
 import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 import com.example.scopedvalues.ScopedPaymentProcessor;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 
 @Path("/api/scoped")
+@RunOnVirtualThread
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class ScopedPaymentResource {
@@ -17,6 +19,7 @@ public class ScopedPaymentResource {
 
     @POST
     @Path("/fail-fast")
+    @ConcurrencyLimited
     public TransactionResult processFailFast(TransactionRequest request) throws Exception {
         return scopedProcessor.processTransaction(request);
     }
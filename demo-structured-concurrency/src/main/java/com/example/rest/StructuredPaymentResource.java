@@ -3,12 +3,27 @@ package com.example.rest;
 import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 import com.example.structured.FailFastStructuredPaymentProcessor;
+import com.example.structured.GraphPaymentProcessor;
 import com.example.structured.StructuredPaymentProcessor;
+import com.example.structured.StructuredProcessor;
+import com.example.structured.TransactionStreamProcessor;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Structured processors block until the scope joins, so each request runs on its own virtual thread.
+ */
 @Path("/api/structured")
+@RunOnVirtualThread
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class StructuredPaymentResource {
@@ -19,15 +34,77 @@ public class StructuredPaymentResource {
     @Inject
     FailFastStructuredPaymentProcessor failFastProcessor;
 
+    @Inject
+    GraphPaymentProcessor graphProcessor;
+
+    @Inject
+    TransactionStreamProcessor streamProcessor;
+
+    @ConfigProperty(name = "payment.batch.max-concurrency", defaultValue = "64")
+    int batchMaxConcurrency;
+
     @POST
     @Path("/normal")
+    @ConcurrencyLimited
     public TransactionResult processNormal(TransactionRequest request) throws InterruptedException {
         return normalProcessor.processTransaction(request);
     }
 
     @POST
     @Path("/fail-fast")
+    @ConcurrencyLimited
     public TransactionResult processFailFast(TransactionRequest request) throws InterruptedException {
         return failFastProcessor.processTransaction(request);
     }
+
+    @POST
+    @Path("/graph")
+    @ConcurrencyLimited
+    public TransactionResult processGraph(TransactionRequest request) throws InterruptedException {
+        return graphProcessor.processTransaction(request);
+    }
+
+    /**
+     * POST /api/structured/batch?processor=normal|fail-fast|graph
+     * Processes a batch of transactions in one scope, returns one result per request in the same order
+     */
+    @POST
+    @Path("/batch")
+    public List<TransactionResult> processBatch(List<TransactionRequest> requests,
+                                                @QueryParam("processor") @DefaultValue("fail-fast") String processor) throws InterruptedException {
+        if (requests == null || requests.stream().anyMatch(Objects::isNull)) {
+            throw new BadRequestException("The body must be a JSON array of transaction requests");
+        }
+        return processor(processor).processBatch(requests, batchMaxConcurrency);
+    }
+
+    /**
+     * POST /api/structured/stream?processor=normal|fail-fast|graph
+     * Processes newline-delimited JSON requests, streams back one result line per request as it completes
+     */
+    @POST
+    @Path("/stream")
+    @Consumes(TransactionStreamProcessor.NDJSON)
+    @Produces(TransactionStreamProcessor.NDJSON)
+    public StreamingOutput processStream(InputStream requests,
+                                         @QueryParam("processor") @DefaultValue("fail-fast") String processor) {
+        StructuredProcessor streamedProcessor = processor(processor);
+        return output -> {
+            try {
+                streamProcessor.process(streamedProcessor, requests, output);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Stream processing interrupted");
+            }
+        };
+    }
+
+    private StructuredProcessor processor(String name) {
+        return switch (name) {
+            case "normal" -> normalProcessor;
+            case "fail-fast" -> failFastProcessor;
+            case "graph" -> graphProcessor;
+            default -> throw new BadRequestException("Unknown processor: " + name);
+        };
+    }
 }
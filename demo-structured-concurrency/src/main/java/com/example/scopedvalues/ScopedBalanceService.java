@@ -17,7 +17,7 @@ public class ScopedBalanceService extends BalanceService implements ScopedValida
     }
 
     public void transfer() {
-        super.transfer(ScopedPaymentProcessor.TRANSACTION_REQUEST.get(), ScopedPaymentProcessor.CARD.get());
+        super.transfer(ScopedPaymentProcessor.TRANSACTION_REQUEST.get());
     }
 
 }
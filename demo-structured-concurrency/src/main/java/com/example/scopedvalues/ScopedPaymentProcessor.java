@@ -6,13 +6,21 @@ import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 import com.example.model.ValidationResult;
 import com.example.repository.CardRepository;
+import com.example.resilience.BulkheadFullException;
+import com.example.structured.FirstFailureJoiner;
 import com.example.structured.StructuredProcessor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.time.Duration;
 import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 @ApplicationScoped
 public class ScopedPaymentProcessor implements StructuredProcessor {
@@ -28,9 +36,27 @@ public class ScopedPaymentProcessor implements StructuredProcessor {
     private final ScopedExpirationService expirationService;
     private final ScopedPinValidationService pinValidationService;
     private final ScopedMerchantValidationService merchantValidationService;
+    private final Duration deadline;
+    private final LongAdder timeouts = new LongAdder();
 
-    @Inject
     public ScopedPaymentProcessor(CardRepository cardRepository) {
+        this(cardRepository, DEFAULT_DEADLINE);
+    }
+
+    /**
+     * Publishes payment.transaction.timeouts (processor=scoped) in the registry.
+     */
+    @Inject
+    public ScopedPaymentProcessor(CardRepository cardRepository,
+                                  @ConfigProperty(name = "payment.deadline", defaultValue = "5s") Duration deadline,
+                                  MeterRegistry registry) {
+        this(cardRepository, deadline);
+        FunctionCounter.builder("payment.transaction.timeouts", timeouts, LongAdder::sum)
+                .tag("processor", "scoped").register(registry);
+    }
+
+    public ScopedPaymentProcessor(CardRepository cardRepository, Duration deadline) {
+        this.deadline = deadline;
         // Manually create scoped services, sharing the injected CardRepository
         this.cardValidationService = new ScopedCardValidationService(cardRepository);
         this.balanceService = new ScopedBalanceService(cardRepository);
@@ -39,93 +65,101 @@ public class ScopedPaymentProcessor implements StructuredProcessor {
         this.merchantValidationService = new ScopedMerchantValidationService();
     }
 
-    public TransactionResult processTransaction(TransactionRequest request) {
+    public TransactionResult processTransaction(TransactionRequest request) throws InterruptedException {
         long startTime = System.currentTimeMillis();
         logger.info("🚀 Starting SCOPED VALUES transaction processing for merchant {}", request.merchant());
 
         // Establish TRANSACTION_REQUEST scoped context for entire operation
         return ScopedValue.where(TRANSACTION_REQUEST, request).call(() -> {
             try {
+                ValidationResult outcome;
+                // Keeps the Card so it can be used for the transfer after the scope closes
+                AtomicReference<Card> validatedCard = new AtomicReference<>();
+
                 // Level 1: Global scope with parallel merchant + consumer paths
-                try (var globalScope = StructuredTaskScope.open()) {
+                // The first Failure cancels the scope and is returned by join(), no exception needed
+                try (var globalScope = StructuredTaskScope.open(new FirstFailureJoiner(),
+                        cfg -> cfg.withTimeout(deadline))) {
 
                     // PATH A: Fork merchant validation
                     createValidationTask(merchantValidationService, globalScope);
-                    
+
                     // PATH B: Fork consumer validation (card + nested validations)
-                    // Returns CardValidationResult so we can extract the Card after join
-                    StructuredTaskScope.Subtask<Card> consumerValidation =
-                        globalScope.fork(() -> {
-                            // Sequential: Validate card first
-                            CardValidationResult cardResult = cardValidationService.validate();
-
-                            // Pattern match on card result
-                            Card card = switch (cardResult) {
-                                case CardValidationResult.Success(Card c) -> c;
-                                case CardValidationResult.Failure(String msg) ->
-                                    throw new com.example.services.ValidationException(msg);
-                            };
+                    globalScope.fork(() -> switch (cardValidationService.validate()) {
+                        case CardValidationResult.Failure(String msg) -> ValidationResult.failure(msg);
+                        case CardValidationResult.Success(Card card) -> {
+                            validatedCard.set(card);
 
                             // Establish CARD scoped context for nested validations
-                            return ScopedValue.where(CARD, card).call(() -> {
+                            yield ScopedValue.where(CARD, card).call(() -> {
                                 // Level 2: Nested scope with parallel balance/expiration/pin
-                                try (var consumerScope = StructuredTaskScope.open()) {
+                                try (var consumerScope = StructuredTaskScope.open(new FirstFailureJoiner())) {
 
                                     // Fork parallel validations (inherit both scoped values)
                                     createValidationTask(balanceService, consumerScope);
                                     createValidationTask(expirationService, consumerScope);
                                     createValidationTask(pinValidationService, consumerScope);
 
-                                    // Wait for all nested validations
-                                    consumerScope.join();
-
-                                    // Return the CardValidationResult with the card
-                                    return card;
+                                    // Wait for all nested validations, or the first failure
+                                    return consumerScope.join();
                                 }
                             });
-                        });
-
-                    // Wait for both parallel paths (merchant + consumer)
-                    globalScope.join();
-
-                    Card card = consumerValidation.get();
+                        }
+                    });
 
-                    // All validations passed - perform transfer
-                    // Re-establish CARD context for transfer
-                    return ScopedValue.where(CARD, card).call(() -> {
-                        balanceService.transfer();
+                    // Wait for both parallel paths (merchant + consumer), or the first failure
+                    outcome = globalScope.join();
+                }
 
-                        long processingTime = System.currentTimeMillis() - startTime;
-                        String transactionId = java.util.UUID.randomUUID().toString();
-                        logger.info("✅ SCOPED VALUES transaction completed: {} (in {}ms)",
-                                   transactionId, processingTime);
-                        return TransactionResult.success(transactionId, request.amount(), processingTime);
-                    });
+                if (outcome instanceof ValidationResult.Failure(String msg)) {
+                    // The scope is closed: cancelled validations are done, release whatever was held
+                    balanceService.releaseAmount(request);
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    logger.info("❌ SCOPED VALUES transaction failed: {} (in {}ms)", msg, processingTime);
+                    return TransactionResult.failure(msg, processingTime);
                 }
 
-            } catch (Exception e) {
+                // All validations passed - perform transfer
+                // Re-establish CARD context for transfer
+                return ScopedValue.where(CARD, validatedCard.get()).call(() -> {
+                    balanceService.transfer();
+
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    String transactionId = request.transactionId();
+                    logger.info("✅ SCOPED VALUES transaction completed: {} (in {}ms)",
+                               transactionId, processingTime);
+                    return TransactionResult.success(transactionId, request.amount(), processingTime);
+                });
+            } catch (StructuredTaskScope.TimeoutException e) {
+                // The scope is closed: cancelled validations are done, release whatever was held
+                balanceService.releaseAmount(request);
+                timeouts.increment();
+                long processingTime = System.currentTimeMillis() - startTime;
+                logger.info("⏱️ SCOPED VALUES transaction timed out (in {}ms)", processingTime);
+                return TransactionResult.timeout(deadline, processingTime);
+            } catch (StructuredTaskScope.FailedException e) {
+                // A validation threw (an error, not a decline), or a service was at capacity
+                balanceService.releaseAmount(request);
                 long processingTime = System.currentTimeMillis() - startTime;
-                String failureMessage = e.getMessage();
-                logger.info("❌ SCOPED VALUES transaction failed: {} (in {}ms)",
-                           failureMessage, processingTime);
-                return TransactionResult.failure(failureMessage, processingTime);
+                Throwable cause = StructuredProcessor.failureCause(e);
+                if (cause instanceof BulkheadFullException) {
+                    logger.info("🚧 SCOPED VALUES transaction rejected: {} (in {}ms)", cause.getMessage(), processingTime);
+                    return TransactionResult.rejected(cause.getMessage(), processingTime);
+                }
+                logger.error("❌ SCOPED VALUES transaction failed: {} (in {}ms)",
+                           cause.getMessage(), processingTime, e);
+                return TransactionResult.failure(cause.getMessage(), processingTime);
             }
         });
     }
 
     /**
-     * Creates a validation task that throws ValidationException on failure.
-     * Pattern matches on ValidationResult and propagates failures as exceptions
-     * for fail-fast behavior in structured concurrency.
+     * Forks a validation whose Failure result is handled by the scope's {@link FirstFailureJoiner}.
      */
     private void createValidationTask(
         ScopedValidationService service,
-        StructuredTaskScope<Object, Void> scope
+        StructuredTaskScope<ValidationResult, ValidationResult> scope
     ) {
-        scope.fork(() -> {
-            if (service.validate() instanceof ValidationResult.Failure(String msg)) {
-                throw new com.example.services.ValidationException(msg);
-            }
-        });
+        scope.fork(service::validate);
     }
 }
@@ -4,199 +4,170 @@ import com.example.constants.ServiceDelays;
 import com.example.model.Card;
 import com.example.model.TransactionRequest;
 import com.example.model.ValidationResult;
+import com.example.persistence.Journal;
+import com.example.persistence.JournalEntry;
+import com.example.persistence.JournalEntry.Held;
+import com.example.persistence.JournalEntry.Released;
+import com.example.persistence.Recoverable;
 import com.example.repository.CardRepository;
+import com.example.resilience.Bulkhead;
+import com.example.resilience.Hedging;
 import com.example.utils.DemoUtil;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.math.BigDecimal;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
-import static java.math.BigDecimal.ZERO;
 
+// Rebuilt from the journal on startup, see JournalProducer
 @ApplicationScoped
-public class BalanceService implements CardAwareValidationService {
+public class BalanceService implements CardAwareValidationService, Recoverable {
     private static final Logger logger = LogManager.getLogger(BalanceService.class);
 
     private final CardRepository cardRepository;
 
-    // Pending transactions by card number (tracks which transactions have locked funds)
-    private final ConcurrentHashMap<String, Set<TransactionRequest>> pendingTransactions = new ConcurrentHashMap<>();
+    // Holds funds and mutates balances (lock-based or lock-free, see balance.engine)
+    private final ReservationEngine reservationEngine;
 
-    // Locks per card number for thread-safe operations
-    private final ConcurrentHashMap<String, Lock> cardLocks = new ConcurrentHashMap<>();
+    // Records holds and releases, see persistence.wal.enabled
+    private final Journal journal;
+
+    // The reservation, bounded by bulkhead.balance.max-concurrent and hedged if slow (see hedging.balance.enabled);
+    // safe since reserve is idempotent per request
+    private final CardAwareValidationService reservation;
+
+    // Holds still open in the journal replayed so far, by transaction id (only used during recovery)
+    private final Map<String, Held> interruptedHolds = new LinkedHashMap<>();
 
-    @Inject
     public BalanceService(CardRepository cardRepository) {
-        this.cardRepository = cardRepository;
+        this(cardRepository, new LockingReservationEngine(cardRepository));
     }
 
-    private Lock getLock(String cardNumber) {
-        return cardLocks.computeIfAbsent(cardNumber, _ -> new ReentrantLock());
+    public BalanceService(CardRepository cardRepository, ReservationEngine reservationEngine) {
+        this(cardRepository, reservationEngine, Journal.NONE);
     }
 
-    private Set<TransactionRequest> getPendingTransactions(String cardNumber) {
-        return pendingTransactions.computeIfAbsent(cardNumber, _ -> new HashSet<>());
+    public BalanceService(CardRepository cardRepository, ReservationEngine reservationEngine, Journal journal) {
+        this(cardRepository, reservationEngine, journal, Hedging.NONE);
     }
 
-    @Override
-    public ValidationResult validate(TransactionRequest request, @NotNull Card card) {
-        DemoUtil.simulateNetworkDelay(ServiceDelays.BALANCE_VALIDATION_DELAY);
-
-        String cardNumber = request.cardNumber();
-        BigDecimal amount = request.amount();
+    public BalanceService(CardRepository cardRepository, ReservationEngine reservationEngine, Journal journal,
+                          Hedging hedging) {
+        this(cardRepository, reservationEngine, journal, hedging, Bulkhead.NONE);
+    }
 
-        Lock lock = getLock(cardNumber);
-        lock.lock();
-        try {
-            // Use card balance directly
-            BigDecimal cardBalance = card.balance();
-            BigDecimal availableBalance = cardBalance.subtract(getLockedAmount(cardNumber));
+    @Inject
+    public BalanceService(CardRepository cardRepository, ReservationEngine reservationEngine, Journal journal,
+                          @Named("balance") Hedging hedging, @Named("balance") Bulkhead bulkhead) {
+        this.cardRepository = cardRepository;
+        this.reservationEngine = reservationEngine;
+        this.journal = journal;
+        // A hedge is one more call to the service, it needs a slot of its own
+        this.reservation = new HedgedCardAwareValidationService(
+                new BulkheadCardAwareValidationService(this::reserve, bulkhead), hedging);
+    }
 
-            if (availableBalance.compareTo(amount) < 0) {
-                return ValidationResult.failure("Balance Check: Insufficient funds (available: " + availableBalance + ")");
+    @Override
+    public void recover(JournalEntry entry) {
+        switch (entry) {
+            case Held held -> interruptedHolds.put(held.transactionId(), held);
+            case Released released -> interruptedHolds.remove(released.transactionId());
+            default -> {
             }
-
-            // Add transaction to pending set
-            lockAmount(cardNumber, request);
-
-            logger.info("🔒 Locked {} on card {}", amount, cardNumber.substring(cardNumber.length() - 4));
-            return ValidationResult.success();
-        } finally {
-            lock.unlock();
         }
     }
 
     /**
-     * Releases (unlocks) the amount that was locked during validation.
-     * Called when the transaction fails.
-     * Idempotent - safe to call even if transaction was never locked.
+     * Transactions do not survive a restart: a hold still open in the journal belongs to a transaction the
+     * restart interrupted, which either never debited or debited before its release was recorded.
+     * Either way nobody will release it anymore, so it is released now instead of locking the funds forever.
      */
-    public void releaseAmount(TransactionRequest request) {
-        String cardNumber = request.cardNumber();
-        BigDecimal amount = request.amount();
-
-        Lock lock = getLock(cardNumber);
-        lock.lock();
-        try {
-            if (releaseAmount(cardNumber, request)) {
-                logger.info("🔓 Unlocked {} on card {}", amount, cardNumber.substring(cardNumber.length() - 4));
-            }
-        } finally {
-            lock.unlock();
+    @Override
+    public void recovered() {
+        for (Held held : interruptedHolds.values()) {
+            journal.append(new Released(held.cardNumber(), held.amountCents(), held.transactionId()));
+        }
+        if (!interruptedHolds.isEmpty()) {
+            logger.info("Released {} holds of transactions interrupted by a restart", interruptedHolds.size());
         }
+        interruptedHolds.clear();
     }
 
-    /**
-     * Transfers the amount from card to merchant.
-     * Uses Card object directly to get current balance instead of repository lookup.
-     * Consumes the locked amount and debits the balance.
-     */
-    public void transfer(TransactionRequest request, @NotNull Card card) {
-
-        String cardNumber = request.cardNumber();
-        String merchant = request.merchant();
-        BigDecimal amount = request.amount();
-
-        Lock lock = getLock(cardNumber);
-        lock.lock();
-        try {
-            // Use card balance directly - no repository lookup needed
-            BigDecimal currentBalance = card.balance();
-
-            // Release the lock since we've consumed it
-            releaseAmount(cardNumber, request);
-
-            // Debit the actual balance and update in CardRepository (copy-on-write)
-            BigDecimal newBalance = currentBalance.subtract(amount);
-            Card updatedCard = new Card(
-                card.cardNumber(),
-                card.expirationDate(),
-                card.pin(),
-                newBalance,
-                card.description()
-            );
-            cardRepository.save(updatedCard);
-
-            // now we should put the money in the merchant account
-
-            logger.info("💸 Transferring {} from card {} to {}", amount, cardNumber.substring(cardNumber.length() - 4), merchant);
-        } finally {
-            lock.unlock();
+    @Override
+    public ValidationResult validate(TransactionRequest request, @NotNull Card card) {
+        // Journaled once, whether the hold was made by the first attempt or by its hedge
+        ValidationResult result = reservation.validate(request, card);
+        if (ValidationResult.success(result)) {
+            journal.append(new Held(request));
+            String cardNumber = request.cardNumber();
+            logger.info("🔒 Locked {} on card {}", request.amount(), cardNumber.substring(cardNumber.length() - 4));
         }
+        return result;
     }
 
-    /**
-     * Private helper - removes transaction from pending set.
-     * Returns true if transaction was actually removed (was pending).
-     */
-    private boolean releaseAmount(String cardNumber, TransactionRequest request) {
-        return getPendingTransactions(cardNumber).remove(request);
+    private ValidationResult reserve(TransactionRequest request, Card card) {
+        DemoUtil.simulateNetworkDelay(ServiceDelays.BALANCE_VALIDATION_DELAY);
+
+        return reservationEngine.reserve(request, card);
     }
 
     /**
-     * Calculates total locked amount by summing all pending transaction amounts.
+     * Releases (unlocks) the amount that was locked during validation.
+     * Called when the transaction fails.
+     * Idempotent - safe to call even if transaction was never locked.
      */
-    private BigDecimal getLockedAmount(String cardNumber) {
-        return getPendingTransactions(cardNumber).stream()
-                     .map(TransactionRequest::amount)
-                     .reduce(ZERO, BigDecimal::add);
+    public void releaseAmount(TransactionRequest request) {
+        if (reservationEngine.release(request)) {
+            journal.append(new Released(request));
+            String cardNumber = request.cardNumber();
+            logger.info("🔓 Unlocked {} on card {}", request.amount(), cardNumber.substring(cardNumber.length() - 4));
+        }
     }
 
     /**
-     * Adds transaction to the pending set for this card.
+     * Transfers the amount from card to merchant.
+     * Consumes the locked amount and debits the live balance in CardRepository,
+     * looked up by the request's card number rather than a possibly stale validation snapshot.
      */
-    private void lockAmount(String cardNumber, TransactionRequest request) {
-        getPendingTransactions(cardNumber).add(request);
+    public void transfer(TransactionRequest request) {
+        // CardRepository records the debit first: a crash before the release is recorded keeps the hold, never loses the debit
+        reservationEngine.transfer(request);
+        journal.append(new Released(request));
+
+        // now we should put the money in the merchant account
+
+        String cardNumber = request.cardNumber();
+        logger.info("💸 Transferring {} from card {} to {}", request.amount(), cardNumber.substring(cardNumber.length() - 4), request.merchant());
     }
 
     /**
-     * Returns all card balances (for Web UI).
+     * Returns all card balances in cents (for Web UI).
      */
-    public Map<String, BigDecimal> getAllBalances() {
+    public Map<String, Long> getAllBalancesCents() {
         return cardRepository.findAll().stream()
                 .collect(HashMap::new,
-                        (map, card) -> map.put(card.cardNumber(), card.balance()),
+                        (map, card) -> map.put(card.cardNumber(), card.balanceCents()),
                         HashMap::putAll);
     }
 
     /**
-     * Returns balance for specific card (for Web UI).
+     * Returns balance in cents for specific card (for Web UI).
      */
-    public BigDecimal getBalance(String cardNumber) {
+    public long getBalanceCents(String cardNumber) {
         return cardRepository.findByCardNumber(cardNumber)
-                .map(Card::balance)
-                .orElse(ZERO);
+                .map(Card::balanceCents)
+                .orElse(0L);
     }
 
     /**
-     * Sets balance for specific card (for Web UI demo purposes).
+     * Sets balance in cents for specific card (for Web UI demo purposes).
      */
-    public void setBalance(String cardNumber, BigDecimal newBalance) {
-        Lock lock = getLock(cardNumber);
-        lock.lock();
-        try {
-            cardRepository.findByCardNumber(cardNumber).ifPresent(card -> {
-                Card updatedCard = new Card(
-                    card.cardNumber(),
-                    card.expirationDate(),
-                    card.pin(),
-                    newBalance,
-                    card.description()
-                );
-                cardRepository.save(updatedCard);
-            });
-        } finally {
-            lock.unlock();
-        }
+    public void setBalanceCents(String cardNumber, long newBalanceCents) {
+        reservationEngine.setBalanceCents(cardNumber, newBalanceCents);
     }
 }
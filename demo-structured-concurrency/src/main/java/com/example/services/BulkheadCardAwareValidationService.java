@@ -0,0 +1,31 @@
+package com.example.services;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.resilience.Bulkhead;
+
+/**
+ * Runs a {@link CardAwareValidationService} through a {@link Bulkhead}: when the service already has as many
+ * calls as it can take, the validation fails with BulkheadFullException instead of piling up.
+ */
+public class BulkheadCardAwareValidationService implements CardAwareValidationService {
+
+    private final CardAwareValidationService delegate;
+    private final Bulkhead bulkhead;
+
+    public BulkheadCardAwareValidationService(CardAwareValidationService delegate, Bulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ValidationResult validate(TransactionRequest request, Card card) {
+        try {
+            return bulkhead.call(() -> delegate.validate(request, card));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+    }
+}
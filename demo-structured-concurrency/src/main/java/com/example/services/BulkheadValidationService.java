@@ -0,0 +1,30 @@
+package com.example.services;
+
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.resilience.Bulkhead;
+
+/**
+ * Runs a {@link ValidationService} through a {@link Bulkhead}: when the service already has as many calls as it
+ * can take, the validation fails with BulkheadFullException instead of piling up.
+ */
+public class BulkheadValidationService implements ValidationService {
+
+    private final ValidationService delegate;
+    private final Bulkhead bulkhead;
+
+    public BulkheadValidationService(ValidationService delegate, Bulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ValidationResult validate(TransactionRequest request) {
+        try {
+            return bulkhead.call(() -> delegate.validate(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+    }
+}
@@ -1,36 +1,191 @@
 package com.example.services;
 
+import com.example.cache.CardCache;
+import com.example.cache.CuckooFilter;
+import com.example.cache.SingleFlight;
 import com.example.constants.ServiceDelays;
 import com.example.model.Card;
 import com.example.model.CardValidationResult;
 import com.example.model.TransactionRequest;
+import com.example.repository.CardListener;
 import com.example.repository.CardRepository;
+import com.example.resilience.Bulkhead;
 import com.example.utils.DemoUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 @ApplicationScoped
 public class CardValidationService {  // NO LONGER implements ValidationService
 
+    public static final long DEFAULT_FILTER_EXPECTED_CARDS = 1_000_000;
+    public static final double DEFAULT_FILTER_FALSE_POSITIVE_RATE = 0.001;
+
     private final CardRepository cardRepository;
     private static final CardValidationResult.Failure NOT_FOUND = new CardValidationResult.Failure("Card Not Found");
 
-    @Inject
+    // Card numbers of the repository: an unknown card is rejected without the network hop, see card-filter
+    private final CuckooFilter knownCards;
+    private final LongAdder filterRejections = new LongAdder();
+    private final LongAdder filterFalsePositives = new LongAdder();
+
+    // Cards looked up recently, see card-cache
+    private final CardCache cardCache;
+
+    // The remote card lookup, bounded by bulkhead.card.max-concurrent
+    private final Bulkhead bulkhead;
+
+    // Concurrent validations of the same card (retries, bursts) share one lookup
+    private final SingleFlight<String, Optional<Card>> lookups = new SingleFlight<>("card-lookup");
+
     public CardValidationService(CardRepository cardRepository) {
+        this(cardRepository, CardCache.NONE, DEFAULT_FILTER_EXPECTED_CARDS, DEFAULT_FILTER_FALSE_POSITIVE_RATE);
+    }
+
+    public CardValidationService(CardRepository cardRepository, CardCache cardCache, long expectedCards,
+                                 double falsePositiveRate) {
+        this(cardRepository, cardCache, expectedCards, falsePositiveRate, Bulkhead.NONE);
+    }
+
+    /**
+     * Publishes the card filter metrics (payment.card.filter.*) and the coalesced lookups
+     * (payment.card.lookup.coalesced) in the registry.
+     */
+    @Inject
+    public CardValidationService(CardRepository cardRepository,
+                                 CardCache cardCache,
+                                 @ConfigProperty(name = "card-filter.expected-cards", defaultValue = "1000000") long expectedCards,
+                                 @ConfigProperty(name = "card-filter.false-positive-rate", defaultValue = "0.001") double falsePositiveRate,
+                                 @Named("card") Bulkhead bulkhead,
+                                 MeterRegistry registry) {
+        this(cardRepository, cardCache, expectedCards, falsePositiveRate, bulkhead);
+
+        Gauge.builder("payment.card.filter.memory", knownCards, CuckooFilter::memoryBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("payment.card.filter.false.positive.rate", knownCards, CuckooFilter::falsePositiveRate)
+                .register(registry);
+        Gauge.builder("payment.card.filter.size", knownCards, CuckooFilter::size)
+                .register(registry);
+        FunctionCounter.builder("payment.card.filter.rejections", filterRejections, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("payment.card.filter.false.positives", filterFalsePositives, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("payment.card.lookup.coalesced", lookups, SingleFlight::coalescedCount)
+                .register(registry);
+    }
+
+    public CardValidationService(CardRepository cardRepository, CardCache cardCache, long expectedCards,
+                                 double falsePositiveRate, Bulkhead bulkhead) {
         this.cardRepository = cardRepository;
+        this.cardCache = cardCache;
+        this.bulkhead = bulkhead;
+        this.knownCards = new CuckooFilter(expectedCards, falsePositiveRate);
+
+        // Listen before loading, so a card added meanwhile is not missed (added twice only costs a slot)
+        cardRepository.addListener(new CardListener() {
+            @Override
+            public void cardAdded(String cardNumber) {
+                knownCards.add(cardNumber);
+            }
+
+            // Balance changes keep the cached card: the balance is read from the repository
+            @Override
+            public void cardUpdated(String cardNumber) {
+                cardCache.invalidate(cardNumber);
+            }
+
+            @Override
+            public void cardRemoved(String cardNumber) {
+                cardCache.invalidate(cardNumber);
+                knownCards.remove(cardNumber);
+            }
+        });
+        // Card numbers only: no Card of a large (off-heap) store is built on the heap
+        cardRepository.forEachCardNumber(knownCards::add);
     }
 
     public CardValidationResult validate(TransactionRequest request) {
-        DemoUtil.simulateNetworkDelay(ServiceDelays.CARD_VALIDATION_DELAY);
+        String cardNumber = request.cardNumber();
+
+        // Definitely unknown (e.g. card testing with random numbers): no need to ask the network
+        if (!knownCards.mightContain(cardNumber)) {
+            filterRejections.increment();
+            return NOT_FOUND;
+        }
 
+        // Seen recently: no need to ask the network either (the balance is checked against the repository later)
+        Card cached = cardCache.get(cardNumber);
+        if (cached != null) {
+            return new CardValidationResult.Success(cached);
+        }
+        return load(cardNumber);
+    }
+
+    /**
+     * Validates the card against the card lookup even if it is cached, for callers that only use the cache
+     * to speculate (see {@link #cachedCard(String)}).
+     */
+    public CardValidationResult validateUncached(TransactionRequest request) {
         String cardNumber = request.cardNumber();
+        if (!knownCards.mightContain(cardNumber)) {
+            filterRejections.increment();
+            return NOT_FOUND;
+        }
+        return load(cardNumber);
+    }
+
+    /**
+     * @return the card as last looked up, possibly out of date, or null if not cached; never waits
+     */
+    public Card cachedCard(String cardNumber) {
+        return cardCache.get(cardNumber);
+    }
+
+    private CardValidationResult load(String cardNumber) {
+        Optional<Card> card;
+        try {
+            // One slot per lookup, however many validations share it
+            card = lookups.load(cardNumber, () -> boundedLookup(cardNumber));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+        if (card.isEmpty()) {
+            return NOT_FOUND;
+        }
+        return new CardValidationResult.Success(card.get());
+    }
+
+    private Optional<Card> boundedLookup(String cardNumber) {
+        try {
+            return bulkhead.call(() -> lookup(cardNumber));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+    }
+
+    private Optional<Card> lookup(String cardNumber) {
+        // Taken before the read: a change of the card invalidated meanwhile keeps the card read here out of the cache
+        long stamp = cardCache.stamp(cardNumber);
+        DemoUtil.simulateNetworkDelay(ServiceDelays.CARD_VALIDATION_DELAY);
 
         // Lookup card in repository
-        return cardRepository.findByCardNumber(cardNumber)
-                .<CardValidationResult>map(CardValidationResult.Success::new)
-                .orElse(NOT_FOUND);
+        Optional<Card> card = cardRepository.findByCardNumber(cardNumber);
+        if (card.isEmpty()) {
+            filterFalsePositives.increment();
+        } else {
+            cardCache.put(card.get(), stamp);
+        }
+        return card;
     }
 
 }
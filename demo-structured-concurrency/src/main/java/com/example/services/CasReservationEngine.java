@@ -0,0 +1,112 @@
+package com.example.services;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.repository.CardRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free reservation engine: each card has one immutable {@link CardState} (held total in cents and
+ * balance version) replaced with compare-and-set, so concurrent transactions on a hot card never block
+ * each other.
+ * <p>
+ * The balance itself stays in {@link CardRepository}, as with {@link LockingReservationEngine}.
+ * Every balance change (transfer, set balance) bumps the version after writing the repository, and a
+ * reservation reads the state before the balance. Its compare-and-set then only succeeds if the balance
+ * it checked against is still current: a held total that went back to the same value through a transfer
+ * and a new hold (ABA) no longer matches.
+ * <p>
+ * The set of holding transactions makes reserve and release idempotent. A transaction is counted in the
+ * held total before it joins the set and leaves the set before it is subtracted, so between the two
+ * steps the available balance is under-reported, never over-reported.
+ */
+public class CasReservationEngine implements ReservationEngine {
+
+    private final CardRepository cardRepository;
+
+    /**
+     * Held total of a card and the version of its balance, replaced as a whole.
+     */
+    private record CardState(long reservedCents, long balanceVersion) {
+        CardState hold(long amountCents) {
+            return new CardState(reservedCents + amountCents, balanceVersion);
+        }
+
+        CardState balanceChanged(long releasedCents) {
+            return new CardState(reservedCents - releasedCents, balanceVersion + 1);
+        }
+    }
+
+    private static final CardState EMPTY = new CardState(0, 0);
+
+    // State by card number, updated atomically
+    private final ConcurrentHashMap<String, AtomicReference<CardState>> states = new ConcurrentHashMap<>();
+
+    // Held amount in cents by transaction id (identical purchases are separate holds, hedged attempts share one)
+    private final ConcurrentHashMap<String, Long> holds = new ConcurrentHashMap<>();
+
+    public CasReservationEngine(CardRepository cardRepository) {
+        this.cardRepository = cardRepository;
+    }
+
+    private AtomicReference<CardState> getState(String cardNumber) {
+        return states.computeIfAbsent(cardNumber, _ -> new AtomicReference<>(EMPTY));
+    }
+
+    @Override
+    public ValidationResult reserve(TransactionRequest request, Card card) {
+        if (holds.containsKey(request.transactionId())) {
+            return ValidationResult.success();
+        }
+        AtomicReference<CardState> state = getState(request.cardNumber());
+        long amountCents = request.amountCents();
+
+        while (true) {
+            // State first: a balance changed after this read also changes the version
+            CardState current = state.get();
+            long availableCents = ReservationEngine.currentBalanceCents(cardRepository, card) - current.reservedCents();
+
+            if (availableCents < amountCents) {
+                return ReservationEngine.insufficientFunds(availableCents);
+            }
+            if (state.compareAndSet(current, current.hold(amountCents))) {
+                break;
+            }
+        }
+
+        if (holds.putIfAbsent(request.transactionId(), amountCents) != null) {
+            // Already holding funds: undo the second hold
+            state.updateAndGet(s -> s.hold(-amountCents));
+        }
+        return ValidationResult.success();
+    }
+
+    @Override
+    public boolean release(TransactionRequest request) {
+        Long heldCents = holds.remove(request.transactionId());
+        if (heldCents == null) {
+            return false;
+        }
+        getState(request.cardNumber()).updateAndGet(s -> s.hold(-heldCents));
+        return true;
+    }
+
+    @Override
+    public void transfer(TransactionRequest request) {
+        // Debit the live balance in CardRepository (atomic read-modify-write), then consume the hold
+        // and bump the balance version in one step
+        cardRepository.debit(request.cardNumber(), request.amountCents());
+        Long heldCents = holds.remove(request.transactionId());
+        long releasedCents = heldCents == null ? 0 : heldCents;
+        getState(request.cardNumber()).updateAndGet(s -> s.balanceChanged(releasedCents));
+    }
+
+    @Override
+    public void setBalanceCents(String cardNumber, long newBalanceCents) {
+        cardRepository.updateBalance(cardNumber, newBalanceCents);
+        getState(cardNumber).updateAndGet(s -> s.balanceChanged(0));
+    }
+}
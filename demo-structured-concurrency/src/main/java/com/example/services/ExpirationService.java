@@ -1,16 +1,22 @@
 package com.example.services;
 
+import com.example.cache.RefreshAheadCache;
 import com.example.constants.ServiceDelays;
 import com.example.model.Card;
 import com.example.model.TransactionRequest;
 import com.example.model.ValidationResult;
+import com.example.resilience.Bulkhead;
 import com.example.utils.DemoUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.time.Duration;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -20,13 +26,54 @@ public class ExpirationService implements CardAwareValidationService {
 
     private static final Logger logger = LogManager.getLogger();
 
-    @Inject
+    // The expiration check, bounded by bulkhead.expiration.max-concurrent
+    private final CardAwareValidationService expirationCheck;
+
+    // Results by request and card expiration dates, see expiration-cache (null when disabled)
+    private final RefreshAheadCardAwareValidationService<String> expirationCache;
+
     public ExpirationService() {
-        // No dependencies
+        this(Bulkhead.NONE);
+    }
+
+    public ExpirationService(Bulkhead bulkhead) {
+        this.expirationCheck = new BulkheadCardAwareValidationService(this::checkExpiration, bulkhead);
+        this.expirationCache = null;
+    }
+
+    @Inject
+    public ExpirationService(@ConfigProperty(name = "expiration-cache.enabled", defaultValue = "false") boolean enabled,
+                             @ConfigProperty(name = "expiration-cache.maximum-size", defaultValue = "1000") long maximumSize,
+                             @ConfigProperty(name = "expiration-cache.ttl", defaultValue = "1m") Duration ttl,
+                             @ConfigProperty(name = "expiration-cache.refresh-ahead", defaultValue = "0.8") double refreshAhead,
+                             @ConfigProperty(name = "expiration-cache.max-concurrent-refreshes", defaultValue = "16") int maxConcurrentRefreshes,
+                             @Named("expiration") Bulkhead bulkhead,
+                             MeterRegistry registry) {
+        this.expirationCheck = new BulkheadCardAwareValidationService(this::checkExpiration, bulkhead);
+        if (!enabled) {
+            this.expirationCache = null;
+            return;
+        }
+        // The result only depends on both dates (and the current month, hence a short TTL), not on the card itself
+        RefreshAheadCache<String, ValidationResult> cache = new RefreshAheadCache<>("expiration", maximumSize,
+                RefreshAheadValidationService.timeToLive(ttl, ttl),
+                refreshAhead, maxConcurrentRefreshes);
+        cache.bindTo(registry);
+        this.expirationCache = new RefreshAheadCardAwareValidationService<>(
+                expirationCheck,
+                (request, card) -> request.expirationDate() + "/" + card.expirationDate(),
+                cache);
     }
 
     @Override
     public ValidationResult validate(TransactionRequest request, @NotNull Card card) {
+        if (expirationCache == null) {
+            return expirationCheck.validate(request, card);
+        }
+        return expirationCache.validate(request, card);
+    }
+
+    private ValidationResult checkExpiration(TransactionRequest request, Card card) {
         DemoUtil.simulateNetworkDelay(ServiceDelays.EXPIRATION_VALIDATION_DELAY);
 
         String expirationDate = request.expirationDate();
@@ -0,0 +1,32 @@
+package com.example.services;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.resilience.Hedging;
+
+/**
+ * Runs a {@link CardAwareValidationService} through a {@link Hedging}: a validation that is slow compared to
+ * the recent ones gets a duplicate, the first result wins. Only for validations that are safe to run twice
+ * (a reservation must be idempotent per request, see {@link ReservationEngine#reserve}).
+ */
+public class HedgedCardAwareValidationService implements CardAwareValidationService {
+
+    private final CardAwareValidationService delegate;
+    private final Hedging hedging;
+
+    public HedgedCardAwareValidationService(CardAwareValidationService delegate, Hedging hedging) {
+        this.delegate = delegate;
+        this.hedging = hedging;
+    }
+
+    @Override
+    public ValidationResult validate(TransactionRequest request, Card card) {
+        try {
+            return hedging.call(() -> delegate.validate(request, card));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.services;
+
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.resilience.Hedging;
+
+/**
+ * Runs a {@link ValidationService} through a {@link Hedging}: a validation that is slow compared to the
+ * recent ones gets a duplicate, the first result wins. Only for validations that are safe to run twice.
+ */
+public class HedgedValidationService implements ValidationService {
+
+    private final ValidationService delegate;
+    private final Hedging hedging;
+
+    public HedgedValidationService(ValidationService delegate, Hedging hedging) {
+        this.delegate = delegate;
+        this.hedging = hedging;
+    }
+
+    @Override
+    public ValidationResult validate(TransactionRequest request) {
+        try {
+            return hedging.call(() -> delegate.validate(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+    }
+}
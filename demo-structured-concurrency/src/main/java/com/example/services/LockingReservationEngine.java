@@ -0,0 +1,107 @@
+package com.example.services;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.repository.CardRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock-based reservation engine: every operation on a card runs under that card's ReentrantLock.
+ */
+public class LockingReservationEngine implements ReservationEngine {
+
+    private final CardRepository cardRepository;
+
+    // Reservation ledgers by card number (tracks which transactions have locked funds and their running total)
+    private final ConcurrentHashMap<String, ReservationLedger> ledgers = new ConcurrentHashMap<>();
+
+    // Locks per card number for thread-safe operations
+    private final ConcurrentHashMap<String, Lock> cardLocks = new ConcurrentHashMap<>();
+
+    public LockingReservationEngine(CardRepository cardRepository) {
+        this.cardRepository = cardRepository;
+    }
+
+    private Lock getLock(String cardNumber) {
+        return cardLocks.computeIfAbsent(cardNumber, _ -> new ReentrantLock());
+    }
+
+    private ReservationLedger getLedger(String cardNumber) {
+        return ledgers.computeIfAbsent(cardNumber, _ -> new ReservationLedger());
+    }
+
+    @Override
+    public ValidationResult reserve(TransactionRequest request, Card card) {
+        String cardNumber = request.cardNumber();
+
+        Lock lock = getLock(cardNumber);
+        lock.lock();
+        try {
+            ReservationLedger ledger = getLedger(cardNumber);
+            if (ledger.isHeld(request)) {
+                return ValidationResult.success();
+            }
+            // Check against the live balance, the card snapshot may predate other transfers
+            long availableCents = ReservationEngine.currentBalanceCents(cardRepository, card) - ledger.lockedCents();
+
+            if (availableCents < request.amountCents()) {
+                return ReservationEngine.insufficientFunds(availableCents);
+            }
+
+            ledger.hold(request);
+            return ValidationResult.success();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean release(TransactionRequest request) {
+        String cardNumber = request.cardNumber();
+
+        Lock lock = getLock(cardNumber);
+        lock.lock();
+        try {
+            return getLedger(cardNumber).release(request);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void transfer(TransactionRequest request) {
+        String cardNumber = request.cardNumber();
+        CardRepository.Queued<?> debit;
+
+        Lock lock = getLock(cardNumber);
+        lock.lock();
+        try {
+            // Release the lock since we've consumed it
+            getLedger(cardNumber).release(request);
+
+            // Debit the live balance in CardRepository (atomic read-modify-write)
+            debit = cardRepository.debitQueued(cardNumber, request.amountCents());
+        } finally {
+            lock.unlock();
+        }
+        // Outside of the card lock: the next transfer of the card shares the group commit
+        debit.await();
+    }
+
+    @Override
+    public void setBalanceCents(String cardNumber, long newBalanceCents) {
+        CardRepository.Queued<?> update;
+        Lock lock = getLock(cardNumber);
+        lock.lock();
+        try {
+            update = cardRepository.updateBalanceQueued(cardNumber, newBalanceCents);
+        } finally {
+            lock.unlock();
+        }
+        update.await();
+    }
+}
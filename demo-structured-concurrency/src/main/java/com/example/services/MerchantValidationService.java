@@ -1,19 +1,82 @@
 package com.example.services;
 
+import com.example.cache.RefreshAheadCache;
 import com.example.constants.ServiceDelays;
 import com.example.model.TransactionRequest;
 import com.example.model.ValidationResult;
+import com.example.resilience.Bulkhead;
+import com.example.resilience.Hedging;
 import com.example.utils.DemoUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
 
 @ApplicationScoped
 public class MerchantValidationService implements ValidationService {
 
+    // The merchant check, bounded by bulkhead.merchant.max-concurrent and hedged if slow (see hedging.merchant.enabled)
+    private final ValidationService merchantCheck;
+
+    // Merchant statuses by merchant name, see merchant-cache (null when disabled)
+    private final RefreshAheadValidationService<String> merchantCache;
+
+    public MerchantValidationService() {
+        this.merchantCheck = request -> checkMerchant(request.merchant());
+        this.merchantCache = null;
+    }
+
+    @Inject
+    public MerchantValidationService(@ConfigProperty(name = "merchant-cache.enabled", defaultValue = "false") boolean enabled,
+                                     @ConfigProperty(name = "merchant-cache.maximum-size", defaultValue = "10000") long maximumSize,
+                                     @ConfigProperty(name = "merchant-cache.allowed-ttl", defaultValue = "10m") Duration allowedTtl,
+                                     @ConfigProperty(name = "merchant-cache.blocked-ttl", defaultValue = "1m") Duration blockedTtl,
+                                     @ConfigProperty(name = "merchant-cache.refresh-ahead", defaultValue = "0.8") double refreshAhead,
+                                     @ConfigProperty(name = "merchant-cache.max-concurrent-refreshes", defaultValue = "16") int maxConcurrentRefreshes,
+                                     @Named("merchant") Hedging hedging,
+                                     @Named("merchant") Bulkhead bulkhead,
+                                     MeterRegistry registry) {
+        // A hedge is one more call to the service, it needs a slot of its own
+        this.merchantCheck = new HedgedValidationService(
+                new BulkheadValidationService(request -> checkMerchant(request.merchant()), bulkhead), hedging);
+        if (!enabled) {
+            this.merchantCache = null;
+            return;
+        }
+        // Blocked merchants are cached too (negative caching), for less time so an unblock shows up sooner
+        RefreshAheadCache<String, ValidationResult> cache = new RefreshAheadCache<>("merchant", maximumSize,
+                RefreshAheadValidationService.timeToLive(allowedTtl, blockedTtl),
+                refreshAhead, maxConcurrentRefreshes);
+        cache.bindTo(registry);
+        this.merchantCache = new RefreshAheadValidationService<>(merchantCheck, TransactionRequest::merchant, cache);
+    }
+
     @Override
     public ValidationResult validate(TransactionRequest request) {
-        DemoUtil.simulateNetworkDelay(ServiceDelays.MERCHANT_VALIDATION_DELAY);
+        if (merchantCache == null) {
+            return merchantCheck.validate(request);
+        }
+        return merchantCache.validate(request);
+    }
 
-        String merchant = request.merchant();
+    /**
+     * Forgets the cached status of the merchant (e.g. after it was blocked or unblocked).
+     *
+     * @return false if the merchant cache is disabled
+     */
+    public boolean invalidate(String merchant) {
+        if (merchantCache == null) {
+            return false;
+        }
+        merchantCache.invalidate(merchant);
+        return true;
+    }
+
+    private ValidationResult checkMerchant(String merchant) {
+        DemoUtil.simulateNetworkDelay(ServiceDelays.MERCHANT_VALIDATION_DELAY);
 
         // Simple check: fail if merchant contains "BLOCKED" for demo purposes
         if (merchant.toUpperCase().contains("BLOCKED")) {
@@ -4,26 +4,39 @@ import com.example.constants.ServiceDelays;
 import com.example.model.Card;
 import com.example.model.TransactionRequest;
 import com.example.model.ValidationResult;
+import com.example.resilience.Bulkhead;
 import com.example.utils.DemoUtil;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.validation.constraints.NotNull;
 
 @ApplicationScoped
 public class PinValidationService implements CardAwareValidationService {
 
-    @Inject
+    // The PIN check, bounded by bulkhead.pin.max-concurrent
+    private final CardAwareValidationService pinCheck;
+
     public PinValidationService() {
-        // No dependencies
+        this(Bulkhead.NONE);
+    }
+
+    @Inject
+    public PinValidationService(@Named("pin") Bulkhead bulkhead) {
+        this.pinCheck = new BulkheadCardAwareValidationService(this::checkPin, bulkhead);
     }
 
     @Override
     public ValidationResult validate(TransactionRequest request, @NotNull Card card) {
+        return pinCheck.validate(request, card);
+    }
+
+    private ValidationResult checkPin(TransactionRequest request, Card card) {
         DemoUtil.simulateNetworkDelay(ServiceDelays.PIN_VALIDATION_DELAY);
 
         String requestPin = request.pin();
 
-        // Compare request PIN vs card PIN
+        // Compare request PIN vs card PIN (none for a card recovered from the journal until it is set again)
         if (!requestPin.equals(card.pin())) {
             return ValidationResult.failure("PIN Validation: Invalid PIN");
         }
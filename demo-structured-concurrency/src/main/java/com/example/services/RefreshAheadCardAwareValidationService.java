@@ -0,0 +1,46 @@
+package com.example.services;
+
+import com.example.cache.RefreshAheadCache;
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+
+import java.util.function.BiFunction;
+
+/**
+ * Caches the results of a {@link CardAwareValidationService} by a key derived from the request and the card,
+ * reloading frequently used keys in the background before they expire, see {@link RefreshAheadCache}.
+ * The key must cover every card field the result depends on (e.g. card number and expiration date),
+ * and services checking changing state such as the balance must not be wrapped.
+ */
+public class RefreshAheadCardAwareValidationService<K> implements CardAwareValidationService {
+
+    private final CardAwareValidationService delegate;
+    private final BiFunction<TransactionRequest, Card, K> key;
+    private final RefreshAheadCache<K, ValidationResult> cache;
+
+    public RefreshAheadCardAwareValidationService(CardAwareValidationService delegate,
+                                                  BiFunction<TransactionRequest, Card, K> key,
+                                                  RefreshAheadCache<K, ValidationResult> cache) {
+        this.delegate = delegate;
+        this.key = key;
+        this.cache = cache;
+    }
+
+    @Override
+    public ValidationResult validate(TransactionRequest request, Card card) {
+        try {
+            return cache.get(key.apply(request, card), () -> delegate.validate(request, card));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+    }
+
+    /**
+     * Forgets the cached result of the key, the next validation calls the delegate.
+     */
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.services;
+
+import com.example.cache.RefreshAheadCache;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Caches the results of a {@link ValidationService} by a key derived from the request (what the result
+ * depends on), reloading frequently used keys in the background before they expire, see {@link RefreshAheadCache}.
+ * <p>
+ * The background reload calls the delegate with the request that found the entry close to expiry, so the
+ * delegate must not depend on ScopedValue bindings of the caller.
+ */
+public class RefreshAheadValidationService<K> implements ValidationService {
+
+    private final ValidationService delegate;
+    private final Function<TransactionRequest, K> key;
+    private final RefreshAheadCache<K, ValidationResult> cache;
+
+    public RefreshAheadValidationService(ValidationService delegate, Function<TransactionRequest, K> key,
+                                         RefreshAheadCache<K, ValidationResult> cache) {
+        this.delegate = delegate;
+        this.key = key;
+        this.cache = cache;
+    }
+
+    /**
+     * Time to live of a validation result: successTtl for a success, failureTtl for a failure (negative caching).
+     */
+    public static Function<ValidationResult, Duration> timeToLive(Duration successTtl, Duration failureTtl) {
+        return result -> ValidationResult.success(result) ? successTtl : failureTtl;
+    }
+
+    @Override
+    public ValidationResult validate(TransactionRequest request) {
+        try {
+            return cache.get(key.apply(request), () -> delegate.validate(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Service interrupted", e);
+        }
+    }
+
+    /**
+     * Forgets the cached result of the key, the next validation calls the delegate.
+     */
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+}
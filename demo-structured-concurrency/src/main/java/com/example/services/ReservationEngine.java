@@ -0,0 +1,62 @@
+package com.example.services;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.repository.CardRepository;
+import com.example.utils.MoneyUtil;
+
+/**
+ * Concurrency strategy behind {@link BalanceService}: owns the funds held by in-flight
+ * transactions and the balance mutations of each card.
+ * All amounts are in cents (see {@link MoneyUtil}).
+ * <p>
+ * Implementations:
+ * - {@link LockingReservationEngine}: one ReentrantLock per card
+ * - {@link CasReservationEngine}: lock-free, compare-and-set on an immutable per-card snapshot
+ * - {@link ShardedReservationEngine}: cards sharded over single-writer lanes (one thread per lane)
+ */
+public interface ReservationEngine {
+
+    /**
+     * Holds the transaction amount if the card has enough available balance
+     * (current stored balance minus the amounts already held).
+     * Idempotent per transaction id: the transaction already holding funds succeeds without a second hold
+     * (retried or hedged validations), while an identical but separate purchase needs funds of its own.
+     *
+     * @param request The transaction whose amount should be held
+     * @param card The card object (required, never null), its balance is only used if the card is no longer stored
+     * @return ValidationResult indicating success or insufficient funds
+     */
+    ValidationResult reserve(TransactionRequest request, Card card);
+
+    /**
+     * Releases the amount held by the transaction.
+     * Idempotent - safe to call even if transaction was never held.
+     *
+     * @return true if the transaction was actually holding funds
+     */
+    boolean release(TransactionRequest request);
+
+    /**
+     * Consumes the amount held by the transaction and debits the current stored card balance.
+     */
+    void transfer(TransactionRequest request);
+
+    /**
+     * Sets the balance of the card, if it exists.
+     */
+    void setBalanceCents(String cardNumber, long newBalanceCents);
+
+    /**
+     * Current stored balance of the card, falling back to the validated snapshot if it was removed.
+     */
+    static long currentBalanceCents(CardRepository cardRepository, Card card) {
+        Card current = cardRepository.findByCardNumber(card.cardNumber()).orElse(card);
+        return current.balanceCents();
+    }
+
+    static ValidationResult insufficientFunds(long availableCents) {
+        return ValidationResult.failure("Balance Check: Insufficient funds (available: " + MoneyUtil.toDecimal(availableCents) + ")");
+    }
+}
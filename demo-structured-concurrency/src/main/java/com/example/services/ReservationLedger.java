@@ -0,0 +1,57 @@
+package com.example.services;
+
+import com.example.model.TransactionRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-card ledger of funds held by in-flight transactions.
+ * <p>
+ * Keeps a running total of the held amounts (in cents), updated when a hold is added or released,
+ * so the locked amount is available in O(1) instead of re-summing the pending set.
+ * <p>
+ * Holds are keyed by transaction id: identical purchases are separate holds, the attempts of one
+ * transaction (retried or hedged) share the same one.
+ * <p>
+ * Not thread-safe: callers must hold the card lock.
+ */
+class ReservationLedger {
+
+    // Held amount in cents by transaction id
+    private final Map<String, Long> holds = new HashMap<>();
+    private long lockedCents;
+
+    /**
+     * Adds a hold for the request.
+     * Returns false if the request was already holding funds (nothing changes).
+     */
+    boolean hold(TransactionRequest request) {
+        if (holds.putIfAbsent(request.transactionId(), request.amountCents()) != null) {
+            return false;
+        }
+        lockedCents += request.amountCents();
+        return true;
+    }
+
+    /**
+     * Releases the hold of the request.
+     * Returns true if the request was actually holding funds.
+     */
+    boolean release(TransactionRequest request) {
+        Long heldCents = holds.remove(request.transactionId());
+        if (heldCents == null) {
+            return false;
+        }
+        lockedCents -= heldCents;
+        return true;
+    }
+
+    boolean isHeld(TransactionRequest request) {
+        return holds.containsKey(request.transactionId());
+    }
+
+    long lockedCents() {
+        return lockedCents;
+    }
+}
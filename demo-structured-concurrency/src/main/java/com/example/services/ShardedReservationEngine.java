@@ -0,0 +1,209 @@
+package com.example.services;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.repository.CardRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer reservation engine: cards are sharded by card number over a fixed number of lanes.
+ * Each lane is one dedicated thread draining a bounded queue, and is the only thread that touches
+ * the ledgers (and balance mutations) of its cards, so there is no lock and no CAS retry on a hot card.
+ * <p>
+ * Operations are queued to the card's lane and completed through a CompletableFuture: the async
+ * variants return it, the {@link ReservationEngine} methods wait for it (cheap on a virtual thread).
+ * A lane only queues the journal record of a balance change: the wait for it to be durable happens off the
+ * lane, so the lane's other cards are not held up by the fsync and consecutive debits share a group commit.
+ * A full lane queue blocks the caller until the lane catches up (backpressure).
+ */
+public class ShardedReservationEngine implements ReservationEngine, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ShardedReservationEngine.class);
+
+    // Waits of the async variants for a change to be durable, off the lanes
+    private static final Executor DURABILITY_WAIT = task -> Thread.ofVirtual().name("balance-durable-wait").start(task);
+
+    private final CardRepository cardRepository;
+    private final Lane[] lanes;
+
+    public ShardedReservationEngine(CardRepository cardRepository, int laneCount, int queueCapacity) {
+        this.cardRepository = cardRepository;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+        }
+        logger.info("Sharded reservation engine started with {} lanes", laneCount);
+    }
+
+    /**
+     * One shard of the cards: a thread, its queue and the ledgers it owns.
+     */
+    private static final class Lane {
+        // Stops the lane once everything queued before it has run
+        private static final Runnable SHUTDOWN = () -> {};
+
+        private final BlockingQueue<Runnable> queue;
+        // Only read and written by the lane thread
+        private final Map<String, ReservationLedger> ledgers = new HashMap<>();
+        private final Thread thread;
+
+        Lane(int index, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = Thread.ofPlatform().daemon().name("balance-lane-" + index).start(this::run);
+        }
+
+        private void run() {
+            try {
+                for (Runnable task = queue.take(); task != SHUTDOWN; task = queue.take()) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<T> operation) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            Runnable task = () -> {
+                try {
+                    future.complete(operation.get());
+                } catch (Throwable e) {
+                    // Errors too: the lane must keep running, and the caller must not wait forever
+                    future.completeExceptionally(e);
+                }
+            };
+            try {
+                queue.put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        ReservationLedger getLedger(String cardNumber) {
+            return ledgers.computeIfAbsent(cardNumber, _ -> new ReservationLedger());
+        }
+
+        void shutdown() throws InterruptedException {
+            queue.put(SHUTDOWN);
+            thread.join();
+        }
+    }
+
+    private Lane lane(String cardNumber) {
+        // Spread the hash so card numbers differing only in the last digits land on different lanes
+        int hash = cardNumber.hashCode();
+        return lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
+    }
+
+    public CompletableFuture<ValidationResult> reserveAsync(TransactionRequest request, Card card) {
+        Lane lane = lane(request.cardNumber());
+        return lane.submit(() -> {
+            ReservationLedger ledger = lane.getLedger(request.cardNumber());
+            if (ledger.isHeld(request)) {
+                return ValidationResult.success();
+            }
+            long availableCents = ReservationEngine.currentBalanceCents(cardRepository, card) - ledger.lockedCents();
+
+            if (availableCents < request.amountCents()) {
+                return ReservationEngine.insufficientFunds(availableCents);
+            }
+
+            ledger.hold(request);
+            return ValidationResult.success();
+        });
+    }
+
+    public CompletableFuture<Boolean> releaseAsync(TransactionRequest request) {
+        Lane lane = lane(request.cardNumber());
+        return lane.submit(() -> lane.getLedger(request.cardNumber()).release(request));
+    }
+
+    public CompletableFuture<Void> transferAsync(TransactionRequest request) {
+        return durable(transferQueued(request));
+    }
+
+    public CompletableFuture<Void> setBalanceCentsAsync(String cardNumber, long newBalanceCents) {
+        return durable(setBalanceCentsQueued(cardNumber, newBalanceCents));
+    }
+
+    private CompletableFuture<CardRepository.Queued<?>> transferQueued(TransactionRequest request) {
+        Lane lane = lane(request.cardNumber());
+        return lane.submit(() -> {
+            lane.getLedger(request.cardNumber()).release(request);
+            return cardRepository.debitQueued(request.cardNumber(), request.amountCents());
+        });
+    }
+
+    private CompletableFuture<CardRepository.Queued<?>> setBalanceCentsQueued(String cardNumber, long newBalanceCents) {
+        return lane(cardNumber).submit(() -> cardRepository.updateBalanceQueued(cardNumber, newBalanceCents));
+    }
+
+    /**
+     * Completes once the change queued by the lane is durable, waiting on a virtual thread: the lane only
+     * queues the journal record, and goes on with its other cards while the group commit runs.
+     */
+    private static CompletableFuture<Void> durable(CompletableFuture<CardRepository.Queued<?>> queued) {
+        return queued.thenAcceptAsync(CardRepository.Queued::await, DURABILITY_WAIT);
+    }
+
+    @Override
+    public ValidationResult reserve(TransactionRequest request, Card card) {
+        return await(reserveAsync(request, card));
+    }
+
+    @Override
+    public boolean release(TransactionRequest request) {
+        return await(releaseAsync(request));
+    }
+
+    @Override
+    public void transfer(TransactionRequest request) {
+        // Waits for durability on the calling thread, not on the lane
+        await(transferQueued(request)).await();
+    }
+
+    @Override
+    public void setBalanceCents(String cardNumber, long newBalanceCents) {
+        await(setBalanceCentsQueued(cardNumber, newBalanceCents)).await();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops every lane after it has run the operations already queued.
+     */
+    @Override
+    public void close() {
+        try {
+            for (Lane lane : lanes) {
+                lane.shutdown();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,21 +5,25 @@ import com.example.model.CardValidationResult;
 import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 import com.example.model.ValidationResult;
+import com.example.resilience.BulkheadFullException;
 import com.example.services.BalanceService;
 import com.example.services.CardAwareValidationService;
 import com.example.services.CardValidationService;
 import com.example.services.ExpirationService;
 import com.example.services.MerchantValidationService;
 import com.example.services.PinValidationService;
-import com.example.services.ValidationException;
 
-import java.util.UUID;
+import java.time.Duration;
 import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.LongAdder;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
  * Fail-fast Structured Concurrency implementation with parallel merchant and consumer validation,
@@ -32,6 +36,8 @@ import org.apache.logging.log4j.Logger;
  * <p>
  * This demonstrates structured concurrency's automatic fail-fast and cancellation
  * capabilities - when any validation fails, remaining tasks are automatically cancelled.
+ * Failures are plain results ({@link FirstFailureJoiner}), a decline throws no exception.
+ * The same happens when the transaction deadline expires (scope timeout).
  */
 @ApplicationScoped
 public class FailFastStructuredPaymentProcessor implements StructuredProcessor {
@@ -42,19 +48,50 @@ public class FailFastStructuredPaymentProcessor implements StructuredProcessor {
     private final ExpirationService expirationService;
     private final PinValidationService pinValidationService;
     private final MerchantValidationService merchantValidationService;
+    private final Duration deadline;
+    private final LongAdder timeouts = new LongAdder();
 
-    @Inject
     public FailFastStructuredPaymentProcessor(
             BalanceService balanceService,
             CardValidationService cardValidationService,
             ExpirationService expirationService,
             PinValidationService pinValidationService,
             MerchantValidationService merchantValidationService) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, DEFAULT_DEADLINE);
+    }
+
+    /**
+     * Publishes payment.transaction.timeouts (processor=fail-fast) in the registry.
+     */
+    @Inject
+    public FailFastStructuredPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            @ConfigProperty(name = "payment.deadline", defaultValue = "5s") Duration deadline,
+            MeterRegistry registry) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, deadline);
+        FunctionCounter.builder("payment.transaction.timeouts", timeouts, LongAdder::sum)
+                .tag("processor", "fail-fast").register(registry);
+    }
+
+    public FailFastStructuredPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            Duration deadline) {
         this.balanceService = balanceService;
         this.cardValidationService = cardValidationService;
         this.expirationService = expirationService;
         this.pinValidationService = pinValidationService;
         this.merchantValidationService = merchantValidationService;
+        this.deadline = deadline;
     }
 
     @Override
@@ -63,73 +100,77 @@ public class FailFastStructuredPaymentProcessor implements StructuredProcessor {
         logger.info("🚀 Starting FAIL-FAST STRUCTURED transaction processing for merchant {}", request.merchant());
 
         try {
+            ValidationResult outcome;
+
             // Step 1: Parallel - Validate Merchant AND Consumer (Card) with fail-fast
-            try (var globalScope = StructuredTaskScope.open()) {
+            // The first Failure cancels the scope and is returned by join(), no exception needed
+            try (var globalScope = StructuredTaskScope.open(new FirstFailureJoiner(),
+                    cfg -> cfg.withTimeout(deadline))) {
 
                 // Fork merchant validation
-                globalScope.fork(() -> {
-                    if (merchantValidationService.validate(request) instanceof ValidationResult.Failure(String msg)) {
-                        throw new ValidationException(msg);
-                    }
-                });
+                globalScope.fork(() -> merchantValidationService.validate(request));
 
                 // Fork consumer validation path (card + nested parallel validations)
-                StructuredTaskScope.Subtask<Card> consumerValidation = globalScope.fork(() -> {
-                    // First validate card
-                    CardValidationResult cardResult = cardValidationService.validate(request);
-
-                    // Pattern match - throw exception on failure for fail-fast behavior
-                    Card card = switch (cardResult) {
-                        case CardValidationResult.Success(Card c) -> c;
-                        case CardValidationResult.Failure(String msg) -> throw new ValidationException(msg);
-                    };
-
-
-                    // Continue with nested validations using card
-                    try (var consumerScope = StructuredTaskScope.open()) {
+                globalScope.fork(() -> switch (cardValidationService.validate(request)) {
+                    case CardValidationResult.Failure(String msg) -> ValidationResult.failure(msg);
+                    case CardValidationResult.Success(Card card) -> {
                         // Step 2: Parallel - Validate Balance, PIN, and Expiration with fail-fast (with Card)
-                        createCardAwareValidationTask(expirationService, request, card, consumerScope);
-                        createCardAwareValidationTask(pinValidationService, request, card, consumerScope);
-                        createCardAwareValidationTask(balanceService, request, card, consumerScope);
+                        try (var consumerScope = StructuredTaskScope.open(new FirstFailureJoiner())) {
+                            createCardAwareValidationTask(expirationService, request, card, consumerScope);
+                            createCardAwareValidationTask(pinValidationService, request, card, consumerScope);
+                            createCardAwareValidationTask(balanceService, request, card, consumerScope);
 
-                        consumerScope.join();
-
-                        return card;
+                            yield consumerScope.join();
+                        }
                     }
                 });
 
-                // Wait for both parallel paths to complete
-                globalScope.join();
+                // Wait for both parallel paths to complete, or for the first failure
+                outcome = globalScope.join();
+            }
 
-                // Step 3: Transfer amount if all validations passed
-                balanceService.transfer(request, consumerValidation.get());
+            if (outcome instanceof ValidationResult.Failure(String msg)) {
+                // The scope is closed: cancelled validations are done, release whatever was held
+                balanceService.releaseAmount(request);
                 long processingTime = System.currentTimeMillis() - startTime;
-
-                String transactionId = UUID.randomUUID().toString();
-                logger.info("✅ FAIL-FAST STRUCTURED transaction completed: {} (in {}ms)",
-                        transactionId, processingTime);
-                return TransactionResult.success(transactionId, request.amount(), processingTime);
+                logger.info("❌ FAIL-FAST STRUCTURED transaction failed: {} (in {}ms)", msg, processingTime);
+                logger.debug("   ⚡ Other validations were automatically cancelled!");
+                return TransactionResult.failure(msg, processingTime);
             }
 
+            // Step 3: Transfer amount if all validations passed
+            balanceService.transfer(request);
+            long processingTime = System.currentTimeMillis() - startTime;
+
+            String transactionId = request.transactionId();
+            logger.info("✅ FAIL-FAST STRUCTURED transaction completed: {} (in {}ms)",
+                    transactionId, processingTime);
+            return TransactionResult.success(transactionId, request.amount(), processingTime);
         } catch (StructuredTaskScope.FailedException e) {
+            // A validation threw (an error, not a decline), or a service was at capacity
             balanceService.releaseAmount(request);
             long processingTime = System.currentTimeMillis() - startTime;
-            String failureMessage = e.getCause().getMessage();
-            logger.info("❌ FAIL-FAST STRUCTURED transaction failed: {} (in {}ms)",
-                       failureMessage, processingTime);
-            logger.debug("   ⚡ Other validations were automatically cancelled!");
-            if (e.getCause() instanceof ValidationException ve) return TransactionResult.failure(ve.getMessage(), processingTime);
-            logger.error(e);
-            return TransactionResult.failure(failureMessage, processingTime);
+            Throwable cause = StructuredProcessor.failureCause(e);
+            if (cause instanceof BulkheadFullException) {
+                logger.info("🚧 FAIL-FAST STRUCTURED transaction rejected: {} (in {}ms)", cause.getMessage(), processingTime);
+                return TransactionResult.rejected(cause.getMessage(), processingTime);
+            }
+            logger.error("❌ FAIL-FAST STRUCTURED transaction failed: {} (in {}ms)",
+                       cause.getMessage(), processingTime, e);
+            return TransactionResult.failure(cause.getMessage(), processingTime);
+        } catch (StructuredTaskScope.TimeoutException e) {
+            // The scope is closed: cancelled validations are done, release whatever was held
+            balanceService.releaseAmount(request);
+            timeouts.increment();
+            long processingTime = System.currentTimeMillis() - startTime;
+            logger.info("⏱️ FAIL-FAST STRUCTURED transaction timed out (in {}ms)", processingTime);
+            return TransactionResult.timeout(deadline, processingTime);
         }
     }
 
 
-    private static void createCardAwareValidationTask(CardAwareValidationService service, TransactionRequest request, Card card, StructuredTaskScope<Object, Void> scope) {
-        scope.fork(() -> {
-            if (service.validate(request, card) instanceof ValidationResult.Failure(String m)) {
-                throw new ValidationException(m);
-            }
-        });
+    private static void createCardAwareValidationTask(CardAwareValidationService service, TransactionRequest request, Card card,
+                                                      StructuredTaskScope<ValidationResult, ValidationResult> scope) {
+        scope.fork(() -> service.validate(request, card));
     }
 }
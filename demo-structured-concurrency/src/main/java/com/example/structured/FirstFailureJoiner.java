@@ -0,0 +1,45 @@
+package com.example.structured;
+
+import com.example.model.ValidationResult;
+
+import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Joiner for validation subtasks that cancels the scope on the first {@link ValidationResult.Failure} and
+ * returns it from join(), so a declined validation needs no exception to stop its siblings.
+ * <p>
+ * join() returns the first failure, or {@link ValidationResult#success()} if every subtask succeeded.
+ * A subtask that throws (not a decline but an error) also cancels the scope, join() then throws
+ * FailedException with that exception. Holds the state of one scope: use a new instance per scope.
+ */
+public final class FirstFailureJoiner implements Joiner<ValidationResult, ValidationResult> {
+
+    // Failure result or exception of the first subtask that did not succeed, null while none did
+    private final AtomicReference<Object> firstFailure = new AtomicReference<>();
+
+    @Override
+    public boolean onComplete(Subtask<? extends ValidationResult> subtask) {
+        Object failure = switch (subtask.state()) {
+            case SUCCESS -> subtask.get() instanceof ValidationResult.Failure f ? f : null;
+            case FAILED -> subtask.exception();
+            case UNAVAILABLE -> null;
+        };
+        if (failure == null) {
+            return false;
+        }
+        // Later failures come from the cancellation or a race with the first one, only the first is reported
+        firstFailure.compareAndSet(null, failure);
+        return true;
+    }
+
+    @Override
+    public ValidationResult result() throws Throwable {
+        Object failure = firstFailure.get();
+        if (failure instanceof Throwable exception) {
+            throw exception;
+        }
+        return failure == null ? ValidationResult.success() : (ValidationResult) failure;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.structured;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.TransactionResult;
+import com.example.model.ValidationResult;
+import com.example.resilience.BulkheadFullException;
+import com.example.services.BalanceService;
+import com.example.services.CardValidationService;
+import com.example.services.ExpirationService;
+import com.example.services.MerchantValidationService;
+import com.example.services.PinValidationService;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import static com.example.constants.ServiceDelays.*;
+
+/**
+ * Fail-fast processor whose validations are declared as a {@link ValidationGraph} instead of wired by hand.
+ * <p>
+ * Graph: merchant needs the request; card needs the request and produces the Card; expiration, PIN and
+ * balance need the Card. The engine derives the same schedule as {@link FailFastStructuredPaymentProcessor}
+ * (merchant in parallel with card, then the three card checks in parallel) and releases the held amount
+ * when the transaction fails after the balance check started. A new check only has to declare its inputs.
+ * <p>
+ * With payment.speculation.enabled, a card found in the card cache is only a guess: expiration, PIN and
+ * balance start on it right away while the card is looked up, which takes the lookup off the success path.
+ */
+@ApplicationScoped
+public class GraphPaymentProcessor implements StructuredProcessor {
+    private static final Logger logger = LogManager.getLogger(GraphPaymentProcessor.class);
+
+    static final ValidationGraph.Key<Card> CARD = new ValidationGraph.Key<>("card");
+
+    private final BalanceService balanceService;
+    private final ValidationGraph graph;
+    private final Duration deadline;
+    private final LongAdder timeouts = new LongAdder();
+
+    public GraphPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, DEFAULT_DEADLINE);
+    }
+
+    public GraphPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            Duration deadline) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, deadline, false);
+    }
+
+    /**
+     * Publishes payment.transaction.timeouts (processor=graph) and the speculations of the graph in the registry.
+     */
+    @Inject
+    public GraphPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            @ConfigProperty(name = "payment.deadline", defaultValue = "5s") Duration deadline,
+            @ConfigProperty(name = "payment.speculation.enabled", defaultValue = "false") boolean speculation,
+            MeterRegistry registry) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, deadline, speculation);
+        FunctionCounter.builder("payment.transaction.timeouts", timeouts, LongAdder::sum)
+                .tag("processor", "graph").register(registry);
+        graph.bindTo(registry);
+    }
+
+    public GraphPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            Duration deadline,
+            boolean speculation) {
+        this.balanceService = balanceService;
+        this.deadline = deadline;
+        ValidationGraph.Builder builder = ValidationGraph.builder()
+                .validation("merchant", Duration.ofMillis(MERCHANT_VALIDATION_DELAY), merchantValidationService)
+                // A cached card is only trusted as a guess when speculating, the lookup confirms it
+                .cardValidation("card", Duration.ofMillis(CARD_VALIDATION_DELAY),
+                        speculation ? cardValidationService::validateUncached : cardValidationService::validate, CARD)
+                .cardAwareValidation("expiration", Duration.ofMillis(EXPIRATION_VALIDATION_DELAY), CARD, expirationService)
+                .cardAwareValidation("pin", Duration.ofMillis(PIN_VALIDATION_DELAY), CARD, pinValidationService)
+                .cardAwareValidation("balance", Duration.ofMillis(BALANCE_VALIDATION_DELAY), CARD, balanceService)
+                .compensation("balance", balanceService::releaseAmount);
+        if (speculation) {
+            builder.speculation("card", request -> cardValidationService.cachedCard(request.cardNumber()),
+                    GraphPaymentProcessor::sameCardChecks);
+        }
+        this.graph = builder.build();
+        logger.debug("Validation critical path: {} ({}ms)",
+                graph.criticalPath(), graph.criticalPathLatency().toMillis());
+    }
+
+    /**
+     * The card checks read the number, expiration and PIN; the balance is reserved against the live record, so
+     * a cached card whose balance was debited since is still a good guess.
+     */
+    static boolean sameCardChecks(Card guess, Card card) {
+        return Objects.equals(guess.cardNumber(), card.cardNumber())
+                && Objects.equals(guess.expirationDate(), card.expirationDate())
+                && Objects.equals(guess.pin(), card.pin());
+    }
+
+    /**
+     * @return the validation graph, e.g. to inspect its critical path
+     */
+    public ValidationGraph graph() {
+        return graph;
+    }
+
+    @Override
+    public TransactionResult processTransaction(TransactionRequest request) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        logger.info("🚀 Starting GRAPH transaction processing for merchant {}", request.merchant());
+
+        try {
+            ValidationGraph.Outcome outcome = graph.run(request, deadline);
+            if (outcome.result() instanceof ValidationResult.Failure(String msg)) {
+                long processingTime = System.currentTimeMillis() - startTime;
+                logger.info("❌ GRAPH transaction failed: {} (in {}ms)", msg, processingTime);
+                return TransactionResult.failure(msg, processingTime);
+            }
+
+            balanceService.transfer(request);
+            long processingTime = System.currentTimeMillis() - startTime;
+            String transactionId = request.transactionId();
+            logger.info("✅ GRAPH transaction completed: {} (in {}ms)", transactionId, processingTime);
+            return TransactionResult.success(transactionId, request.amount(), processingTime);
+        } catch (StructuredTaskScope.FailedException e) {
+            // A validation threw (an error, not a decline) or a service was at capacity, the graph has compensated
+            long processingTime = System.currentTimeMillis() - startTime;
+            Throwable cause = StructuredProcessor.failureCause(e);
+            if (cause instanceof BulkheadFullException) {
+                logger.info("🚧 GRAPH transaction rejected: {} (in {}ms)", cause.getMessage(), processingTime);
+                return TransactionResult.rejected(cause.getMessage(), processingTime);
+            }
+            logger.error("❌ GRAPH transaction failed: {} (in {}ms)", cause.getMessage(), processingTime, e);
+            return TransactionResult.failure(cause.getMessage(), processingTime);
+        } catch (StructuredTaskScope.TimeoutException e) {
+            timeouts.increment();
+            long processingTime = System.currentTimeMillis() - startTime;
+            logger.info("⏱️ GRAPH transaction timed out (in {}ms)", processingTime);
+            return TransactionResult.timeout(deadline, processingTime);
+        }
+    }
+}
@@ -5,21 +5,26 @@ import com.example.model.CardValidationResult;
 import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 import com.example.model.ValidationResult;
+import com.example.resilience.BulkheadFullException;
 import com.example.services.BalanceService;
 import com.example.services.CardValidationService;
 import com.example.services.ExpirationService;
 import com.example.services.MerchantValidationService;
 import com.example.services.PinValidationService;
 
-import java.util.UUID;
+import java.time.Duration;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.StructuredTaskScope.Joiner;
 import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.atomic.LongAdder;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
  * Structured Concurrency implementation with parallel merchant and consumer validation,
@@ -29,6 +34,11 @@ import org.apache.logging.log4j.Logger;
  * 1. Parallel: Validate Merchant AND Validate Card
  * 2. Parallel (if card OK): Validate Balance, PIN, Expiration
  * 3. Transfer (if all OK)
+ * <p>
+ * A declined Balance, PIN or Expiration validation cancels the other two (see {@link FirstFailureJoiner}),
+ * but the transaction still waits for the merchant validation.
+ * If the transaction deadline expires first, the scope is cancelled and the transaction times out.
+ * A service at capacity (see bulkhead.*) fails its subtask, which cancels the scope and rejects the transaction.
  */
 @ApplicationScoped
 public class StructuredPaymentProcessor implements StructuredProcessor {
@@ -39,19 +49,50 @@ public class StructuredPaymentProcessor implements StructuredProcessor {
     private final ExpirationService expirationService;
     private final PinValidationService pinValidationService;
     private final MerchantValidationService merchantValidationService;
+    private final Duration deadline;
+    private final LongAdder timeouts = new LongAdder();
 
-    @Inject
     public StructuredPaymentProcessor(
             BalanceService balanceService,
             CardValidationService cardValidationService,
             ExpirationService expirationService,
             PinValidationService pinValidationService,
             MerchantValidationService merchantValidationService) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, DEFAULT_DEADLINE);
+    }
+
+    /**
+     * Publishes payment.transaction.timeouts (processor=structured) in the registry.
+     */
+    @Inject
+    public StructuredPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            @ConfigProperty(name = "payment.deadline", defaultValue = "5s") Duration deadline,
+            MeterRegistry registry) {
+        this(balanceService, cardValidationService, expirationService, pinValidationService,
+                merchantValidationService, deadline);
+        FunctionCounter.builder("payment.transaction.timeouts", timeouts, LongAdder::sum)
+                .tag("processor", "structured").register(registry);
+    }
+
+    public StructuredPaymentProcessor(
+            BalanceService balanceService,
+            CardValidationService cardValidationService,
+            ExpirationService expirationService,
+            PinValidationService pinValidationService,
+            MerchantValidationService merchantValidationService,
+            Duration deadline) {
         this.balanceService = balanceService;
         this.cardValidationService = cardValidationService;
         this.expirationService = expirationService;
         this.pinValidationService = pinValidationService;
         this.merchantValidationService = merchantValidationService;
+        this.deadline = deadline;
     }
 
     @Override
@@ -60,7 +101,8 @@ public class StructuredPaymentProcessor implements StructuredProcessor {
         logger.info("🚀 Starting STRUCTURED transaction processing for merchant {}", request.merchant());
 
         // Step 1: Parallel - Validate Merchant AND Consumer (Card)
-        try (var globalScope = StructuredTaskScope.open()) {
+        try (var globalScope = StructuredTaskScope.open(Joiner.<Object>awaitAllSuccessfulOrThrow(),
+                cfg -> cfg.withTimeout(deadline))) {
 
             // Fork merchant validation
             Subtask<ValidationResult> merchantValidation = globalScope.fork(() ->
@@ -76,19 +118,17 @@ public class StructuredPaymentProcessor implements StructuredProcessor {
                     case CardValidationResult.Success(Card card) -> {
 
                         // Step 2: Parallel - Validate Balance, PIN and Expiration (with Card)
-                        try (var consumerScope = StructuredTaskScope.open(Joiner.<ValidationResult>allSuccessfulOrThrow())) {
+                        // The first declined card validation cancels the other two, the merchant validation still runs
+                        try (var consumerScope = StructuredTaskScope.open(new FirstFailureJoiner())) {
                             // Pass the card to card-aware services
                             consumerScope.fork(() -> expirationService.validate(request, card));
                             consumerScope.fork(() -> pinValidationService.validate(request, card));
                             consumerScope.fork(() -> balanceService.validate(request, card));
 
-                            yield consumerScope.join()
-                                    .map(Subtask::get)
-                                    .filter(ValidationResult.Failure.class::isInstance)
-                                    .map(ValidationResult.Failure.class::cast)
-                                    .findFirst()
-                                    .map(r -> CardValidationResult.failure(r.message()))
-                                    .orElse(cardResult);
+                            yield switch (consumerScope.join()) {
+                                case ValidationResult.Failure(String msg) -> CardValidationResult.failure(msg);
+                                case ValidationResult.Success _ -> cardResult;
+                            };
                         }
                     }
                     case CardValidationResult.Failure failure -> failure;
@@ -98,10 +138,10 @@ public class StructuredPaymentProcessor implements StructuredProcessor {
             
             ValidationResult merchantResult = merchantValidation.get();
             CardValidationResult cardResult = cardValidation.get();
-            if (ValidationResult.success(merchantResult) && cardResult instanceof CardValidationResult.Success(Card card)) {
-                balanceService.transfer(request, card);
+            if (ValidationResult.success(merchantResult) && cardResult instanceof CardValidationResult.Success) {
+                balanceService.transfer(request);
                 long processingTime = System.currentTimeMillis() - startTime;
-                String transactionId = UUID.randomUUID().toString();
+                String transactionId = request.transactionId();
                 logger.info("✅ STRUCTURED transaction completed: {} (in {}ms)",
                         transactionId, processingTime);
                 return TransactionResult.success(transactionId, request.amount(), processingTime);
@@ -117,6 +157,24 @@ public class StructuredPaymentProcessor implements StructuredProcessor {
                 logger.info("❌ STRUCTURED transaction failed: {} (in {}ms)", message, processingTime);
                 return TransactionResult.failure(message, processingTime);
             }
+        } catch (StructuredTaskScope.FailedException e) {
+            // A validation threw (an error, not a decline), or a service was at capacity: the scope is cancelled
+            balanceService.releaseAmount(request);
+            long processingTime = System.currentTimeMillis() - startTime;
+            Throwable cause = StructuredProcessor.failureCause(e);
+            if (cause instanceof BulkheadFullException) {
+                logger.info("🚧 STRUCTURED transaction rejected: {} (in {}ms)", cause.getMessage(), processingTime);
+                return TransactionResult.rejected(cause.getMessage(), processingTime);
+            }
+            logger.error("❌ STRUCTURED transaction failed: {} (in {}ms)", cause.getMessage(), processingTime, e);
+            return TransactionResult.failure(cause.getMessage(), processingTime);
+        } catch (StructuredTaskScope.TimeoutException e) {
+            // The scope is closed: cancelled validations are done, release whatever was held
+            balanceService.releaseAmount(request);
+            timeouts.increment();
+            long processingTime = System.currentTimeMillis() - startTime;
+            logger.info("⏱️ STRUCTURED transaction timed out (in {}ms)", processingTime);
+            return TransactionResult.timeout(deadline, processingTime);
         }
     }
 }
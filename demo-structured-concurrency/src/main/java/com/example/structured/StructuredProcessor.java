@@ -3,6 +3,17 @@ package com.example.structured;
 import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+
 /**
  * Common interface for all structured concurrency payment processors.
  * This interface allows for polymorphic usage of different structured concurrency
@@ -10,6 +21,30 @@ import com.example.model.TransactionResult;
  */
 public interface StructuredProcessor {
 
+    /**
+     * Deadline of a transaction when none is configured (payment.deadline).
+     * When it expires, the scope is cancelled and the transaction fails with a TIMEOUT result.
+     */
+    Duration DEFAULT_DEADLINE = Duration.ofSeconds(5);
+
+    /**
+     * Maximum number of transactions of a batch processed at the same time
+     * when none is configured (payment.batch.max-concurrency).
+     */
+    int DEFAULT_BATCH_CONCURRENCY = 64;
+
+    /**
+     * @return the exception thrown by the subtask that failed the scope, unwrapping the FailedExceptions
+     * of the nested scopes it went through
+     */
+    static Throwable failureCause(StructuredTaskScope.FailedException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof StructuredTaskScope.FailedException nested && nested.getCause() != null) {
+            cause = nested.getCause();
+        }
+        return cause;
+    }
+
     /**
      * Processes a transaction request using structured concurrency patterns.
      *
@@ -18,4 +53,69 @@ public interface StructuredProcessor {
      * @throws InterruptedException if the thread is interrupted during processing
      */
     TransactionResult processTransaction(TransactionRequest request) throws InterruptedException;
-}
\ No newline at end of file
+
+    /**
+     * Processes a batch of transactions with the default concurrency.
+     *
+     * @see #processBatch(List, int)
+     */
+    default List<TransactionResult> processBatch(List<TransactionRequest> requests) throws InterruptedException {
+        return processBatch(requests, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Processes a batch of transactions under one parent scope.
+     * <p>
+     * Transactions of the same card run one after the other, in batch order, so holds and debits
+     * on a card happen in the order they were sent. Different cards run in parallel, with at most
+     * maxConcurrency transactions in flight.
+     *
+     * @param requests The transaction requests to process
+     * @param maxConcurrency Maximum number of transactions processed at the same time
+     * @return One TransactionResult per request, in the same order as the requests
+     * @throws IllegalArgumentException if requests is null or contains null, or maxConcurrency is not positive
+     * @throws InterruptedException if the thread is interrupted during processing
+     */
+    default List<TransactionResult> processBatch(List<TransactionRequest> requests, int maxConcurrency) throws InterruptedException {
+        // A semaphore without permits would never let a transaction start
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Batch concurrency must be positive: " + maxConcurrency);
+        }
+        if (requests == null || requests.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("A batch must be a list of transaction requests");
+        }
+
+        // Positions of the requests of each card, in batch order
+        Map<String, List<Integer>> positionsByCard = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            positionsByCard.computeIfAbsent(requests.get(i).cardNumber(), _ -> new ArrayList<>()).add(i);
+        }
+
+        TransactionResult[] results = new TransactionResult[requests.size()];
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+
+        try (var batchScope = StructuredTaskScope.open(Joiner.<Object>awaitAllSuccessfulOrThrow())) {
+            // One fork per card: its transactions are sequential, cards are parallel
+            for (List<Integer> positions : positionsByCard.values()) {
+                batchScope.fork(() -> {
+                    for (int position : positions) {
+                        inFlight.acquire();
+                        long startTime = System.currentTimeMillis();
+                        try {
+                            results[position] = processTransaction(requests.get(position));
+                        } catch (RuntimeException e) {
+                            // One broken transaction must not fail the rest of the batch
+                            results[position] = TransactionResult.failure("Processing error: " + e.getMessage(),
+                                    System.currentTimeMillis() - startTime);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }
+                    return null;
+                });
+            }
+            batchScope.join();
+        }
+        return Arrays.asList(results);
+    }
+}
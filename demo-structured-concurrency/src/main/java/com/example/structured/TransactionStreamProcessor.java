@@ -0,0 +1,138 @@
+package com.example.structured;
+
+import com.example.model.TransactionRequest;
+import com.example.model.TransactionResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Processes a newline-delimited JSON stream of transaction requests, writing one result line per request
+ * as soon as it completes (completion order, not input order; each result carries its input line number).
+ * <p>
+ * The input is read one line at a time and a line is only read once one of the maxInFlight slots is free,
+ * so a slow processor slows down the reader instead of buffering the stream: heap use is bounded by the
+ * window, not by the size of the input.
+ */
+@ApplicationScoped
+public class TransactionStreamProcessor {
+    private static final Logger logger = LogManager.getLogger(TransactionStreamProcessor.class);
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
+    private final int maxInFlight;
+
+    @Inject
+    public TransactionStreamProcessor(ObjectMapper mapper,
+                                      @ConfigProperty(name = "payment.stream.max-in-flight", defaultValue = "256") int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("payment.stream.max-in-flight must be positive: " + maxInFlight);
+        }
+        this.requestReader = mapper.readerFor(TransactionRequest.class);
+        // One result per line, whatever the REST pretty-printing setting is
+        this.resultWriter = mapper.writerFor(StreamedResult.class).without(SerializationFeature.INDENT_OUTPUT);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Result line of the stream.
+     *
+     * @param line Line number of the request in the input (1-based)
+     * @param result Outcome of the request
+     */
+    public record StreamedResult(long line, TransactionResult result) {}
+
+    /**
+     * Processes every request of the input with the given processor and writes the results to the output.
+     * Blank lines are skipped, lines that are not a valid request get a failure result.
+     *
+     * @throws IOException if the input cannot be read or the output cannot be written (e.g. client gone)
+     * @throws InterruptedException if the thread is interrupted during processing
+     */
+    public void process(StructuredProcessor processor, InputStream in, OutputStream out) throws IOException, InterruptedException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicBoolean outputClosed = new AtomicBoolean();
+        long lineNumber = 0;
+
+        try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+             var streamScope = StructuredTaskScope.open(Joiner.<Object>awaitAllSuccessfulOrThrow())) {
+            String line;
+            while (!outputClosed.get() && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                inFlight.acquire();
+                long requestLine = lineNumber;
+                String json = line;
+                streamScope.fork(() -> {
+                    try {
+                        write(writer, new StreamedResult(requestLine, process(processor, json)));
+                    } catch (IOException e) {
+                        // No one left to read the results: stop reading and cancel the rest
+                        outputClosed.set(true);
+                        throw e;
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                });
+            }
+            streamScope.join();
+        } catch (StructuredTaskScope.FailedException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+        logger.info("Processed stream of {} lines", lineNumber);
+    }
+
+    private TransactionResult process(StructuredProcessor processor, String json) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        TransactionRequest request;
+        try {
+            request = requestReader.readValue(json);
+        } catch (JsonProcessingException e) {
+            return TransactionResult.failure("Invalid request: " + e.getOriginalMessage(), System.currentTimeMillis() - startTime);
+        }
+        try {
+            return processor.processTransaction(request);
+        } catch (RuntimeException e) {
+            return TransactionResult.failure("Processing error: " + e.getMessage(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void write(Writer writer, StreamedResult result) throws IOException {
+        String json = resultWriter.writeValueAsString(result);
+        synchronized (writer) {
+            writer.write(json);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.example.structured;
+
+import com.example.model.Card;
+import com.example.model.CardValidationResult;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.services.CardAwareValidationService;
+import com.example.services.CardValidationService;
+import com.example.services.ValidationService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Validation steps of a transaction and the values they exchange, run with as much parallelism as the
+ * values allow.
+ * <p>
+ * Each step reads the request and at most one value produced by another step (its input), and may produce
+ * one value (its output). Steps needing only the request are forked together; the dependents of a step are
+ * forked in a nested scope as soon as it produced its value. The first failing step cancels every other one
+ * ({@link FirstFailureJoiner}), as does the deadline; the compensations of the steps that started then run,
+ * latest first.
+ * <p>
+ * Each step declares its expected latency, from which the critical path (the chain of steps bounding the
+ * transaction time) is computed when the graph is built: a new check off that path costs no time.
+ * <p>
+ * A step producing a value can also guess it cheaply (e.g. from a cache). When the guess is available, the
+ * dependents start on it while the step computes the real value, taking the step off the critical path. If the
+ * real value matches the guess (equals it, or only differs in what the dependents do not read) their results stand
+ * (a failure on the guess is only reported once confirmed); otherwise they are cancelled, compensated, and run
+ * again on the real value.
+ * <p>
+ * Once bound to a registry ({@link #bindTo}), guesses are published as payment.validation.speculations
+ * tagged with the step and the outcome.
+ */
+public final class ValidationGraph implements MeterBinder {
+    private static final Logger logger = LogManager.getLogger(ValidationGraph.class);
+
+    /**
+     * Name of a value produced by a step and read by others.
+     */
+    public record Key<T>(String name) {}
+
+    /**
+     * @param result Success, or the failure of the first failing step
+     * @param values Values produced by the steps, complete only on success
+     */
+    public record Outcome(ValidationResult result, Map<Key<?>, Object> values) {
+        @SuppressWarnings("unchecked")
+        public <T> T get(Key<T> key) {
+            return (T) values.get(key);
+        }
+    }
+
+    // Returns a ValidationResult.Failure, or the output value (anything when the step has no output)
+    @FunctionalInterface
+    private interface Action {
+        Object run(TransactionRequest request, Object input);
+    }
+
+    private record Step(String name, Duration latency, Key<?> input, Key<?> output, Action action) {}
+
+    private record Speculation(Function<TransactionRequest, ?> guess, BiPredicate<Object, Object> matches,
+                               LongAdder confirmed, LongAdder mispredicted) {}
+
+    // Result of a step whose real value differs from its guess, cancels the dependents started on the guess
+    private static final ValidationResult.Failure MISPREDICTED = new ValidationResult.Failure("Speculation mispredicted");
+
+    private final List<Step> roots;
+    private final Map<String, List<Step>> dependents;
+    private final Map<String, Consumer<TransactionRequest>> compensations;
+    private final Map<String, Speculation> speculations;
+    private final List<String> criticalPath;
+    private final Duration criticalPathLatency;
+
+    private ValidationGraph(List<Step> roots, Map<String, List<Step>> dependents,
+                            Map<String, Consumer<TransactionRequest>> compensations,
+                            Map<String, Speculation> speculations) {
+        this.roots = roots;
+        this.dependents = dependents;
+        this.compensations = compensations;
+        this.speculations = speculations;
+
+        List<String> path = List.of();
+        Duration pathLatency = Duration.ZERO;
+        for (Step root : roots) {
+            List<String> candidate = new ArrayList<>();
+            Duration latency = longestPath(root, candidate);
+            if (latency.compareTo(pathLatency) > 0) {
+                path = candidate;
+                pathLatency = latency;
+            }
+        }
+        this.criticalPath = List.copyOf(path);
+        this.criticalPathLatency = pathLatency;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs the steps of the graph for a transaction.
+     *
+     * @param deadline Time after which the steps still running are cancelled
+     * @return the outcome, with the produced values if every step succeeded
+     * @throws StructuredTaskScope.TimeoutException if the deadline expired first (compensations have run)
+     * @throws StructuredTaskScope.FailedException if a step threw (compensations have run)
+     * @throws InterruptedException if interrupted while waiting for the steps
+     */
+    public Outcome run(TransactionRequest request, Duration deadline) throws InterruptedException {
+        Map<Key<?>, Object> values = new ConcurrentHashMap<>();
+        Deque<String> started = new ConcurrentLinkedDeque<>();
+        boolean succeeded = false;
+        try {
+            ValidationResult result;
+            try (var scope = StructuredTaskScope.open(new FirstFailureJoiner(), cfg -> cfg.withTimeout(deadline))) {
+                for (Step root : roots) {
+                    scope.fork(() -> runStep(root, request, null, values, started));
+                }
+                result = scope.join();
+            }
+            succeeded = ValidationResult.success(result);
+            return new Outcome(result, succeeded ? Map.copyOf(values) : Map.of());
+        } finally {
+            // The scope is closed: no step is running anymore
+            if (!succeeded) {
+                compensate(request, started);
+            }
+        }
+    }
+
+    /**
+     * Publishes the speculation outcomes of this graph in the registry.
+     *
+     * @throws IllegalStateException if the registry already has speculations of one of its steps: they would
+     * silently be counted with the other graph's
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        speculations.forEach((name, speculation) -> {
+            if (registry.find("payment.validation.speculations").tag("step", name).functionCounter() != null) {
+                throw new IllegalStateException("Speculation already registered: " + name);
+            }
+            FunctionCounter.builder("payment.validation.speculations", speculation.confirmed(), LongAdder::sum)
+                    .tags("step", name, "outcome", "confirmed").register(registry);
+            FunctionCounter.builder("payment.validation.speculations", speculation.mispredicted(), LongAdder::sum)
+                    .tags("step", name, "outcome", "mispredicted").register(registry);
+        });
+    }
+
+    /**
+     * @return names of the steps on the longest chain of expected latencies, in execution order
+     */
+    public List<String> criticalPath() {
+        return criticalPath;
+    }
+
+    /**
+     * @return expected time of a successful run without speculation: the sum of the latencies on the critical path
+     */
+    public Duration criticalPathLatency() {
+        return criticalPathLatency;
+    }
+
+    private ValidationResult runStep(Step step, TransactionRequest request, Object input,
+                                     Map<Key<?>, Object> values, Deque<String> started) throws InterruptedException {
+        started.push(step.name());
+        Speculation speculation = speculations.get(step.name());
+        Object guess = speculation == null ? null : speculation.guess().apply(request);
+        if (guess != null && !dependents.get(step.name()).isEmpty()) {
+            return runSpeculatively(step, speculation, guess, request, input, values, started);
+        }
+
+        Object output = step.action().run(request, input);
+        if (output instanceof ValidationResult.Failure failure) {
+            return failure;
+        }
+        if (step.output() == null) {
+            return ValidationResult.success();
+        }
+        values.put(step.output(), output);
+        return runDependents(step, request, output, values, started);
+    }
+
+    private ValidationResult runDependents(Step step, TransactionRequest request, Object value,
+                                           Map<Key<?>, Object> values, Deque<String> started) throws InterruptedException {
+        List<Step> next = dependents.get(step.name());
+        if (next.isEmpty()) {
+            return ValidationResult.success();
+        }
+        try (var scope = StructuredTaskScope.open(new FirstFailureJoiner())) {
+            for (Step dependent : next) {
+                scope.fork(() -> runStep(dependent, request, value, values, started));
+            }
+            return scope.join();
+        }
+    }
+
+    /**
+     * Runs the step and, in parallel, its dependents on the guessed value.
+     */
+    private ValidationResult runSpeculatively(Step step, Speculation speculation, Object guess, TransactionRequest request,
+                                              Object input, Map<Key<?>, Object> values, Deque<String> started) throws InterruptedException {
+        Deque<String> speculated = new ConcurrentLinkedDeque<>();
+        CountDownLatch computed = new CountDownLatch(1);
+        AtomicBoolean confirmed = new AtomicBoolean();
+        ValidationResult result = null;
+        try {
+            try (var scope = StructuredTaskScope.open(new FirstFailureJoiner())) {
+                scope.fork(() -> {
+                    try {
+                        Object output = step.action().run(request, input);
+                        if (output instanceof ValidationResult.Failure failure) {
+                            return failure;
+                        }
+                        values.put(step.output(), output);
+                        if (!speculation.matches().test(guess, output)) {
+                            return MISPREDICTED;
+                        }
+                        confirmed.set(true);
+                        return ValidationResult.success();
+                    } finally {
+                        computed.countDown();
+                    }
+                });
+                scope.fork(() -> {
+                    ValidationResult dependentsResult = runDependents(step, request, guess, values, speculated);
+                    if (ValidationResult.failure(dependentsResult)) {
+                        // Maybe only failed because the guess was wrong: the real value decides
+                        computed.await();
+                        if (!confirmed.get()) {
+                            return ValidationResult.success();
+                        }
+                    }
+                    return dependentsResult;
+                });
+                result = scope.join();
+            }
+        } finally {
+            if (result != MISPREDICTED) {
+                // Kept: the transaction compensates them like any other step if it fails
+                speculated.descendingIterator().forEachRemaining(started::push);
+            }
+        }
+
+        if (result != MISPREDICTED) {
+            if (confirmed.get()) {
+                speculation.confirmed().increment();
+            }
+            return result;
+        }
+        speculation.mispredicted().increment();
+        logger.debug("Guess of {} mispredicted, running its dependents again", step.name());
+        compensate(request, speculated);
+        return runDependents(step, request, values.get(step.output()), values, started);
+    }
+
+    private void compensate(TransactionRequest request, Deque<String> started) {
+        // Most recently started first
+        for (String name : started) {
+            Consumer<TransactionRequest> compensation = compensations.get(name);
+            if (compensation == null) {
+                continue;
+            }
+            try {
+                compensation.accept(request);
+            } catch (RuntimeException e) {
+                // The other compensations still have to run
+                logger.error("Compensation of {} failed", name, e);
+            }
+        }
+    }
+
+    private Duration longestPath(Step step, List<String> path) {
+        List<String> longestTail = List.of();
+        Duration tailLatency = Duration.ZERO;
+        for (Step dependent : dependents.get(step.name())) {
+            List<String> tail = new ArrayList<>();
+            Duration latency = longestPath(dependent, tail);
+            if (latency.compareTo(tailLatency) > 0) {
+                longestTail = tail;
+                tailLatency = latency;
+            }
+        }
+        path.add(step.name());
+        path.addAll(longestTail);
+        return step.latency().plus(tailLatency);
+    }
+
+    public static final class Builder {
+        private final Map<String, Step> steps = new LinkedHashMap<>();
+        private final Map<String, Consumer<TransactionRequest>> compensations = new HashMap<>();
+        private final Map<String, Speculation> speculations = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a step that only needs the request.
+         */
+        public Builder validation(String name, Duration latency, ValidationService service) {
+            return add(new Step(name, latency, null, null, (request, _) -> service.validate(request)));
+        }
+
+        /**
+         * Adds a step that looks up the card of the request (e.g. {@link CardValidationService#validate}) and
+         * publishes it as output.
+         */
+        public Builder cardValidation(String name, Duration latency, Function<TransactionRequest, CardValidationResult> lookup,
+                                      Key<Card> output) {
+            return add(new Step(name, latency, null, output, (request, _) -> switch (lookup.apply(request)) {
+                case CardValidationResult.Success(Card card) -> card;
+                case CardValidationResult.Failure(String message) -> ValidationResult.failure(message);
+            }));
+        }
+
+        /**
+         * Adds a step that needs the card published by another step.
+         */
+        public Builder cardAwareValidation(String name, Duration latency, Key<Card> input, CardAwareValidationService service) {
+            return add(new Step(name, latency, input, null, (request, card) -> service.validate(request, (Card) card)));
+        }
+
+        /**
+         * Undoes the effect of a step (e.g. releases held funds) when the transaction fails after it started.
+         */
+        public Builder compensation(String name, Consumer<TransactionRequest> compensation) {
+            if (!steps.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown step: " + name);
+            }
+            compensations.put(name, compensation);
+            return this;
+        }
+
+        /**
+         * Lets the dependents of a step start on a guess of its output (null when there is none), see
+         * {@link ValidationGraph}. The guess must be cheap: it is taken before the step runs.
+         */
+        public Builder speculation(String name, Function<TransactionRequest, ?> guess) {
+            return speculation(name, guess, Object::equals);
+        }
+
+        /**
+         * Like {@link #speculation(String, Function)}, confirming the guess when {@code matches} accepts it and the
+         * real value, e.g. when they only differ in fields the dependents do not read.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> Builder speculation(String name, Function<TransactionRequest, T> guess, BiPredicate<T, T> matches) {
+            Step step = steps.get(name);
+            if (step == null || step.output() == null) {
+                throw new IllegalArgumentException("Unknown step or step without output: " + name);
+            }
+            speculations.put(name, new Speculation(guess, (BiPredicate<Object, Object>) matches,
+                    new LongAdder(), new LongAdder()));
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a step needs a value no step produces, or steps depend on each other
+         */
+        public ValidationGraph build() {
+            Map<Key<?>, Step> producers = new HashMap<>();
+            for (Step step : steps.values()) {
+                if (step.output() != null && producers.putIfAbsent(step.output(), step) != null) {
+                    throw new IllegalArgumentException("Value " + step.output().name() + " is produced twice");
+                }
+            }
+
+            List<Step> roots = new ArrayList<>();
+            Map<String, List<Step>> dependents = new HashMap<>();
+            steps.keySet().forEach(name -> dependents.put(name, new ArrayList<>()));
+            for (Step step : steps.values()) {
+                if (step.input() == null) {
+                    roots.add(step);
+                } else if (producers.containsKey(step.input())) {
+                    dependents.get(producers.get(step.input()).name()).add(step);
+                } else {
+                    throw new IllegalArgumentException("Step " + step.name() + " needs " + step.input().name()
+                            + ", which no step produces");
+                }
+            }
+
+            // A step unreachable from the roots waits on itself through its inputs
+            int reachable = 0;
+            Deque<Step> pending = new ArrayDeque<>(roots);
+            while (!pending.isEmpty()) {
+                reachable++;
+                pending.addAll(dependents.get(pending.pop().name()));
+            }
+            if (reachable != steps.size()) {
+                throw new IllegalArgumentException("Steps depend on each other in a cycle");
+            }
+
+            dependents.replaceAll((_, next) -> List.copyOf(next));
+            return new ValidationGraph(List.copyOf(roots), Map.copyOf(dependents), Map.copyOf(compensations),
+                    Map.copyOf(speculations));
+        }
+
+        private Builder add(Step step) {
+            if (steps.putIfAbsent(step.name(), step) != null) {
+                throw new IllegalArgumentException("Duplicate step: " + step.name());
+            }
+            return this;
+        }
+    }
+}
@@ -12,17 +12,37 @@ import org.apache.logging.log4j.Logger;
 public class DemoUtil {
     private static final Logger logger = LogManager.getLogger(DemoUtil.class);
 
+    // Factor applied to every simulated delay: 1 keeps ServiceDelays as defined, 0 disables them
+    private static volatile double delayScale = Double.parseDouble(System.getProperty("demo.delay.scale", "1"));
+
+    /**
+     * Scales all simulated network delays (e.g. 0 to measure pure concurrency overhead in benchmarks).
+     *
+     * @param scale Factor applied to the ServiceDelays values, must not be negative
+     */
+    public static void setDelayScale(double scale) {
+        if (scale < 0) {
+            throw new IllegalArgumentException("Delay scale cannot be negative: " + scale);
+        }
+        delayScale = scale;
+    }
+
     /**
      * Simulates a network delay by sleeping the current thread.
      * This is used to make the demos more realistic and demonstrate
      * the timing differences between different concurrency approaches.
+     * The delay is multiplied by the delay scale (demo.delay.scale system property, 1 by default).
      *
      * @param millis The number of milliseconds to delay
      * @throws RuntimeException if the thread is interrupted
      */
     public static void simulateNetworkDelay(int millis) {
+        long scaledMillis = Math.round(millis * delayScale);
+        if (scaledMillis == 0) {
+            return;
+        }
         try {
-            Thread.sleep(millis);
+            Thread.sleep(scaledMillis);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Service interrupted", e);
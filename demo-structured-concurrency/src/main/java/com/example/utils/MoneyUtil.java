@@ -0,0 +1,38 @@
+package com.example.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions between BigDecimal amounts (REST/JSON boundary) and the fixed-point
+ * representation used internally: minor units (cents) as a long.
+ * Balance checks and debits only do long arithmetic, so they do not allocate.
+ */
+public final class MoneyUtil {
+    private MoneyUtil() {} // Utility class
+
+    // Number of decimals of the minor unit (cents)
+    public static final int SCALE = 2;
+
+    /**
+     * Converts an amount to cents.
+     *
+     * @throws IllegalArgumentException if the amount is null, has more than 2 decimals or does not fit in a long
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        try {
+            return amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid amount: " + amount, e);
+        }
+    }
+
+    /**
+     * Converts cents back to an amount with 2 decimals.
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
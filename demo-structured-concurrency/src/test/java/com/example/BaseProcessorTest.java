@@ -20,6 +20,11 @@ public abstract class BaseProcessorTest {
         ServiceDelays.CARD_VALIDATION_DELAY + ServiceDelays.PIN_VALIDATION_DELAY;  // ~400ms
     protected static final long EXPECTED_EXPIRED_CARD_FAIL_FAST =
         ServiceDelays.CARD_VALIDATION_DELAY + ServiceDelays.EXPIRATION_VALIDATION_DELAY;  // ~300ms
+    // Declines that cancel the card validations but still wait for the merchant validation
+    protected static final long EXPECTED_INVALID_PIN_AWAIT_MERCHANT =
+        Math.max(ServiceDelays.MERCHANT_VALIDATION_DELAY, EXPECTED_INVALID_PIN_FAIL_FAST);  // ~500ms
+    protected static final long EXPECTED_EXPIRED_CARD_AWAIT_MERCHANT =
+        Math.max(ServiceDelays.MERCHANT_VALIDATION_DELAY, EXPECTED_EXPIRED_CARD_FAIL_FAST);  // ~500ms
     // Calculated expected times for common scenarios (long for timing comparisons)
     protected static final long EXPECTED_SUCCESS_TIME =
         Math.max(ServiceDelays.MERCHANT_VALIDATION_DELAY,
@@ -14,6 +14,11 @@ import com.example.structured.StructuredPaymentProcessor;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ComparisonTest extends BaseProcessorTest {
@@ -88,4 +93,24 @@ class ComparisonTest extends BaseProcessorTest {
         assertTrue(speedup > 300,
             String.format("Fail-fast should be >300ms faster, was %dms faster", speedup));
     }
+
+    @Test
+    @DisplayName("Reactive processor completes on a pool smaller than its in-flight stages")
+    void testReactiveOnBoundedPool() {
+        // Two consumer stages blocking on their nested validations would hold both threads forever
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            BasicReactivePaymentProcessor bounded = new BasicReactivePaymentProcessor(balanceService, cardValidationService,
+                    expirationService, pinValidationService, merchantValidationService, pool);
+
+            CompletableFuture<TransactionResult> first = bounded.processTransaction(createValidRequest());
+            CompletableFuture<TransactionResult> second = bounded.processTransaction(createValidRequest());
+
+            // Completing at all is the point: the result itself depends on the demo card fixtures
+            assertNotNull(first.orTimeout(10, TimeUnit.SECONDS).join());
+            assertNotNull(second.orTimeout(10, TimeUnit.SECONDS).join());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 }
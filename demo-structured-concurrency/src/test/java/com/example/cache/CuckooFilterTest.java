@@ -0,0 +1,114 @@
+package com.example.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CuckooFilterTest {
+
+    private static final int ITEMS = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private static String card(int i) {
+        return String.format("4000-0000-%04d-%04d", i / 10_000, i % 10_000);
+    }
+
+    @Test
+    @DisplayName("Added items are always found, unknown items rarely")
+    void testMembership() {
+        CuckooFilter filter = new CuckooFilter(ITEMS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < ITEMS; i++) {
+            filter.add(card(i));
+        }
+
+        for (int i = 0; i < ITEMS; i++) {
+            assertTrue(filter.mightContain(card(i)), "Added card must pass the filter");
+        }
+        int falsePositives = 0;
+        for (int i = ITEMS; i < ITEMS * 11; i++) {
+            if (filter.mightContain(card(i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives <= ITEMS * 10 * FALSE_POSITIVE_RATE * 2,
+                "Too many false positives: " + falsePositives);
+        assertEquals(ITEMS, filter.size());
+        assertTrue(filter.falsePositiveRate() <= FALSE_POSITIVE_RATE);
+    }
+
+    @Test
+    @DisplayName("Removed items no longer pass, the others still do")
+    void testRemove() {
+        CuckooFilter filter = new CuckooFilter(ITEMS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < ITEMS; i++) {
+            filter.add(card(i));
+        }
+        for (int i = 0; i < ITEMS; i += 2) {
+            assertTrue(filter.remove(card(i)));
+        }
+
+        for (int i = 1; i < ITEMS; i += 2) {
+            assertTrue(filter.mightContain(card(i)), "Remaining card must pass the filter");
+        }
+        long stillPassing = 0;
+        for (int i = 0; i < ITEMS; i += 2) {
+            if (filter.mightContain(card(i))) {
+                stillPassing++;
+            }
+        }
+        assertTrue(stillPassing < ITEMS / 100, "Removed cards still passing: " + stillPassing);
+        assertEquals(ITEMS / 2, filter.size());
+    }
+
+    @Test
+    @DisplayName("An overfull filter lets everything through instead of forgetting items")
+    void testSaturation() {
+        CuckooFilter filter = new CuckooFilter(100, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(card(i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(card(i)));
+        }
+        assertEquals(1.0, filter.falsePositiveRate());
+    }
+
+    @Test
+    @DisplayName("Concurrent adds and lookups never miss an added item")
+    void testConcurrentUpdates() {
+        CuckooFilter filter = new CuckooFilter(ITEMS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < ITEMS / 2; i++) {
+            filter.add(card(i));
+        }
+
+        AtomicInteger misses = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                executor.submit(() -> {
+                    for (int i = ITEMS / 2 + offset; i < ITEMS; i += 4) {
+                        filter.add(card(i));
+                    }
+                });
+                executor.submit(() -> {
+                    for (int i = 0; i < ITEMS / 2; i++) {
+                        if (!filter.mightContain(card(i))) {
+                            misses.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+
+        assertEquals(0, misses.get(), "Lookups missed added cards during relocations");
+        for (int i = 0; i < ITEMS; i++) {
+            assertTrue(filter.mightContain(card(i)));
+        }
+    }
+}
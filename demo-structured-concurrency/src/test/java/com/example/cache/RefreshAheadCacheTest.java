@@ -0,0 +1,150 @@
+package com.example.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshAheadCacheTest {
+
+    private static final Duration TTL = Duration.ofSeconds(10);
+    private static final Duration NEGATIVE_TTL = Duration.ofSeconds(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private RefreshAheadCache<String, String> cache(double refreshAhead) {
+        return cache(refreshAhead, 16);
+    }
+
+    private RefreshAheadCache<String, String> cache(double refreshAhead, int maxConcurrentRefreshes) {
+        return new RefreshAheadCache<>("test-cache", 100,
+                value -> value.startsWith("blocked") ? NEGATIVE_TTL : TTL, refreshAhead,
+                maxConcurrentRefreshes, nanos::get);
+    }
+
+    private Supplier<String> loader(String key) {
+        return () -> key + "-" + loads.incrementAndGet();
+    }
+
+    @Test
+    @DisplayName("Values are loaded once and reloaded after their TTL")
+    void testTimeToLive() throws InterruptedException {
+        RefreshAheadCache<String, String> cache = cache(1);
+
+        assertEquals("merchant-1", cache.get("merchant", loader("merchant")));
+        assertEquals("merchant-1", cache.get("merchant", loader("merchant")));
+
+        nanos.addAndGet(TTL.toNanos());
+        assertEquals("merchant-2", cache.get("merchant", loader("merchant")));
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Negative results use their own, shorter TTL")
+    void testNegativeTimeToLive() throws InterruptedException {
+        RefreshAheadCache<String, String> cache = cache(1);
+
+        assertEquals("blocked-1", cache.get("blocked", loader("blocked")));
+        nanos.addAndGet(NEGATIVE_TTL.toNanos() / 2);
+        assertEquals("blocked-1", cache.get("blocked", loader("blocked")));
+        nanos.addAndGet(NEGATIVE_TTL.toNanos() / 2);
+        assertEquals("blocked-2", cache.get("blocked", loader("blocked")));
+    }
+
+    @Test
+    @DisplayName("Reads close to expiry return the cached value and reload it in the background")
+    void testRefreshAhead() throws InterruptedException {
+        RefreshAheadCache<String, String> cache = cache(0.8);
+        assertEquals("merchant-1", cache.get("merchant", loader("merchant")));
+
+        nanos.addAndGet(TTL.toNanos() * 9 / 10);
+        assertEquals("merchant-1", cache.get("merchant", loader("merchant")));
+        while (loads.get() < 2) {
+            Thread.sleep(1);
+        }
+        String refreshed;
+        while ((refreshed = cache.get("merchant", loader("merchant"))).equals("merchant-1")) {
+            Thread.sleep(1);
+        }
+        assertEquals("merchant-2", refreshed);
+        assertEquals(1, cache.refreshCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Refreshes beyond the concurrency cap are skipped, the cached values are still served")
+    void testRefreshCap() throws InterruptedException {
+        RefreshAheadCache<String, String> cache = cache(0.5, 1);
+        cache.get("first", loader("first"));
+        cache.get("second", loader("second"));
+        nanos.addAndGet(TTL.toNanos() * 6 / 10);
+
+        CountDownLatch release = new CountDownLatch(1);
+        assertEquals("first-1", cache.get("first", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return "first-refreshed";
+        }));
+        assertEquals("second-2", cache.get("second", loader("second")));
+        assertEquals(1, cache.refreshCount());
+        assertEquals(1, cache.skippedRefreshCount());
+
+        release.countDown();
+        while (cache.get("first", loader("first")).equals("first-1")) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("An invalidated key is loaded again")
+    void testInvalidate() throws InterruptedException {
+        RefreshAheadCache<String, String> cache = cache(1);
+        cache.get("merchant", loader("merchant"));
+
+        cache.invalidate("merchant");
+        assertEquals("merchant-2", cache.get("merchant", loader("merchant")));
+    }
+
+    @Test
+    @DisplayName("A load in flight when its key is invalidated does not store its value")
+    void testInvalidateDuringLoad() throws InterruptedException {
+        RefreshAheadCache<String, String> cache = cache(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread reader = Thread.ofVirtual().start(() -> {
+            try {
+                cache.get("merchant", () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return "merchant-stale";
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+
+        cache.invalidate("merchant");
+        release.countDown();
+        reader.join();
+
+        assertEquals(0, cache.size());
+        assertEquals("merchant-1", cache.get("merchant", loader("merchant")));
+    }
+}
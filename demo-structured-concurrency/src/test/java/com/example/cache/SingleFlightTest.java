@@ -0,0 +1,110 @@
+package com.example.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 10;
+
+    @Test
+    @DisplayName("Concurrent loads of one key run the loader once and all get its result")
+    void testCoalescing() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test-load");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> flight.load("card", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "loaded";
+                })));
+            }
+            while (flight.coalescedCount() < CALLERS - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+        }
+
+        for (Future<String> result : results) {
+            assertEquals("loaded", result.get());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    @DisplayName("An interrupted caller stops waiting without cancelling the load of the others")
+    void testInterruptedCaller() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test-load");
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean loaderInterrupted = new AtomicBoolean();
+        AtomicBoolean callerInterrupted = new AtomicBoolean();
+
+        Thread cancelled = Thread.ofVirtual().start(() -> {
+            try {
+                flight.load("card", () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        loaderInterrupted.set(true);
+                    }
+                    return "loaded";
+                });
+            } catch (InterruptedException e) {
+                callerInterrupted.set(true);
+            }
+        });
+        while (flight.inFlight() == 0) {
+            Thread.sleep(1);
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> other = executor.submit(() -> flight.load("card", () -> "second load"));
+            while (flight.coalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            cancelled.interrupt();
+            cancelled.join();
+            assertTrue(callerInterrupted.get());
+
+            release.countDown();
+            assertEquals("loaded", other.get());
+        }
+        assertFalse(loaderInterrupted.get());
+    }
+
+    @Test
+    @DisplayName("A failed load is thrown to every caller and not kept")
+    void testFailure() throws InterruptedException {
+        SingleFlight<String, String> flight = new SingleFlight<>("test-load");
+
+        assertThrows(IllegalStateException.class, () -> flight.load("card", () -> {
+            throw new IllegalStateException("backend down");
+        }));
+        assertEquals("loaded", flight.load("card", () -> "loaded"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.fixtures.DemoCards.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    @DisplayName("Cached values are returned until invalidated")
+    void testGetPutInvalidate() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, Duration.ZERO, nanos::get);
+
+        assertNull(cache.get("a"));
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        cache.put("a", "2");
+        assertEquals("2", cache.get("a"));
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Entries expire after the time to live")
+    void testExpiry() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, Duration.ofSeconds(10), nanos::get);
+        cache.put("a", "1");
+
+        nanos.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertEquals("1", cache.get("a"));
+
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("The cache never holds more than its maximum size")
+    void testMaximumSize() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, Duration.ZERO, nanos::get);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+            assertTrue(cache.size() <= 100);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(9_900, cache.evictionCount());
+    }
+
+    @Test
+    @DisplayName("A scan of one-off keys does not evict the frequently used ones")
+    void testScanResistance() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, Duration.ZERO, nanos::get);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (cache.get("hot-" + i) == null) {
+                    cache.put("hot-" + i, "value");
+                }
+            }
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("scan-" + i, "value");
+        }
+
+        int hotRemaining = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot-" + i) != null) {
+                hotRemaining++;
+            }
+        }
+        assertTrue(hotRemaining >= 45, "Hot entries evicted by the scan, remaining: " + hotRemaining);
+    }
+
+    @Test
+    @DisplayName("A card cache publishes its metrics in the registry it is bound to, once per registry")
+    void testCardCachePublishesInBoundRegistry() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        TinyLfuCardCache cardCache = new TinyLfuCardCache(100, Duration.ofMinutes(5));
+        cardCache.bindTo(registry);
+
+        assertNull(cardCache.get(VALID_CARD_NUMBER));
+        cardCache.put(VALID_CARD);
+        assertNotNull(cardCache.get(VALID_CARD_NUMBER));
+
+        assertEquals(1, registry.get("payment.card.cache.hits").functionCounter().count());
+        assertEquals(1, registry.get("payment.card.cache.misses").functionCounter().count());
+        assertEquals(1, registry.get("payment.card.cache.size").gauge().value());
+        assertThrows(IllegalStateException.class,
+                () -> new TinyLfuCardCache(100, Duration.ofMinutes(5)).bindTo(registry));
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.persistence;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.repository.CardRepository;
+import com.example.services.BalanceService;
+import com.example.services.LockingReservationEngine;
+import com.example.services.PinValidationService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.example.fixtures.DemoCards.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restart scenarios: state written through a WriteAheadLog must come back when it is reopened.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Debits survive a restart, holds of interrupted transactions are released")
+    void testRecoversDebitsAndReleasesHolds() throws IOException {
+        TransactionRequest transferred = request("100.00");
+        TransactionRequest held = request("250.00");
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            BalanceService balanceService = new BalanceService(cardRepository, new LockingReservationEngine(cardRepository), wal);
+            JournalRecovery.recover(wal, cardRepository, balanceService);
+
+            assertTrue(ValidationResult.success(balanceService.validate(transferred, VALID_CARD)));
+            balanceService.transfer(transferred);
+            assertTrue(ValidationResult.success(balanceService.validate(held, VALID_CARD)));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            LockingReservationEngine engine = new LockingReservationEngine(cardRepository);
+            JournalRecovery.recover(wal, cardRepository, new BalanceService(cardRepository, engine, wal));
+
+            assertEquals(0, new BigDecimal("4900.00").compareTo(cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance()));
+            // Nobody can complete the 250.00 hold anymore: the whole balance is available again
+            assertFalse(engine.release(held));
+            assertTrue(ValidationResult.success(engine.reserve(request("4900.00"), VALID_CARD)));
+        }
+
+        // The release is journaled: the next restart has nothing left to release
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            wal.replay(entries::add);
+            assertInstanceOf(JournalEntry.Released.class, entries.getLast());
+        }
+    }
+
+    @Test
+    @DisplayName("PINs are not journaled: a recovered card validates once its PIN is set again")
+    void testLeavesPinsOutOfTheJournal() throws IOException {
+        Card card = new Card("4000-0000-0000-0002", "1230", "8642", 10_000, "Journaled card");
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            JournalRecovery.recover(wal, cardRepository);
+            cardRepository.save(card);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            wal.replay(entries::add);
+            assertTrue(entries.stream().allMatch(entry -> !(entry instanceof JournalEntry.CardSaved(Card saved))
+                    || saved.pin() == null));
+
+            CardRepository cardRepository = new CardRepository(wal);
+            JournalRecovery.recover(wal, cardRepository);
+            Card recovered = cardRepository.findByCardNumber(card.cardNumber()).orElseThrow();
+            assertNull(recovered.pin());
+            TransactionRequest request = new TransactionRequest(card.cardNumber(), "1230", "8642", 100, "Test Merchant", null);
+            PinValidationService pinValidation = new PinValidationService();
+            assertFalse(ValidationResult.success(pinValidation.validate(request, recovered)));
+
+            Card pinSet = cardRepository.save(new Card(recovered.cardNumber(), recovered.expirationDate(), "8642",
+                    recovered.balanceCents(), recovered.description()));
+            assertTrue(ValidationResult.success(pinValidation.validate(request, pinSet)));
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the log is dropped")
+    void testDropsTornTail() throws IOException {
+        Path file = dir.resolve("wal-0000000000000001.log");
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            wal.append(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 1_000));
+        }
+        long validSize = Files.size(file);
+        // Crash in the middle of the next record: header and half the payload
+        Files.write(file, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 3, 0}, StandardOpenOption.APPEND);
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            wal.replay(entries::add);
+
+            assertEquals(List.of(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 1_000)), entries);
+            assertEquals(validSize, Files.size(file));
+        }
+    }
+
+    @Test
+    @DisplayName("A corrupt record in a sealed segment fails replay instead of dropping the rest of the segment")
+    void testCorruptSealedSegmentFails() throws IOException {
+        Path sealed = dir.resolve("wal-0000000000000001.log");
+        // Small segments, so the first one is sealed
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 256)) {
+            for (int i = 0; i < 50; i++) {
+                wal.append(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 1));
+            }
+        }
+        assertTrue(Files.exists(dir.resolve("wal-0000000000000002.log")));
+        byte[] bytes = Files.readAllBytes(sealed);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(sealed, bytes);
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 256)) {
+            UncheckedIOException replayFailure = assertThrows(UncheckedIOException.class, () -> wal.replay(_ -> {}));
+            assertTrue(replayFailure.getCause().getMessage().contains(sealed.toString()));
+            IOException checkpointFailure = assertThrows(IOException.class, wal::checkpoint);
+            assertTrue(checkpointFailure.getMessage().contains(sealed.toString()));
+        }
+        // Nothing was deleted: the segment is still there to be repaired
+        assertTrue(Files.exists(sealed));
+    }
+
+    @Test
+    @DisplayName("A change whose fsync fails is undone, and the failed log takes no later change")
+    void testFailedFsyncUndoesChange() throws IOException {
+        Card added = new Card("4000-0000-0000-0002", "1230", "8642", 10_000, "Never durable");
+        AtomicBoolean failing = new AtomicBoolean();
+        WriteAheadLog.Fsync fsync = channel -> {
+            if (failing.get()) {
+                throw new IOException("Simulated fsync failure");
+            }
+            channel.force(false);
+        };
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.DEFAULT_SEGMENT_BYTES, fsync)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            JournalRecovery.recover(wal, cardRepository);
+            failing.set(true);
+            assertThrows(UncheckedIOException.class, () -> cardRepository.debit(VALID_CARD_NUMBER, 10_000));
+            assertEquals(VALID_CARD.balanceCents(), cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balanceCents());
+
+            // Failing for good, even once the disk would take writes again
+            failing.set(false);
+            assertThrows(UncheckedIOException.class, () -> cardRepository.save(added));
+            assertFalse(cardRepository.exists(added.cardNumber()));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            JournalRecovery.recover(wal, cardRepository);
+            assertEquals(VALID_CARD.balanceCents(), cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balanceCents());
+            assertFalse(cardRepository.exists(added.cardNumber()));
+        }
+    }
+
+    @Test
+    @DisplayName("Appending to a closed log fails instead of waiting forever")
+    void testAppendAfterCloseFails() throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(dir);
+        wal.append(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 1_000));
+        wal.close();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(IllegalStateException.class,
+                    () -> wal.append(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 500)));
+            assertThrows(IllegalStateException.class,
+                    () -> wal.enqueue(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 500)));
+        });
+        // Closing again is harmless
+        wal.close();
+
+        try (WriteAheadLog reopened = new WriteAheadLog(dir)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            reopened.replay(entries::add);
+            assertEquals(List.of(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 1_000)), entries);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent appends are all durable")
+    void testConcurrentAppends() throws IOException {
+        int appends = 2_000;
+        try (WriteAheadLog wal = new WriteAheadLog(dir);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < appends; i++) {
+                executor.submit(() -> wal.append(new JournalEntry.CardDebited(VALID_CARD_NUMBER, 1)));
+            }
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            long[] replayed = {0};
+            wal.replay(_ -> replayed[0]++);
+            assertEquals(appends, replayed[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent debits and balance changes replay to the balance they left")
+    void testConcurrentChangesReplayInOrder() throws IOException {
+        long balanceCents;
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            JournalRecovery.recover(wal, cardRepository);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 1_000; i++) {
+                    long newBalanceCents = i * 100L;
+                    // A debit journaled before the balance it was applied after would replay to another balance
+                    executor.submit(() -> newBalanceCents % 200 == 0
+                            ? cardRepository.debit(VALID_CARD_NUMBER, 1)
+                            : cardRepository.updateBalance(VALID_CARD_NUMBER, newBalanceCents));
+                }
+            }
+            balanceCents = cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balanceCents();
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            JournalRecovery.recover(wal, cardRepository);
+            assertEquals(balanceCents, cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balanceCents());
+        }
+    }
+
+    @Test
+    @DisplayName("A checkpoint folds the sealed segments into a snapshot that recovery starts from")
+    void testCheckpoint() throws IOException {
+        TransactionRequest held = request("250.00");
+
+        // Small segments, so the log is already split before the checkpoint
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 256)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            BalanceService balanceService = new BalanceService(cardRepository, new LockingReservationEngine(cardRepository), wal);
+            JournalRecovery.recover(wal, cardRepository, balanceService);
+            cardRepository.debit(VALID_CARD_NUMBER, 10_000);
+            assertTrue(ValidationResult.success(balanceService.validate(held, VALID_CARD)));
+
+            wal.checkpoint();
+            // What replay reads is gone
+            assertThrows(IllegalStateException.class, () -> wal.replay(_ -> {}));
+            cardRepository.debit(VALID_CARD_NUMBER, 5_000);
+        }
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of("snapshot-", "wal-"), files.map(file -> file.getFileName().toString().replaceAll("\\d+\\..*", ""))
+                    .sorted().toList());
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            LockingReservationEngine engine = new LockingReservationEngine(cardRepository);
+            JournalRecovery.recover(wal, cardRepository, new BalanceService(cardRepository, engine, wal));
+
+            assertEquals(0, new BigDecimal("4850.00").compareTo(cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance()));
+            assertEquals(getAllCards().length, cardRepository.findAll().size());
+            // The hold went through the snapshot and was released on recovery
+            assertFalse(engine.release(held));
+            assertTrue(ValidationResult.success(engine.reserve(request("4850.00"), VALID_CARD)));
+        }
+    }
+
+    @Test
+    @DisplayName("A second checkpoint applies the changes since the first to the streamed snapshot")
+    void testCheckpointOverSnapshot() throws IOException {
+        TransactionRequest released = request("250.00");
+        TransactionRequest held = request("300.00");
+        Card added = new Card("4000-0000-0000-0002", "1230", "8642", 10_000, "Added after the first snapshot");
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir, 256)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            BalanceService balanceService = new BalanceService(cardRepository, new LockingReservationEngine(cardRepository), wal);
+            JournalRecovery.recover(wal, cardRepository, balanceService);
+            cardRepository.debit(VALID_CARD_NUMBER, 10_000);
+            assertTrue(ValidationResult.success(balanceService.validate(released, VALID_CARD)));
+            wal.checkpoint();
+
+            cardRepository.debit(VALID_CARD_NUMBER, 5_000);
+            cardRepository.updateBalance(LOW_BALANCE_CARD_NUMBER, 12_345);
+            cardRepository.delete(EXPIRED_CARD_NUMBER);
+            cardRepository.save(added);
+            balanceService.releaseAmount(released);
+            assertTrue(ValidationResult.success(balanceService.validate(held, VALID_CARD)));
+            wal.checkpoint();
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            List<JournalEntry> entries = new ArrayList<>();
+            wal.replay(entries::add);
+            // One save per card, one hold per open transaction
+            assertEquals(getAllCards().length, entries.stream().filter(JournalEntry.CardSaved.class::isInstance).count());
+            assertEquals(List.of(held.transactionId()), entries.stream()
+                    .filter(JournalEntry.Held.class::isInstance)
+                    .map(entry -> ((JournalEntry.Held) entry).transactionId())
+                    .toList());
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            CardRepository cardRepository = new CardRepository(wal);
+            JournalRecovery.recover(wal, cardRepository);
+            assertEquals(485_000, cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balanceCents());
+            assertEquals(12_345, cardRepository.findByCardNumber(LOW_BALANCE_CARD_NUMBER).orElseThrow().balanceCents());
+            assertFalse(cardRepository.exists(EXPIRED_CARD_NUMBER));
+            assertEquals(added.balanceCents(), cardRepository.findByCardNumber(added.cardNumber()).orElseThrow().balanceCents());
+        }
+    }
+
+    @Test
+    @DisplayName("Group sizes are published in the registry the log is bound to, once per registry")
+    void testPublishesGroupSizeInBoundRegistry() throws IOException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        try (WriteAheadLog wal = new WriteAheadLog(dir)) {
+            wal.bindTo(registry);
+            wal.append(new JournalEntry.Held(request("100.00")));
+            wal.append(new JournalEntry.Released(request("100.00")));
+
+            DistributionSummary groupSize = registry.get("payment.wal.group.size").summary();
+            assertTrue(groupSize.count() >= 1);
+            assertEquals(2, groupSize.totalAmount());
+            assertThrows(IllegalStateException.class, () -> wal.bindTo(registry));
+        }
+    }
+
+    private static TransactionRequest request(String amount) {
+        return new TransactionRequest(VALID_CARD_NUMBER, VALID_CARD_EXPIRATION, VALID_CARD_PIN, new BigDecimal(amount), "Test Merchant");
+    }
+}
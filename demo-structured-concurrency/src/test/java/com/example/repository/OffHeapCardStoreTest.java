@@ -0,0 +1,108 @@
+package com.example.repository;
+
+import com.example.model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.example.fixtures.DemoCards.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCardStoreTest {
+
+    private static final int CAPACITY = 100;
+
+    @TempDir
+    Path dir;
+
+    OffHeapCardStore store;
+
+    @BeforeEach
+    void open() throws IOException {
+        store = new OffHeapCardStore(dir.resolve("cards.dat"), CAPACITY);
+    }
+
+    @AfterEach
+    void close() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Cards read back as stored, including null fields")
+    void testRoundTrip() {
+        Card noDescription = new Card("4000-0000-0000-0002", "1299", "4321", 12_345L, null);
+        store.put(VALID_CARD);
+        store.put(noDescription);
+
+        assertEquals(VALID_CARD, store.get(VALID_CARD_NUMBER));
+        assertEquals(noDescription, store.get(noDescription.cardNumber()));
+        assertNull(store.get(EXPIRED_CARD_NUMBER));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    @DisplayName("Removed slots are reused and removed cards are not found")
+    void testRemoveAndReuse() {
+        for (int i = 0; i < CAPACITY; i++) {
+            store.put(card(i));
+        }
+        assertThrows(IllegalStateException.class, () -> store.put(card(CAPACITY)));
+
+        store.remove(card(7).cardNumber());
+        assertFalse(store.contains(card(7).cardNumber()));
+        store.put(card(CAPACITY));
+
+        assertEquals(card(CAPACITY), store.get(card(CAPACITY).cardNumber()));
+        assertEquals(CAPACITY, store.values().size());
+        assertEquals(card(99), store.get(card(99).cardNumber()));
+    }
+
+    @Test
+    @DisplayName("Card numbers are listed without the removed cards")
+    void testForEachCardNumber() {
+        for (int i = 0; i < 10; i++) {
+            store.put(card(i));
+        }
+        store.remove(card(3).cardNumber());
+
+        Set<String> cardNumbers = new HashSet<>();
+        store.forEachCardNumber(cardNumbers::add);
+
+        assertEquals(9, cardNumbers.size());
+        assertFalse(cardNumbers.contains(card(3).cardNumber()));
+        assertTrue(cardNumbers.contains(card(9).cardNumber()));
+    }
+
+    @Test
+    @DisplayName("Concurrent updates of one card are not lost")
+    void testConcurrentUpdates() {
+        store.put(VALID_CARD);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1_000; i++) {
+                executor.submit(() -> store.update(VALID_CARD_NUMBER, card -> card.withBalanceCents(card.balanceCents() - 1)));
+            }
+        }
+        assertEquals(VALID_CARD.balanceCents() - 1_000, store.get(VALID_CARD_NUMBER).balanceCents());
+    }
+
+    @Test
+    @DisplayName("Fields longer than the record layout are rejected")
+    void testRejectsOversizedFields() {
+        Card card = new Card("4000-0000-0000-0003", "1299", "4321", 0L, "x".repeat(100));
+        assertThrows(IllegalArgumentException.class, () -> store.put(card));
+        assertFalse(store.contains(card.cardNumber()));
+    }
+
+    private static Card card(int i) {
+        return new Card("4000-0000-0000-%04d".formatted(i), "1299", "4321", i * 100L, "Card " + i);
+    }
+}
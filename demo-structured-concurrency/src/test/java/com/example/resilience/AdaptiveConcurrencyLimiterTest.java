@@ -0,0 +1,120 @@
+package com.example.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter limiter(LimitAlgorithm algorithm, int initialLimit) {
+        return new AdaptiveConcurrencyLimiter("test", algorithm, initialLimit, 2, 100, nanos::get);
+    }
+
+    /**
+     * Runs limit calls at once, all completing after latencyMillis.
+     */
+    private void saturate(AdaptiveConcurrencyLimiter limiter, long latencyMillis) {
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        ConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        permits.forEach(ConcurrencyLimiter.Permit::release);
+    }
+
+    @Test
+    @DisplayName("Calls beyond the limit are rejected until a permit is released")
+    void testRejectsBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new AimdLimit(Duration.ofSeconds(1), 0.9), 2);
+
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+
+        first.release();
+        first.release();  // released once only
+        assertEquals(1, limiter.inFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("AIMD grows while saturated with fast calls and backs off on slow or dropped ones")
+    void testAimd() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new AimdLimit(Duration.ofSeconds(1), 0.5), 10);
+
+        saturate(limiter, 100);
+        int grown = limiter.limit();
+        assertTrue(grown > 10);
+
+        saturate(limiter, 2_000);
+        assertTrue(limiter.limit() < grown);
+
+        int limit = limiter.limit();
+        limiter.tryAcquire().dropped();
+        assertEquals(Math.max(2, limit / 2), limiter.limit());
+    }
+
+    @Test
+    @DisplayName("Gradient grows while latency is level and shrinks when calls slow down")
+    void testGradient() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new GradientLimit(1.5, 0.2), 10);
+
+        for (int i = 0; i < 10; i++) {
+            saturate(limiter, 100);
+        }
+        int grown = limiter.limit();
+        assertTrue(grown > 10);
+
+        // Queueing: calls take five times as long as usual
+        for (int i = 0; i < 5; i++) {
+            saturate(limiter, 500);
+        }
+        assertTrue(limiter.limit() < grown);
+    }
+
+    @Test
+    @DisplayName("The limit stays within its bounds")
+    void testBounds() {
+        AdaptiveConcurrencyLimiter limiter = limiter(new AimdLimit(Duration.ofSeconds(1), 0.5), 10);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire().dropped();
+        }
+        assertEquals(2, limiter.limit());
+
+        for (int i = 0; i < 20; i++) {
+            saturate(limiter, 10);
+        }
+        assertEquals(100, limiter.limit());
+    }
+
+    @Test
+    @DisplayName("Metrics are published in the bound registry, once per limiter name")
+    void testBindTo() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = limiter(new AimdLimit(Duration.ofSeconds(1), 0.9), 1);
+        limiter.bindTo(registry);
+
+        assertNotNull(limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+        assertEquals(1, registry.get("payment.concurrency.limit").tag("limiter", "test").gauge().value());
+        assertEquals(1, registry.get("payment.concurrency.in.flight").tag("limiter", "test").gauge().value());
+        assertEquals(1, registry.get("payment.concurrency.rejected").tag("limiter", "test").functionCounter().count());
+
+        AdaptiveConcurrencyLimiter sameName = limiter(new AimdLimit(Duration.ofSeconds(1), 0.9), 1);
+        assertThrows(IllegalStateException.class, () -> sameName.bindTo(registry));
+    }
+}
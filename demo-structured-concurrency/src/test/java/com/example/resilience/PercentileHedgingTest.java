@@ -0,0 +1,107 @@
+package com.example.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentileHedgingTest {
+
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(50);
+    private static final long SLOW_MILLIS = 2_000;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private String slowThenFast() {
+        if (attempts.incrementAndGet() == 1) {
+            sleep(SLOW_MILLIS);
+            return "first";
+        }
+        return "hedge";
+    }
+
+    @Test
+    @DisplayName("A slow call is hedged and the faster duplicate wins")
+    void testHedgeWins() throws InterruptedException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        PercentileHedging hedging = new PercentileHedging("test", 0.95, HEDGE_DELAY, Duration.ZERO, 1, 1);
+        hedging.bindTo(registry);
+
+        long startTime = System.currentTimeMillis();
+        assertEquals("hedge", hedging.call(this::slowThenFast));
+        assertTrue(System.currentTimeMillis() - startTime < SLOW_MILLIS / 2);
+        assertEquals(2, attempts.get());
+        assertEquals(1, registry.get("payment.hedge.sent").tag("service", "test").functionCounter().count());
+        assertEquals(1, registry.get("payment.hedge.wins").tag("service", "test").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Without budget a slow call just waits for its attempt")
+    void testBudgetExhausted() throws InterruptedException {
+        PercentileHedging hedging = new PercentileHedging("test", 0.95, HEDGE_DELAY, Duration.ZERO, 0, 0);
+
+        assertEquals("first", hedging.call(this::slowThenFast));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    @DisplayName("A call failing before the hedge delay is not retried")
+    void testFailureNotHedged() {
+        PercentileHedging hedging = new PercentileHedging("test", 0.95, HEDGE_DELAY, Duration.ZERO, 1, 1);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> hedging.call(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("backend down");
+        }));
+        assertEquals("backend down", failure.getMessage());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Calls won by a hedge count in the percentile with their time to result")
+    void testHedgedCallsAreSampled() throws InterruptedException {
+        PercentileHedging hedging = new PercentileHedging("test", 0.95, HEDGE_DELAY, Duration.ZERO, 1, 1);
+
+        // One call in ten is slow and won by its hedge: its first attempt is cancelled, never completes
+        for (int call = 0; call < 200; call++) {
+            boolean slow = call % 10 == 0;
+            AtomicInteger callAttempts = new AtomicInteger();
+            hedging.call(() -> {
+                sleep(slow && callAttempts.incrementAndGet() == 1 ? SLOW_MILLIS : 1);
+                return "done";
+            });
+        }
+
+        // The slow tenth took at least the hedge delay: the 95th percentile is one of them, not a 1ms call
+        assertTrue(hedging.hedgeDelayNanos() >= HEDGE_DELAY.toNanos() * 8 / 10,
+                "Hedge delay drifted down to " + hedging.hedgeDelayNanos() / 1_000_000 + "ms");
+    }
+
+    @Test
+    @DisplayName("The budget allows one hedge per 1/ratio calls, plus the burst")
+    void testBudget() {
+        HedgeBudget budget = new HedgeBudget(0.1, 1);
+        assertTrue(budget.tryHedge());
+        assertFalse(budget.tryHedge());
+
+        for (int i = 0; i < 9; i++) {
+            budget.onCall();
+        }
+        assertFalse(budget.tryHedge());
+        budget.onCall();
+        assertTrue(budget.tryHedge());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemaphoreBulkheadTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch finish = new CountDownLatch(1);
+
+    private String blockingCall() {
+        started.countDown();
+        try {
+            finish.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+
+    private Thread startBlockingCall(Bulkhead bulkhead) throws InterruptedException {
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try {
+                bulkhead.call(this::blockingCall);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        return thread;
+    }
+
+    @Test
+    @DisplayName("A call beyond capacity is rejected after waiting maxWait")
+    void testRejectsWhenFull() throws InterruptedException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        SemaphoreBulkhead bulkhead = new SemaphoreBulkhead("test", 1, Duration.ofMillis(100));
+        bulkhead.bindTo(registry);
+        Thread running = startBlockingCall(bulkhead);
+        assertEquals(1, bulkhead.occupancy());
+
+        long startTime = System.currentTimeMillis();
+        assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "rejected"));
+        assertTrue(System.currentTimeMillis() - startTime >= 100);
+        assertEquals(1, registry.get("payment.bulkhead.rejected").tag("service", "test").functionCounter().count());
+        assertThrows(IllegalStateException.class,
+                () -> new SemaphoreBulkhead("test", 1, Duration.ZERO).bindTo(registry));
+
+        finish.countDown();
+        running.join();
+        assertEquals(0, bulkhead.occupancy());
+        assertEquals("accepted", bulkhead.call(() -> "accepted"));
+    }
+
+    @Test
+    @DisplayName("A waiting call runs as soon as a slot frees up")
+    void testWaitsForSlot() throws InterruptedException {
+        SemaphoreBulkhead bulkhead = new SemaphoreBulkhead("test", 1, Duration.ofSeconds(5));
+        Thread running = startBlockingCall(bulkhead);
+
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finish.countDown();
+        });
+        assertEquals("waited", bulkhead.call(() -> "waited"));
+        running.join();
+    }
+
+    @Test
+    @DisplayName("The slot is released when the call throws")
+    void testReleasesOnFailure() throws InterruptedException {
+        SemaphoreBulkhead bulkhead = new SemaphoreBulkhead("test", 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+            throw new IllegalStateException("backend down");
+        }));
+        assertEquals(0, bulkhead.occupancy());
+        assertEquals("accepted", bulkhead.call(() -> "accepted"));
+    }
+}
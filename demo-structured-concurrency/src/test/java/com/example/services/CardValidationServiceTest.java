@@ -0,0 +1,87 @@
+package com.example.services;
+
+import com.example.cache.CardCache;
+import com.example.cache.TinyLfuCardCache;
+import com.example.model.Card;
+import com.example.model.CardValidationResult;
+import com.example.model.TransactionRequest;
+import com.example.repository.CardRepository;
+import com.example.resilience.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.example.fixtures.DemoCards.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardValidationServiceTest {
+
+    @Test
+    @DisplayName("Debits keep the cached card, saving the card again invalidates it")
+    void testOnlyCardChangesInvalidateTheCache() {
+        CardRepository cardRepository = new CardRepository();
+        CardValidationService service = new CardValidationService(cardRepository, new TinyLfuCardCache(100, Duration.ofMinutes(5)),
+                CardValidationService.DEFAULT_FILTER_EXPECTED_CARDS, CardValidationService.DEFAULT_FILTER_FALSE_POSITIVE_RATE);
+
+        assertInstanceOf(CardValidationResult.Success.class, service.validate(new TransactionRequest(
+                VALID_CARD_NUMBER, VALID_CARD_EXPIRATION, VALID_CARD_PIN, new BigDecimal("10.00"), "Test Merchant")));
+        assertNotNull(service.cachedCard(VALID_CARD_NUMBER));
+
+        cardRepository.debit(VALID_CARD_NUMBER, 1_000);
+        cardRepository.updateBalance(VALID_CARD_NUMBER, 100_000);
+        assertNotNull(service.cachedCard(VALID_CARD_NUMBER));
+
+        cardRepository.save(VALID_CARD.withBalanceCents(100_000));
+        assertNull(service.cachedCard(VALID_CARD_NUMBER));
+    }
+
+    @Test
+    @DisplayName("A lookup racing with a PIN change does not cache the card it read before the change")
+    void testLookupRacingWithChangeIsNotCached() {
+        AtomicBoolean changePin = new AtomicBoolean();
+        CardRepository cardRepository = new CardRepository() {
+            @Override
+            public Optional<Card> findByCardNumber(String cardNumber) {
+                Optional<Card> card = super.findByCardNumber(cardNumber);
+                if (changePin.compareAndSet(true, false)) {
+                    // Changed right after the lookup read it, before it is cached
+                    save(new Card(VALID_CARD_NUMBER, VALID_CARD_EXPIRATION, "4321", VALID_CARD.balanceCents(),
+                            VALID_CARD.description()));
+                }
+                return card;
+            }
+        };
+        CardValidationService service = new CardValidationService(cardRepository, new TinyLfuCardCache(100, Duration.ofMinutes(5)),
+                CardValidationService.DEFAULT_FILTER_EXPECTED_CARDS, CardValidationService.DEFAULT_FILTER_FALSE_POSITIVE_RATE);
+        TransactionRequest request = new TransactionRequest(
+                VALID_CARD_NUMBER, VALID_CARD_EXPIRATION, VALID_CARD_PIN, new BigDecimal("10.00"), "Test Merchant");
+
+        changePin.set(true);
+        assertInstanceOf(CardValidationResult.Success.class, service.validate(request));
+        assertNull(service.cachedCard(VALID_CARD_NUMBER));
+
+        assertInstanceOf(CardValidationResult.Success.class, service.validate(request));
+        assertEquals("4321", service.cachedCard(VALID_CARD_NUMBER).pin());
+    }
+
+    @Test
+    @DisplayName("Card filter metrics are published in the injected registry")
+    void testPublishesFilterMetricsInRegistry() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        CardValidationService service = new CardValidationService(new CardRepository(), CardCache.NONE,
+                CardValidationService.DEFAULT_FILTER_EXPECTED_CARDS, CardValidationService.DEFAULT_FILTER_FALSE_POSITIVE_RATE,
+                Bulkhead.NONE, registry);
+
+        assertInstanceOf(CardValidationResult.Failure.class, service.validate(new TransactionRequest(
+                "9999-9999-9999-9999", VALID_CARD_EXPIRATION, VALID_CARD_PIN, new BigDecimal("10.00"), "Test Merchant")));
+
+        assertEquals(1, registry.get("payment.card.filter.rejections").functionCounter().count());
+        assertEquals(getAllCards().length, registry.get("payment.card.filter.size").gauge().value());
+    }
+}
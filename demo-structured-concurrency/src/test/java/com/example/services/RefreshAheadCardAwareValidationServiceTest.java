@@ -0,0 +1,69 @@
+package com.example.services;
+
+import com.example.cache.RefreshAheadCache;
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.resilience.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.fixtures.DemoCards.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshAheadCardAwareValidationServiceTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    @Test
+    @DisplayName("Validations with the same key share the cached result until it is invalidated")
+    void testCachesByKey() {
+        AtomicInteger calls = new AtomicInteger();
+        RefreshAheadCardAwareValidationService<String> service = new RefreshAheadCardAwareValidationService<>(
+                (_, _) -> {
+                    calls.incrementAndGet();
+                    return ValidationResult.success();
+                },
+                (_, card) -> card.expirationDate(),
+                new RefreshAheadCache<>("test-card-aware", 100, _ -> TTL, 1, 1));
+
+        // Same expiration date: one delegate call for both cards
+        assertTrue(ValidationResult.success(service.validate(request(VALID_CARD), VALID_CARD)));
+        assertTrue(ValidationResult.success(service.validate(request(VALID_CARD), VALID_CARD)));
+        Card sameExpiration = new Card("4000-0000-0000-0003", VALID_CARD.expirationDate(), "0000", 0, "Same expiration");
+        assertTrue(ValidationResult.success(service.validate(request(sameExpiration), sameExpiration)));
+        assertEquals(1, calls.get());
+
+        service.invalidate(VALID_CARD.expirationDate());
+        service.validate(request(VALID_CARD), VALID_CARD);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("The cached expiration check gives the results of the uncached one")
+    void testCachedExpirationCheck() {
+        ExpirationService uncached = new ExpirationService();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ExpirationService cached = new ExpirationService(true, 100, TTL, 0.8, 1, Bulkhead.NONE, registry);
+
+        for (Card card : new Card[] {VALID_CARD, EXPIRED_CARD, VALID_CARD, EXPIRED_CARD}) {
+            assertEquals(uncached.validate(request(card), card), cached.validate(request(card), card));
+        }
+        // Published in the injected registry
+        assertEquals(2, registry.get("payment.validation.cache.hits").tag("cache", "expiration").functionCounter().count());
+        // Data that does not match the card is not served from the entry of the matching data
+        TransactionRequest mismatch = new TransactionRequest(VALID_CARD_NUMBER, EXPIRED_CARD.expirationDate(),
+                VALID_CARD_PIN, new BigDecimal("10.00"), "Test Merchant");
+        assertFalse(ValidationResult.success(cached.validate(mismatch, VALID_CARD)));
+    }
+
+    private static TransactionRequest request(Card card) {
+        return new TransactionRequest(card.cardNumber(), card.expirationDate(), card.pin(), new BigDecimal("10.00"), "Test Merchant");
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.services;
+
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.ValidationResult;
+import com.example.persistence.Journal;
+import com.example.persistence.JournalEntry;
+import com.example.persistence.JournalRecovery;
+import com.example.repository.CardRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.fixtures.DemoCards.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency checks shared by the reservation engines (no simulated delays involved).
+ */
+class ReservationEngineTest {
+
+    private static final int CONCURRENT_REQUESTS = 1_000;
+    private static final int GROUP_COMMIT_TRANSFERS = 16;
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    @Test
+    @DisplayName("Locking engine never holds more than the card balance")
+    void testLockingEngineNeverOverdraws() throws Exception {
+        assertNeverOverdraws(new LockingReservationEngine(new CardRepository()));
+    }
+
+    @Test
+    @DisplayName("CAS engine never holds more than the card balance")
+    void testCasEngineNeverOverdraws() throws Exception {
+        assertNeverOverdraws(new CasReservationEngine(new CardRepository()));
+    }
+
+    @Test
+    @DisplayName("CAS engine never overdraws while transfers race with reservations")
+    void testCasEngineNeverOverdrawsWhileTransferring() throws Exception {
+        CardRepository cardRepository = new CardRepository();
+        CasReservationEngine engine = new CasReservationEngine(cardRepository);
+
+        // A transfer frees its hold and lowers the balance: reservations checked against the old balance must retry
+        AtomicInteger transferred = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                TransactionRequest request = lowBalanceRequest(BigDecimal.ONE);
+                executor.submit(() -> {
+                    if (ValidationResult.success(engine.reserve(request, LOW_BALANCE_CARD))) {
+                        engine.transfer(request);
+                        transferred.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        assertEquals(LOW_BALANCE_CARD_BALANCE.intValue(), transferred.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cardRepository.findByCardNumber(LOW_BALANCE_CARD_NUMBER).orElseThrow().balance()));
+    }
+
+    @Test
+    @DisplayName("Sharded engine never holds more than the card balance")
+    void testShardedEngineNeverOverdraws() throws Exception {
+        try (ShardedReservationEngine engine = new ShardedReservationEngine(new CardRepository(), 4, 64)) {
+            assertNeverOverdraws(engine);
+        }
+    }
+
+    @Test
+    @DisplayName("An error in a sharded operation fails its caller and leaves the lane running")
+    void testShardedLaneSurvivesError() {
+        CardRepository cardRepository = new CardRepository() {
+            @Override
+            public Optional<Card> updateBalance(String cardNumber, long newBalanceCents) {
+                throw new Error("Broken repository");
+            }
+        };
+        try (ShardedReservationEngine engine = new ShardedReservationEngine(cardRepository, 1, 64)) {
+            assertThrows(Error.class, () -> engine.setBalanceCents(LOW_BALANCE_CARD_NUMBER, 0));
+            assertTrue(ValidationResult.success(engine.reserve(lowBalanceRequest(BigDecimal.ONE), LOW_BALANCE_CARD)));
+        }
+    }
+
+    @Test
+    @DisplayName("Release is idempotent on every engine")
+    void testReleaseIsIdempotent() {
+        CardRepository cardRepository = new CardRepository();
+        try (ShardedReservationEngine sharded = new ShardedReservationEngine(cardRepository, 4, 64)) {
+            for (ReservationEngine engine : List.of(new LockingReservationEngine(cardRepository), new CasReservationEngine(cardRepository),
+                    sharded)) {
+                TransactionRequest request = lowBalanceRequest(new BigDecimal("500.00"));
+
+                assertTrue(ValidationResult.success(engine.reserve(request, LOW_BALANCE_CARD)));
+                assertTrue(ValidationResult.failure(engine.reserve(lowBalanceRequest(BigDecimal.ONE), LOW_BALANCE_CARD)));
+
+                assertTrue(engine.release(request));
+                assertFalse(engine.release(request));
+                assertTrue(ValidationResult.success(engine.reserve(lowBalanceRequest(new BigDecimal("500.00")), LOW_BALANCE_CARD)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Reserving again for a request that already holds funds holds nothing more")
+    void testReserveIsIdempotent() {
+        CardRepository cardRepository = new CardRepository();
+        try (ShardedReservationEngine sharded = new ShardedReservationEngine(cardRepository, 4, 64)) {
+            for (ReservationEngine engine : List.of(new LockingReservationEngine(cardRepository), new CasReservationEngine(cardRepository),
+                    sharded)) {
+                TransactionRequest request = lowBalanceRequest(new BigDecimal("300.00"));
+
+                assertTrue(ValidationResult.success(engine.reserve(request, LOW_BALANCE_CARD)));
+                assertTrue(ValidationResult.success(engine.reserve(request, LOW_BALANCE_CARD)));
+                TransactionRequest rest = lowBalanceRequest(new BigDecimal("200.00"));
+                assertTrue(ValidationResult.success(engine.reserve(rest, LOW_BALANCE_CARD)));
+
+                assertTrue(engine.release(request));
+                assertFalse(engine.release(request));
+                assertTrue(engine.release(rest));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Two identical purchases each need funds of their own")
+    void testIdenticalPurchasesHoldSeparately() {
+        CardRepository cardRepository = new CardRepository();
+        try (ShardedReservationEngine sharded = new ShardedReservationEngine(cardRepository, 4, 64)) {
+            for (ReservationEngine engine : List.of(new LockingReservationEngine(cardRepository), new CasReservationEngine(cardRepository),
+                    sharded)) {
+                // As deserialized from JSON without a timestamp: equal records, separate transactions
+                TransactionRequest first = new TransactionRequest(LOW_BALANCE_CARD_NUMBER, LOW_BALANCE_CARD_EXPIRATION,
+                        LOW_BALANCE_CARD_PIN, new BigDecimal("300.00"), "Test Merchant", null);
+                TransactionRequest second = new TransactionRequest(LOW_BALANCE_CARD_NUMBER, LOW_BALANCE_CARD_EXPIRATION,
+                        LOW_BALANCE_CARD_PIN, new BigDecimal("300.00"), "Test Merchant", null);
+
+                assertTrue(ValidationResult.success(engine.reserve(first, LOW_BALANCE_CARD)));
+                assertTrue(ValidationResult.failure(engine.reserve(second, LOW_BALANCE_CARD)));
+
+                assertTrue(engine.release(first));
+                assertFalse(engine.release(second));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent transfers on one card debit every amount")
+    void testConcurrentTransfersAreNotLost() throws Exception {
+        for (String type : List.of("locking", "cas", "sharded")) {
+            CardRepository cardRepository = new CardRepository();
+            try (ShardedReservationEngine sharded = new ShardedReservationEngine(cardRepository, 4, 64)) {
+                ReservationEngine engine = switch (type) {
+                    case "locking" -> new LockingReservationEngine(cardRepository);
+                    case "cas" -> new CasReservationEngine(cardRepository);
+                    default -> sharded;
+                };
+
+                List<TransactionRequest> requests = new ArrayList<>();
+                for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                    TransactionRequest request = validCardRequest(BigDecimal.ONE);
+                    assertTrue(ValidationResult.success(engine.reserve(request, VALID_CARD)));
+                    requests.add(request);
+                }
+
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (TransactionRequest request : requests) {
+                        executor.submit(() -> engine.transfer(request));
+                    }
+                }
+
+                BigDecimal expected = VALID_CARD_BALANCE.subtract(BigDecimal.valueOf(CONCURRENT_REQUESTS));
+                assertEquals(0, expected.compareTo(cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance()),
+                        type + " engine lost a debit");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent transfers on one card share a journal commit")
+    void testConcurrentTransfersShareCommit() {
+        for (String type : List.of("locking", "cas", "sharded")) {
+            // Commits once every transfer queued its record: an engine waiting for durability while it
+            // serializes the card's transfers would never let the next one queue
+            CountDownLatch queued = new CountDownLatch(GROUP_COMMIT_TRANSFERS);
+            Journal journal = new Journal() {
+                @Override
+                public void append(JournalEntry entry) {
+                }
+
+                @Override
+                public Durable enqueue(JournalEntry entry) {
+                    queued.countDown();
+                    return () -> {
+                        try {
+                            queued.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    };
+                }
+            };
+            CardRepository cardRepository = new CardRepository(journal);
+            JournalRecovery.recover(journal, cardRepository);
+            try (ShardedReservationEngine sharded = new ShardedReservationEngine(cardRepository, 1, 64)) {
+                ReservationEngine engine = switch (type) {
+                    case "locking" -> new LockingReservationEngine(cardRepository);
+                    case "cas" -> new CasReservationEngine(cardRepository);
+                    default -> sharded;
+                };
+
+                assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                        for (int i = 0; i < GROUP_COMMIT_TRANSFERS; i++) {
+                            TransactionRequest request = validCardRequest(BigDecimal.ONE);
+                            assertTrue(ValidationResult.success(engine.reserve(request, VALID_CARD)));
+                            executor.submit(() -> engine.transfer(request));
+                        }
+                    }
+                }, type + " engine waited for durability while serializing the card");
+
+                BigDecimal expected = VALID_CARD_BALANCE.subtract(BigDecimal.valueOf(GROUP_COMMIT_TRANSFERS));
+                assertEquals(0, expected.compareTo(cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance()));
+            }
+        }
+    }
+
+    /**
+     * Reserves 1.00 from many virtual threads on the low balance card (500.00):
+     * exactly 500 reservations must succeed.
+     */
+    private void assertNeverOverdraws(ReservationEngine engine) throws Exception {
+        List<Future<ValidationResult>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                TransactionRequest request = lowBalanceRequest(BigDecimal.ONE);
+                results.add(executor.submit(() -> engine.reserve(request, LOW_BALANCE_CARD)));
+            }
+        }
+
+        long reserved = 0;
+        for (Future<ValidationResult> result : results) {
+            if (ValidationResult.success(result.get())) reserved++;
+        }
+        assertEquals(LOW_BALANCE_CARD_BALANCE.intValue(), reserved);
+    }
+
+    private static TransactionRequest validCardRequest(BigDecimal amount) {
+        return new TransactionRequest(
+            VALID_CARD_NUMBER,
+            VALID_CARD_EXPIRATION,
+            VALID_CARD_PIN,
+            amount,
+            "Test Merchant " + sequence.incrementAndGet()
+        );
+    }
+
+    private static TransactionRequest lowBalanceRequest(BigDecimal amount) {
+        return new TransactionRequest(
+            LOW_BALANCE_CARD_NUMBER,
+            LOW_BALANCE_CARD_EXPIRATION,
+            LOW_BALANCE_CARD_PIN,
+            amount,
+            "Test Merchant " + sequence.incrementAndGet()
+        );
+    }
+}
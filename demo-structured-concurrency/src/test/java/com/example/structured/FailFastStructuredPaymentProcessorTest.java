@@ -4,16 +4,26 @@ import com.example.BaseProcessorTest;
 import com.example.constants.ServiceDelays;
 import com.example.model.TransactionRequest;
 import com.example.model.TransactionResult;
+import com.example.persistence.Journal;
 import com.example.repository.CardRepository;
+import com.example.resilience.Hedging;
+import com.example.resilience.SemaphoreBulkhead;
 import com.example.services.BalanceService;
 import com.example.services.CardValidationService;
 import com.example.services.ExpirationService;
+import com.example.services.LockingReservationEngine;
 import com.example.services.MerchantValidationService;
 import com.example.services.PinValidationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.example.fixtures.DemoCards.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -83,6 +93,41 @@ class FailFastStructuredPaymentProcessorTest extends BaseProcessorTest {
         );
     }
 
+    @Test
+    @DisplayName("Deadline expiry cancels the validations and times out (~250ms)")
+    void testDeadlineTimesOut() throws InterruptedException {
+        long deadline = 250;
+        MeterRegistry registry = new SimpleMeterRegistry();
+        FailFastStructuredPaymentProcessor deadlineProcessor = new FailFastStructuredPaymentProcessor(
+                balanceService,
+                cardValidationService,
+                expirationService,
+                pinValidationService,
+                merchantValidationService,
+                Duration.ofMillis(deadline),
+                registry
+        );
+
+        TransactionResult result = deadlineProcessor.processTransaction(createValidRequest());
+
+        assertFalse(result.success());
+        assertEquals(TransactionResult.FailureType.TIMEOUT, result.failureType());
+        assertTimingWithinRange(result.processingTimeMs(), deadline, "Fail-fast deadline");
+        assertEquals(1, registry.get("payment.transaction.timeouts").tag("processor", "fail-fast")
+                .functionCounter().count());
+        assertEquals(VALID_CARD_BALANCE, cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance());
+
+        // Nothing is left on hold: the whole balance can still be spent
+        TransactionResult fullBalance = processor.processTransaction(new TransactionRequest(
+            VALID_CARD_NUMBER,
+            VALID_CARD_EXPIRATION,
+            VALID_CARD_PIN,
+            VALID_CARD_BALANCE,
+            "Test Merchant"
+        ));
+        assertTrue(fullBalance.success(), fullBalance.message());
+    }
+
     @Test
     @DisplayName("Merchant validation failure propagates correctly")
     void testMerchantFailure() throws InterruptedException {
@@ -104,4 +149,83 @@ class FailFastStructuredPaymentProcessorTest extends BaseProcessorTest {
             "Fail-fast merchant validation"
         );
     }
+
+    @Test
+    @DisplayName("Batch keeps request order, runs cards in parallel and a card's transactions in sequence")
+    void testBatchProcessing() throws InterruptedException {
+        TransactionRequest blockedMerchant = new TransactionRequest(
+            VALID_CARD_NUMBER,
+            VALID_CARD_EXPIRATION,
+            VALID_CARD_PIN,
+            new BigDecimal("100.00"),
+            "BLOCKED_MERCHANT"
+        );
+
+        long batchStart = System.currentTimeMillis();
+        List<TransactionResult> results = processor.processBatch(
+                List.of(createValidRequest(), createExpiredCardRequest(), blockedMerchant));
+        long batchTime = System.currentTimeMillis() - batchStart;
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).success());
+        assertTrue(results.get(1).message().contains("expired"));
+        assertTrue(results.get(2).message().contains("Merchant"));
+        // The valid card's two transactions run one after the other, the expired card alongside them
+        assertTimingWithinRange(
+            batchTime,
+            EXPECTED_SUCCESS_TIME + ServiceDelays.MERCHANT_VALIDATION_DELAY,
+            "Fail-fast batch"
+        );
+    }
+
+    @Test
+    @DisplayName("Batch rejects a missing body and a concurrency that would never start a transaction")
+    void testBatchRejectsInvalidInput() {
+        List<TransactionRequest> requests = List.of(createValidRequest());
+
+        assertThrows(IllegalArgumentException.class, () -> processor.processBatch(requests, 0));
+        assertThrows(IllegalArgumentException.class, () -> processor.processBatch(null));
+        assertThrows(IllegalArgumentException.class, () -> processor.processBatch(Arrays.asList(createValidRequest(), null)));
+    }
+
+    @Test
+    @DisplayName("A balance service at capacity rejects the transaction and cancels its validations")
+    void testBulkheadRejects() throws InterruptedException {
+        // Room for one reservation, no waiting: a second concurrent transaction cannot reserve
+        BalanceService boundedBalanceService = new BalanceService(cardRepository, new LockingReservationEngine(cardRepository),
+                Journal.NONE, Hedging.NONE, new SemaphoreBulkhead("balance", 1, Duration.ZERO));
+        FailFastStructuredPaymentProcessor boundedProcessor = new FailFastStructuredPaymentProcessor(
+                boundedBalanceService,
+                cardValidationService,
+                expirationService,
+                pinValidationService,
+                merchantValidationService
+        );
+
+        // Asserted on the test thread: a failed assertion in another thread would not fail the test
+        AtomicReference<TransactionResult> firstResult = new AtomicReference<>();
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                firstResult.set(boundedProcessor.processTransaction(createValidRequest()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(50);
+
+        // Another card, starting its balance check while the first transaction holds the only slot
+        TransactionRequest second = new TransactionRequest(LOW_BALANCE_CARD_NUMBER, LOW_BALANCE_CARD_EXPIRATION,
+                LOW_BALANCE_CARD_PIN, new BigDecimal("1.00"), "Amazon");
+        TransactionResult rejected = boundedProcessor.processTransaction(second);
+        first.join();
+
+        assertNotNull(firstResult.get());
+        assertTrue(firstResult.get().success());
+        assertEquals(TransactionResult.FailureType.REJECTED, rejected.failureType());
+        assertTimingWithinRange(
+            rejected.processingTimeMs(),
+            ServiceDelays.CARD_VALIDATION_DELAY,
+            "Fail-fast bulkhead rejection"
+        );
+    }
 }
@@ -0,0 +1,64 @@
+package com.example.structured;
+
+import com.example.model.ValidationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FirstFailureJoinerTest {
+
+    private static final long SLOW_MILLIS = 2_000;
+
+    private final AtomicBoolean slowFinished = new AtomicBoolean();
+
+    private ValidationResult slowSuccess() throws InterruptedException {
+        Thread.sleep(SLOW_MILLIS);
+        slowFinished.set(true);
+        return ValidationResult.success();
+    }
+
+    @Test
+    @DisplayName("All successful validations join to success")
+    void testAllSuccessful() throws InterruptedException {
+        try (var scope = StructuredTaskScope.open(new FirstFailureJoiner())) {
+            scope.fork(() -> ValidationResult.success());
+            scope.fork(() -> ValidationResult.success());
+
+            assertTrue(ValidationResult.success(scope.join()));
+        }
+    }
+
+    @Test
+    @DisplayName("The first failure is returned and cancels the other validations")
+    void testFirstFailureCancels() throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        try (var scope = StructuredTaskScope.open(new FirstFailureJoiner())) {
+            scope.fork(this::slowSuccess);
+            scope.fork(() -> ValidationResult.failure("Invalid PIN"));
+
+            assertEquals(ValidationResult.failure("Invalid PIN"), scope.join());
+        }
+        assertTrue(System.currentTimeMillis() - startTime < SLOW_MILLIS / 2);
+        assertFalse(slowFinished.get());
+    }
+
+    @Test
+    @DisplayName("A throwing validation cancels the others and fails the join")
+    void testExceptionFailsJoin() {
+        long startTime = System.currentTimeMillis();
+        try (var scope = StructuredTaskScope.open(new FirstFailureJoiner())) {
+            scope.fork(this::slowSuccess);
+            scope.fork(() -> {
+                throw new IllegalStateException("backend down");
+            });
+
+            var failure = assertThrows(StructuredTaskScope.FailedException.class, scope::join);
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+        }
+        assertTrue(System.currentTimeMillis() - startTime < SLOW_MILLIS / 2);
+    }
+}
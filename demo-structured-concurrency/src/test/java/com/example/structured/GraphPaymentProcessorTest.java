@@ -0,0 +1,220 @@
+package com.example.structured;
+
+import com.example.BaseProcessorTest;
+import com.example.cache.CardCache;
+import com.example.cache.TinyLfuCardCache;
+import com.example.constants.ServiceDelays;
+import com.example.model.Card;
+import com.example.model.TransactionRequest;
+import com.example.model.TransactionResult;
+import com.example.repository.CardRepository;
+import com.example.services.BalanceService;
+import com.example.services.CardValidationService;
+import com.example.services.ExpirationService;
+import com.example.services.MerchantValidationService;
+import com.example.services.PinValidationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static com.example.fixtures.DemoCards.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphPaymentProcessorTest extends BaseProcessorTest {
+
+    CardRepository cardRepository = new CardRepository();
+    BalanceService balanceService = new BalanceService(cardRepository);
+    CardValidationService cardValidationService = new CardValidationService(cardRepository);
+    ExpirationService expirationService = new ExpirationService();
+    PinValidationService pinValidationService = new PinValidationService();
+    MerchantValidationService merchantValidationService = new MerchantValidationService();
+
+    GraphPaymentProcessor processor = new GraphPaymentProcessor(
+            balanceService,
+            cardValidationService,
+            expirationService,
+            pinValidationService,
+            merchantValidationService
+    );
+    
+
+    @Test
+    @DisplayName("Success scenario completes in expected time (~700ms)")
+    void testSuccessTiming() throws InterruptedException {
+        TransactionRequest request = createValidRequest();
+
+        TransactionResult result = processor.processTransaction(request);
+
+        assertTrue(result.success());
+        assertTimingWithinRange(
+            result.processingTimeMs(),
+            BaseProcessorTest.EXPECTED_SUCCESS_TIME,
+            "Graph success"
+        );
+    }
+
+    @Test
+    @DisplayName("Expired card fails fast (~300ms)")
+    void testExpiredCardFailsFast() throws InterruptedException {
+        TransactionRequest request = createExpiredCardRequest();
+
+        TransactionResult result = processor.processTransaction(request);
+
+        assertFalse(result.success());
+        assertTrue(result.message().contains("expired"));
+        assertTimingWithinRange(
+            result.processingTimeMs(),
+            BaseProcessorTest.EXPECTED_EXPIRED_CARD_FAIL_FAST,
+            "Graph expired card"
+        );
+    }
+
+    @Test
+    @DisplayName("Invalid PIN fails fast (~400ms)")
+    void testInvalidPinFailsFast() throws InterruptedException {
+        TransactionRequest request = createInvalidPinRequest();
+
+        TransactionResult result = processor.processTransaction(request);
+
+        assertFalse(result.success());
+        assertTrue(result.message().contains("PIN"));
+        assertTimingWithinRange(
+            result.processingTimeMs(),
+            BaseProcessorTest.EXPECTED_INVALID_PIN_FAIL_FAST,
+            "Graph invalid PIN"
+        );
+    }
+
+    @Test
+    @DisplayName("Deadline expiry cancels the validations and times out (~250ms)")
+    void testDeadlineTimesOut() throws InterruptedException {
+        long deadline = 250;
+        GraphPaymentProcessor deadlineProcessor = new GraphPaymentProcessor(
+                balanceService,
+                cardValidationService,
+                expirationService,
+                pinValidationService,
+                merchantValidationService,
+                Duration.ofMillis(deadline)
+        );
+
+        TransactionResult result = deadlineProcessor.processTransaction(createValidRequest());
+
+        assertFalse(result.success());
+        assertEquals(TransactionResult.FailureType.TIMEOUT, result.failureType());
+        assertTimingWithinRange(result.processingTimeMs(), deadline, "Graph deadline");
+        assertEquals(VALID_CARD_BALANCE, cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance());
+    }
+
+    @Test
+    @DisplayName("Merchant validation failure propagates correctly")
+    void testMerchantFailure() throws InterruptedException {
+        TransactionRequest request = new TransactionRequest(
+            VALID_CARD_NUMBER,
+            VALID_CARD_EXPIRATION,
+            VALID_CARD_PIN,
+            new BigDecimal("100.00"),
+            "BLOCKED_MERCHANT"  // Triggers merchant failure
+        );
+
+        TransactionResult result = processor.processTransaction(request);
+
+        assertFalse(result.success());
+        assertTrue(result.message().contains("Merchant"));
+        assertTimingWithinRange(
+            result.processingTimeMs(),
+            ServiceDelays.MERCHANT_VALIDATION_DELAY,  // 500ms
+            "Graph merchant validation"
+        );
+    }
+
+    @Test
+    @DisplayName("The critical path is card then balance, the expected success time")
+    void testCriticalPath() {
+        assertEquals(List.of("card", "balance"), processor.graph().criticalPath());
+        assertEquals(EXPECTED_SUCCESS_TIME, processor.graph().criticalPathLatency().toMillis());
+    }
+
+    @Test
+    @DisplayName("Speculating on the cached card takes the card lookup off the success path (~600ms)")
+    void testSpeculationConfirmed() throws InterruptedException {
+        GraphPaymentProcessor speculativeProcessor = speculativeProcessor(
+                cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow());
+
+        TransactionResult result = speculativeProcessor.processTransaction(createValidRequest());
+
+        assertTrue(result.success());
+        assertTimingWithinRange(
+            result.processingTimeMs(),
+            ServiceDelays.BALANCE_VALIDATION_DELAY,
+            "Graph speculation confirmed"
+        );
+    }
+
+    @Test
+    @DisplayName("A stale cached card is detected and the card checks run again on the real card (~700ms)")
+    void testSpeculationMispredicted() throws InterruptedException {
+        Card card = cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow();
+        GraphPaymentProcessor speculativeProcessor = speculativeProcessor(
+                new Card(card.cardNumber(), card.expirationDate(), "0000", card.balanceCents(), card.description()));
+
+        TransactionResult result = speculativeProcessor.processTransaction(createValidRequest());
+
+        // The wrong PIN of the stale card is not reported, the balance held on it is released then held again
+        assertTrue(result.success());
+        assertTimingWithinRange(
+            result.processingTimeMs(),
+            BaseProcessorTest.EXPECTED_SUCCESS_TIME,
+            "Graph speculation mispredicted"
+        );
+        assertEquals(VALID_CARD_BALANCE.subtract(new BigDecimal("100.00")),
+                cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance());
+    }
+
+    @Test
+    @DisplayName("A cached card debited since is still confirmed: only its balance differs (~600ms)")
+    void testSpeculationConfirmedAfterDebit() throws InterruptedException {
+        GraphPaymentProcessor speculativeProcessor = speculativeProcessor(
+                cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow());
+        MeterRegistry registry = new SimpleMeterRegistry();
+        speculativeProcessor.graph().bindTo(registry);
+        assertTrue(speculativeProcessor.processTransaction(createValidRequest()).success());
+
+        // The cached card still has the balance from before the first debit
+        TransactionResult result = speculativeProcessor.processTransaction(createValidRequest());
+
+        assertTrue(result.success());
+        assertTimingWithinRange(
+            result.processingTimeMs(),
+            ServiceDelays.BALANCE_VALIDATION_DELAY,
+            "Graph speculation confirmed after debit"
+        );
+        assertEquals(2, registry.get("payment.validation.speculations")
+                .tags("step", "card", "outcome", "confirmed").functionCounter().count());
+        assertEquals(0, registry.get("payment.validation.speculations")
+                .tags("step", "card", "outcome", "mispredicted").functionCounter().count());
+        assertEquals(VALID_CARD_BALANCE.subtract(new BigDecimal("200.00")),
+                cardRepository.findByCardNumber(VALID_CARD_NUMBER).orElseThrow().balance());
+    }
+
+    private GraphPaymentProcessor speculativeProcessor(Card cachedCard) {
+        CardCache cardCache = new TinyLfuCardCache(100, Duration.ofMinutes(5));
+        cardCache.put(cachedCard);
+        return new GraphPaymentProcessor(
+                balanceService,
+                new CardValidationService(cardRepository, cardCache,
+                        CardValidationService.DEFAULT_FILTER_EXPECTED_CARDS,
+                        CardValidationService.DEFAULT_FILTER_FALSE_POSITIVE_RATE),
+                expirationService,
+                pinValidationService,
+                merchantValidationService,
+                StructuredProcessor.DEFAULT_DEADLINE,
+                true
+        );
+    }
+}
@@ -39,6 +39,7 @@ class StructuredPaymentProcessorTest extends BaseProcessorTest {
         TransactionResult result = processor.processTransaction(request);
 
         assertTrue(result.success());
+        assertEquals(request.transactionId(), result.transactionId());
         assertTimingWithinRange(
             result.processingTimeMs(),
             BaseProcessorTest.EXPECTED_SUCCESS_TIME,
@@ -47,8 +48,8 @@ class StructuredPaymentProcessorTest extends BaseProcessorTest {
     }
 
     @Test
-    @DisplayName("Expired card waits for all validations (~700ms)")
-    void testExpiredCardAwaitsAll() throws InterruptedException {
+    @DisplayName("Expired card cancels the card validations, waits for the merchant (~500ms)")
+    void testExpiredCardAwaitsMerchant() throws InterruptedException {
         TransactionRequest request = createExpiredCardRequest();
 
         TransactionResult result = processor.processTransaction(request);
@@ -56,14 +57,14 @@ class StructuredPaymentProcessorTest extends BaseProcessorTest {
         assertFalse(result.success());
         assertTimingWithinRange(
             result.processingTimeMs(),
-            BaseProcessorTest.EXPECTED_SUCCESS_TIME,  // Awaits all
-            "Structured expired card (await-all)"
+            BaseProcessorTest.EXPECTED_EXPIRED_CARD_AWAIT_MERCHANT,  // Merchant still awaited
+            "Structured expired card (await merchant)"
         );
     }
 
     @Test
-    @DisplayName("Invalid PIN waits for all validations (~700ms)")
-    void testInvalidPinAwaitsAll() throws InterruptedException {
+    @DisplayName("Invalid PIN cancels the card validations, waits for the merchant (~500ms)")
+    void testInvalidPinAwaitsMerchant() throws InterruptedException {
         TransactionRequest request = createInvalidPinRequest();
 
         TransactionResult result = processor.processTransaction(request);
@@ -71,8 +72,8 @@ class StructuredPaymentProcessorTest extends BaseProcessorTest {
         assertFalse(result.success());
         assertTimingWithinRange(
             result.processingTimeMs(),
-            BaseProcessorTest.EXPECTED_SUCCESS_TIME,  // Awaits all
-            "Structured invalid PIN (await-all)"
+            BaseProcessorTest.EXPECTED_INVALID_PIN_AWAIT_MERCHANT,  // Merchant still awaited
+            "Structured invalid PIN (await merchant)"
         );
     }
 }
@@ -0,0 +1,62 @@
+package com.example.structured;
+
+import com.example.BaseProcessorTest;
+import com.example.repository.CardRepository;
+import com.example.services.BalanceService;
+import com.example.services.CardValidationService;
+import com.example.services.ExpirationService;
+import com.example.services.MerchantValidationService;
+import com.example.services.PinValidationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStreamProcessorTest extends BaseProcessorTest {
+
+    CardRepository cardRepository = new CardRepository();
+    BalanceService balanceService = new BalanceService(cardRepository);
+
+    FailFastStructuredPaymentProcessor processor = new FailFastStructuredPaymentProcessor(
+            balanceService,
+            new CardValidationService(cardRepository),
+            new ExpirationService(),
+            new PinValidationService(),
+            new MerchantValidationService()
+    );
+
+    ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    @DisplayName("Stream writes one result line per request, tagged with its input line")
+    void testStreamResults() throws Exception {
+        String input = String.join("\n",
+                mapper.writeValueAsString(createValidRequest()),
+                "",
+                "not a request",
+                mapper.writeValueAsString(createExpiredCardRequest()));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new TransactionStreamProcessor(mapper, 2).process(processor,
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+        Map<Long, JsonNode> resultsByLine = new HashMap<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode node = mapper.readTree(line);
+            resultsByLine.put(node.get("line").asLong(), node.get("result"));
+        }
+
+        assertEquals(3, resultsByLine.size());
+        assertTrue(resultsByLine.get(1L).get("success").asBoolean());
+        assertTrue(resultsByLine.get(3L).get("message").asText().startsWith("Invalid request"));
+        assertTrue(resultsByLine.get(4L).get("message").asText().contains("expired"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.structured;
+
+import com.example.model.Card;
+import com.example.model.ValidationResult;
+import com.example.repository.CardRepository;
+import com.example.services.CardValidationService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationGraphTest {
+
+    private static final ValidationGraph.Key<Card> CARD = new ValidationGraph.Key<>("card");
+    private static final ValidationGraph.Key<Card> OTHER_CARD = new ValidationGraph.Key<>("other-card");
+
+    private final CardValidationService cardValidationService = new CardValidationService(new CardRepository());
+
+    private static Duration millis(long millis) {
+        return Duration.ofMillis(millis);
+    }
+
+    @Test
+    @DisplayName("The critical path follows the longest chain of expected latencies")
+    void testCriticalPath() {
+        ValidationGraph graph = ValidationGraph.builder()
+                .validation("merchant", millis(500), _ -> ValidationResult.success())
+                .cardValidation("card", millis(100), cardValidationService::validate, CARD)
+                .cardAwareValidation("expiration", millis(200), CARD, (_, _) -> ValidationResult.success())
+                .cardAwareValidation("balance", millis(600), CARD, (_, _) -> ValidationResult.success())
+                .build();
+
+        assertEquals(List.of("card", "balance"), graph.criticalPath());
+        assertEquals(millis(700), graph.criticalPathLatency());
+    }
+
+    @Test
+    @DisplayName("A check off the critical path does not lengthen it")
+    void testCheckOffCriticalPath() {
+        ValidationGraph graph = ValidationGraph.builder()
+                .validation("merchant", millis(500), _ -> ValidationResult.success())
+                .validation("velocity", millis(300), _ -> ValidationResult.success())
+                .cardValidation("card", millis(100), cardValidationService::validate, CARD)
+                .cardAwareValidation("balance", millis(600), CARD, (_, _) -> ValidationResult.success())
+                .cardAwareValidation("cvv", millis(400), CARD, (_, _) -> ValidationResult.success())
+                .build();
+
+        assertEquals(List.of("card", "balance"), graph.criticalPath());
+        assertEquals(millis(700), graph.criticalPathLatency());
+    }
+
+    @Test
+    @DisplayName("A step needing a value no step produces is rejected")
+    void testMissingInput() {
+        ValidationGraph.Builder builder = ValidationGraph.builder()
+                .cardAwareValidation("pin", millis(300), CARD, (_, _) -> ValidationResult.success());
+
+        IllegalArgumentException failure = assertThrows(IllegalArgumentException.class, builder::build);
+        assertTrue(failure.getMessage().contains("pin"));
+    }
+
+    @Test
+    @DisplayName("Duplicate steps, duplicate outputs, unknown compensations and speculations are rejected")
+    void testInvalidDeclarations() {
+        assertThrows(IllegalArgumentException.class, () -> ValidationGraph.builder()
+                .validation("merchant", millis(500), _ -> ValidationResult.success())
+                .validation("merchant", millis(500), _ -> ValidationResult.success()));
+
+        assertThrows(IllegalArgumentException.class, () -> ValidationGraph.builder()
+                .cardValidation("card", millis(100), cardValidationService::validate, CARD)
+                .cardValidation("card-again", millis(100), cardValidationService::validate, CARD)
+                .build());
+
+        assertThrows(IllegalArgumentException.class, () -> ValidationGraph.builder()
+                .compensation("balance", _ -> {}));
+
+        // Only a produced value can be guessed
+        assertThrows(IllegalArgumentException.class, () -> ValidationGraph.builder()
+                .validation("merchant", millis(500), _ -> ValidationResult.success())
+                .speculation("merchant", _ -> ValidationResult.success()));
+
+        // Still valid with distinct outputs
+        assertDoesNotThrow(() -> ValidationGraph.builder()
+                .cardValidation("card", millis(100), cardValidationService::validate, CARD)
+                .cardValidation("card-again", millis(100), cardValidationService::validate, OTHER_CARD)
+                .build());
+    }
+}